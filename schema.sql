@@ -23,7 +23,9 @@ CREATE TABLE Book (
                       Category VARCHAR(50),
                       Stock INT DEFAULT 0,
                       Total INT DEFAULT 0,
-                      CHECK (Stock >= 0) -- 增加一个检查约束，确保库存不会为负
+                      CHECK (Stock >= 0), -- 增加一个检查约束，确保库存不会为负
+                      INDEX idx_book_category (Category), -- 分页查询按分类过滤 (二级索引隐含 BookID, 支持 keyset 分页)
+                      INDEX idx_book_author (Author)
 );
 
 -- 3. 借阅记录表 (BorrowRecord)
@@ -35,6 +37,54 @@ CREATE TABLE BorrowRecord (
                               DueDate DATETIME,
                               ReturnDate DATETIME,
                               Status ENUM('borrowed', 'returned', 'overdue') DEFAULT 'borrowed',
+                              -- 仅未还 (借出中或逾期) 时为 1, 其余为 NULL; 唯一索引中 NULL 互不冲突,
+                              -- 因此同一用户对同一本书最多只有一条未还记录
+                              ActiveLoan TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('borrowed', 'overdue') THEN 1 END) VIRTUAL,
+                              UNIQUE KEY uk_record_active_loan (UserID, BookID, ActiveLoan),
+                              INDEX idx_record_user (UserID, BorrowDate), -- 我的借阅记录 (按借书时间倒序)
+                              INDEX idx_record_status_due (Status, DueDate), -- 逾期扫描 (按到期时间的范围扫描)
                               FOREIGN KEY (UserID) REFERENCES User(UserID),
                               FOREIGN KEY (BookID) REFERENCES Book(BookID)
-);
\ No newline at end of file
+);
+
+-- 4. 分类标签表 (Tag)
+CREATE TABLE Tag (
+                     TagID INT AUTO_INCREMENT PRIMARY KEY,
+                     Name VARCHAR(50) NOT NULL UNIQUE, -- 标签名称, 如 科幻、教育
+                     CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 5. 图书-标签映射表 (BookTag)
+CREATE TABLE BookTag (
+                         BookID INT NOT NULL,
+                         TagID INT NOT NULL,
+                         PRIMARY KEY (BookID, TagID),
+                         INDEX idx_book_tag_tag (TagID), -- 删除标签时级联删除映射
+                         FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE,
+                         FOREIGN KEY (TagID) REFERENCES Tag(TagID) ON DELETE CASCADE
+);
+
+-- 6. 预约表 (Reservation)
+CREATE TABLE Reservation (
+                             ReservationID INT AUTO_INCREMENT PRIMARY KEY,
+                             UserID INT NOT NULL,
+                             BookID INT NOT NULL,
+                             -- waiting 排队中 / held 已为该用户保留一本 / fulfilled 已借走 / cancelled 已取消 / expired 保留过期
+                             Status ENUM('waiting', 'held', 'fulfilled', 'cancelled', 'expired') DEFAULT 'waiting',
+                             CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP,
+                             HoldUntil DATETIME, -- 保留截止时间 (held 时)
+                             -- 同 ActiveLoan: 同一用户对同一本书最多只有一条排队中或保留中的预约
+                             ActiveReservation TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('waiting', 'held') THEN 1 END) VIRTUAL,
+                             UNIQUE KEY uk_reservation_active (UserID, BookID, ActiveReservation),
+                             INDEX idx_reservation_book (BookID, Status), -- 按书的预约队列 (二级索引带主键, 按 ReservationID 先后排列)
+                             INDEX idx_reservation_hold (Status, HoldUntil), -- 过期保留扫描
+                             INDEX idx_reservation_user (UserID, CreatedAt), -- 我的预约
+                             FOREIGN KEY (UserID) REFERENCES User(UserID) ON DELETE CASCADE,
+                             FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE
+);
+
+-- 7. 从库心跳表 (ReplicaHeartbeat): 开启读写分离时主库定时写入当前时间, 从库读回后计算复制延迟
+CREATE TABLE ReplicaHeartbeat (
+                                  ID INT PRIMARY KEY,
+                                  Ts BIGINT NOT NULL -- 写入时的毫秒时间戳
+);
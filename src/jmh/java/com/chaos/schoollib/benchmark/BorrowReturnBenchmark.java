@@ -0,0 +1,88 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import com.chaos.schoollib.support.StubReservationMapper;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.metrics.LibraryMetrics;
+import com.chaos.schoollib.service.impl.BorrowServiceImpl;
+import com.chaos.schoollib.service.support.BorrowBatcher;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import com.chaos.schoollib.service.support.StockGate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 借书 / 还书业务逻辑基线 (内存 Mapper, 不含数据库耗时)
+ * - borrowThenReturn: 一次成功借书 + 还书, 库存保持不变
+ * - borrowOutOfStock: 借无库存的书, 走 "库存不足" 拒绝路径
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BorrowReturnBenchmark {
+
+    private static final int BOOK_ID = 1;
+    private static final int EMPTY_BOOK_ID = 2;
+
+    private final AtomicInteger userSequence = new AtomicInteger();
+    private StubBorrowRecordMapper borrowRecordMapper;
+    private BorrowServiceImpl borrowService;
+
+    @Setup
+    public void setup() {
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        bookMapper.addBook(BOOK_ID, 1_000);
+        bookMapper.addBook(EMPTY_BOOK_ID, 0);
+        borrowRecordMapper = new StubBorrowRecordMapper();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        StockGate stockGate = new StockGate(bookMapper, true, 1000);
+        ReservationQueue reservationQueue = new ReservationQueue(new StubReservationMapper(), bookMapper, stockGate,
+                transactionTemplate, event -> {
+                }, false, 1, 60_000, 1_000);
+        borrowService = new BorrowServiceImpl(
+                bookMapper,
+                borrowRecordMapper,
+                stockGate,
+                new BorrowBatcher(bookMapper, borrowRecordMapper, transactionTemplate, event -> {
+                }, false, 0, 0, 0, 0),
+                reservationQueue,
+                transactionTemplate,
+                event -> {
+                },
+                new ObjectMapper(),
+                new LibraryMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public BorrowRecord borrowThenReturn() {
+        int userId = userSequence.incrementAndGet();
+        BorrowRecord record = borrowService.borrowBook(userId, BOOK_ID);
+        BorrowRecord returned = borrowService.returnBook(userId, record.getRecordID());
+        // 已还记录不再被读取, 移除以免内存随迭代增长
+        borrowRecordMapper.remove(record.getRecordID());
+        return returned;
+    }
+
+    @Benchmark
+    public Object borrowOutOfStock() {
+        try {
+            return borrowService.borrowBook(userSequence.incrementAndGet(), EMPTY_BOOK_ID);
+        } catch (ClientException ex) {
+            return ex;
+        }
+    }
+}
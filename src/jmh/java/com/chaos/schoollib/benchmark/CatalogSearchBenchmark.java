@@ -0,0 +1,80 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.service.support.CatalogSearchIndex;
+import com.chaos.schoollib.support.StubBookMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图书全文检索延迟
+ * 随机生成 books 本书 (中文书名 / 作者 / 出版社 / ISBN / 分类), 从内存版 BookMapper 全量构建索引后,
+ * 测量不同类型关键词的检索耗时: 高频二元组、多词书名、单字、作者、ISBN、英文词
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogSearchBenchmark {
+
+    private static final String[] WORDS = {"中国", "历史", "数据", "结构", "算法", "文学", "小说", "三体", "物理",
+            "化学", "经济", "管理", "哲学", "艺术", "设计", "原理", "导论", "实践", "教程", "研究", "世界", "科学",
+            "技术", "网络", "系统", "程序", "语言", "心理", "社会", "文化", "古代", "现代", "诗词", "战争", "和平",
+            "城市", "乡村", "自然", "生命", "宇宙"};
+    private static final String[] LATIN = {"java", "python", "spring", "linux", "mysql", "redis", "kafka", "go"};
+    private static final String[] SURNAMES = {"王", "李", "张", "刘", "陈", "杨", "赵", "黄", "周", "吴", "徐", "孙"};
+    private static final String[] GIVEN = {"伟", "芳", "娜", "敏", "静", "磊", "洋", "勇", "艳", "杰", "涛", "明",
+            "超", "慈欣", "晓东", "建国"};
+    private static final String[] PUBLISHERS = {"人民文学出版社", "清华大学出版社", "机械工业出版社", "电子工业出版社",
+            "商务印书馆", "中华书局", "北京大学出版社", "重庆出版社"};
+    private static final String[] CATEGORIES = {"文学", "计算机", "历史", "哲学", "经济", "科普", "艺术", "教育"};
+
+    @Param({"1000000"})
+    public int books;
+
+    @Param({"中国", "数据结构与算法", "史", "刘慈欣", "978-7-0001234-4", "spring 教程"})
+    public String query;
+
+    private CatalogSearchIndex index;
+
+    @Setup
+    public void setup() {
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        Random random = new Random(42);
+        for (int id = 1; id <= books; id++) {
+            Book book = new Book();
+            book.setBookID(id);
+            StringBuilder title = new StringBuilder();
+            for (int i = 2 + random.nextInt(4); i > 0; i--) {
+                title.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            if (random.nextInt(5) == 0) {
+                title.append(' ').append(LATIN[random.nextInt(LATIN.length)]);
+            }
+            book.setTitle(title.toString());
+            book.setAuthor(SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN[random.nextInt(GIVEN.length)]);
+            book.setPublisher(PUBLISHERS[random.nextInt(PUBLISHERS.length)]);
+            book.setIsbn(String.format("978-7-%07d-%d", id, id % 10));
+            book.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            book.setTotal(1);
+            book.setStock(1);
+            bookMapper.insert(book);
+        }
+        index = new CatalogSearchIndex(bookMapper, true, 5000, 100);
+        index.build();
+    }
+
+    @Benchmark
+    public List<CatalogSearchIndex.Hit> search() {
+        return index.search(query, 20);
+    }
+}
@@ -0,0 +1,69 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.security.JwtTokenProvider;
+import com.chaos.schoollib.security.VerifiedToken;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT 验证路径对比
+ * - legacyValidateThenParse: 原有过滤器路径, 每次新建 parser, validateToken + getUsernameFromToken 两次验签
+ * - verifyOnce:              共享 parser, 一次解析 + 验签
+ * - verifyCached:            命中已验签 Token 缓存, 只计算摘要
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtVerifyBenchmark {
+
+    static final String SECRET = "4JfTqMBa8cOyFfjCDzOGvQ13WC4v+Z2rmSVQlj1kAiM=";
+
+    private SecretKey key;
+    private JwtTokenProvider uncachedProvider;
+    private JwtTokenProvider cachedProvider;
+    private String token;
+
+    @Setup
+    public void setup() {
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        uncachedProvider = new JwtTokenProvider(SECRET, 86_400_000L, false, 0);
+        cachedProvider = new JwtTokenProvider(SECRET, 86_400_000L, true, 10_000);
+
+        User user = new User();
+        user.setUserID(42);
+        user.setUsername("student42");
+        user.setRole("student");
+        token = uncachedProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        cachedProvider.verifyToken(token);
+    }
+
+    @Benchmark
+    public String legacyValidateThenParse() {
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public VerifiedToken verifyOnce() {
+        return uncachedProvider.verifyToken(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return cachedProvider.verifyToken(token);
+    }
+}
@@ -0,0 +1,97 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.service.support.CoBorrowRecommender;
+import com.chaos.schoollib.service.support.LoanRecords;
+import com.chaos.schoollib.service.support.TagFacetIndex;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共同借阅推荐延迟
+ * 随机生成 users 个用户对 books 本书的 loans 次借阅 (图书热度近似幂律分布, 同一用户偏好少数几个分类),
+ * 从内存版 Mapper 构建模型 (构建耗时见 setup 输出) 后, 测量有借阅记录的用户和冷启动用户的推荐耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecommendationBenchmark {
+
+    private static final String[] CATEGORIES = {"文学", "计算机", "历史", "哲学", "经济", "科普", "艺术", "教育"};
+
+    @Param({"100000"})
+    public int books;
+
+    @Param({"50000"})
+    public int users;
+
+    @Param({"1000000"})
+    public int loans;
+
+    private CoBorrowRecommender recommender;
+    private int nextUser;
+
+    @Setup
+    public void setup() {
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        for (int id = 1; id <= books; id++) {
+            Book book = new Book();
+            book.setBookID(id);
+            book.setTitle("图书" + id);
+            book.setCategory(CATEGORIES[id % CATEGORIES.length]);
+            book.setTotal(1);
+            book.setStock(1);
+            bookMapper.insert(book);
+        }
+        StubBorrowRecordMapper borrowRecordMapper = new StubBorrowRecordMapper();
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < loans; i++) {
+            int userId = 1 + random.nextInt(users);
+            // 用户偏好: 一半借阅落在自己偏好的分类里
+            int bookId = 1 + (int) (books * Math.pow(random.nextDouble(), 3));
+            if (random.nextBoolean()) {
+                bookId = bookId - bookId % CATEGORIES.length + userId % CATEGORIES.length;
+            }
+            bookId = Math.min(Math.max(bookId, 1), books);
+            borrowRecordMapper.insert(LoanRecords.newLoan(userId, bookId, now));
+        }
+        TagFacetIndex facetIndex = new TagFacetIndex(bookMapper, null, false, 5000, 100);
+        recommender = new CoBorrowRecommender(borrowRecordMapper, bookMapper, facetIndex,
+                true, 20, 100, 5, 5000, 1000, 0, 1000);
+        recommender.build();
+        System.out.println();
+        System.out.println("model: " + recommender.getStats());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recommender.shutdown();
+    }
+
+    @Benchmark
+    public List<CoBorrowRecommender.Recommendation> activeUser() {
+        nextUser = nextUser % users + 1;
+        return recommender.recommend(nextUser, 10);
+    }
+
+    @Benchmark
+    public List<CoBorrowRecommender.Recommendation> coldStartUser() {
+        return recommender.recommend(-1, 10);
+    }
+}
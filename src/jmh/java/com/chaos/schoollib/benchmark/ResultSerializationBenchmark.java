@@ -0,0 +1,65 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.entity.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应封装 + JSON 序列化基线
+ * - wrap:          Results.success 构造 Result 信封
+ * - wrapAndWrite:  信封 + Jackson 写出字节 (与 Spring MVC 使用相同的 ObjectMapper 配置)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        books = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Book book = new Book();
+            book.setBookID(i);
+            book.setTitle("三体 第" + i + "部");
+            book.setAuthor("刘慈欣");
+            book.setPublisher("重庆出版社");
+            book.setIsbn("97875366" + String.format("%05d", i));
+            book.setCategory("科幻");
+            book.setStock(i % 5);
+            book.setTotal(5);
+            books.add(book);
+        }
+    }
+
+    @Benchmark
+    public Result<List<Book>> wrap() {
+        return Results.success(books);
+    }
+
+    @Benchmark
+    public byte[] wrapAndWrite() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(Results.success(books));
+    }
+}
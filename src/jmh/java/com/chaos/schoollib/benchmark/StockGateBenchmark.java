@@ -0,0 +1,90 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import com.chaos.schoollib.support.StubReservationMapper;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.metrics.LibraryMetrics;
+import com.chaos.schoollib.service.impl.BorrowServiceImpl;
+import com.chaos.schoollib.service.support.BorrowBatcher;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import com.chaos.schoollib.service.support.StockGate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 开学抢书场景: 32 个线程同时借同一本书
+ * 每轮迭代开始时库存为 stock, 借完后绝大多数请求都是 "库存不足"。
+ * 对比开启 / 关闭库存闸门时的吞吐量和 p99 延迟 (SampleTime 模式输出分位数)。
+ */
+@State(Scope.Benchmark)
+@Threads(32)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StockGateBenchmark {
+
+    private static final int BOOK_ID = 1;
+
+    @Param({"true", "false"})
+    public boolean gateEnabled;
+
+    @Param({"100"})
+    public int stock;
+
+    /**
+     * 模拟的行锁持有时间 (纳秒)
+     */
+    @Param({"100000"})
+    public long rowLockNanos;
+
+    private BorrowServiceImpl borrowService;
+    private final AtomicInteger userSequence = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        StubBookMapper bookMapper = new StubBookMapper(rowLockNanos);
+        bookMapper.addBook(BOOK_ID, stock);
+        StubBorrowRecordMapper borrowRecordMapper = new StubBorrowRecordMapper();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        StockGate stockGate = new StockGate(bookMapper, gateEnabled, 1000);
+        ReservationQueue reservationQueue = new ReservationQueue(new StubReservationMapper(), bookMapper, stockGate,
+                transactionTemplate, event -> {
+                }, false, 1, 60_000, 1_000);
+        borrowService = new BorrowServiceImpl(
+                bookMapper,
+                borrowRecordMapper,
+                stockGate,
+                new BorrowBatcher(bookMapper, borrowRecordMapper, transactionTemplate, event -> {
+                }, false, 0, 0, 0, 0),
+                reservationQueue,
+                transactionTemplate,
+                event -> {
+                },
+                new ObjectMapper(),
+                new LibraryMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public Object borrowHotBook() {
+        try {
+            return borrowService.borrowBook(userSequence.incrementAndGet(), BOOK_ID);
+        } catch (ClientException ex) {
+            return ex;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.chaos.schoollib.benchmark;
+
+import com.chaos.schoollib.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User.getAuthorities 基线
+ * 过滤器和 @PreAuthorize 每个请求都会调用, 每次都拼接 "ROLE_" 前缀并新建权限对象
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserAuthoritiesBenchmark {
+
+    @Param({"student", "teacher", "admin"})
+    public String role;
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        user = new User();
+        user.setUserID(42);
+        user.setUsername("user42");
+        user.setRole(role);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+}
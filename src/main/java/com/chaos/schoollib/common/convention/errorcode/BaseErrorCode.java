@@ -27,7 +27,9 @@ public enum BaseErrorCode implements IErrorCode {
     // ========== 一级宏观错误码 系统执行出错 ==========
     SERVICE_ERROR("B000001", "系统执行出错"),
     // ========== 二级宏观错误码 系统执行超时 ==========
-    SERVICE_TIMEOUT_ERROR("B000100", "系统执行超时");
+    SERVICE_TIMEOUT_ERROR("B000100", "系统执行超时"),
+    // ========== 二级宏观错误码 系统繁忙 (过载保护) ==========
+    SERVICE_BUSY_ERROR("B000200", "系统繁忙，请稍后再试");
 
 
     private final String code;
@@ -7,7 +7,10 @@ package com.chaos.schoollib.common.convention.errorcode;
 public enum BookErrorCode implements IErrorCode {
 
     BOOK_NOT_FOUND("A000301", "图书不存在"),
-    BOOK_STOCK_UPDATE_ERROR("A000302", "图书库存更新失败, 总数不能小于已借出数");
+    BOOK_STOCK_UPDATE_ERROR("A000302", "图书库存更新失败, 总数不能小于已借出数"),
+    BOOK_SEARCH_KEYWORD_EMPTY("A000303", "搜索关键词不能为空"),
+    BOOK_IMPORT_FORMAT_UNSUPPORTED("A000304", "导入格式只支持 csv 或 ndjson"),
+    BOOK_IMPORT_HEADER_INVALID("A000305", "CSV 表头缺少 title 列");
 
     private final String code;
 
@@ -10,7 +10,9 @@ public enum BorrowErrorCode implements IErrorCode {
     ALREADY_BORROWED("A000402", "你已经借阅了这本书，请勿重复借阅"),
     RECORD_NOT_FOUND("A000403", "借阅记录不存在"),
     INVALID_RETURN("A000404", "该书已归还或状态异常"),
-    NO_PERMISSION_FOR_RECORD("A000405", "无权操作他人的借阅记录");
+    NO_PERMISSION_FOR_RECORD("A000405", "无权操作他人的借阅记录"),
+    DUPLICATE_BATCH_ITEM("A000406", "同一批次中重复出现"),
+    BATCH_ABORTED("A000407", "同一批次中有其他项失败, 整批未执行");
 
     private final String code;
 
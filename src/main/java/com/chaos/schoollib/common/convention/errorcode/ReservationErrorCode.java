@@ -0,0 +1,33 @@
+package com.chaos.schoollib.common.convention.errorcode;
+
+/**
+ * 预约相关业务错误码
+ * A - 客户端 - 0006xx (预约)
+ */
+public enum ReservationErrorCode implements IErrorCode {
+
+    RESERVATION_NOT_FOUND("A000601", "预约记录不存在"),
+    RESERVATION_EXIST("A000602", "你已经预约了这本书"),
+    BOOK_AVAILABLE("A000603", "图书有库存, 请直接借阅"),
+    NO_PERMISSION_FOR_RESERVATION("A000604", "无权操作他人的预约"),
+    INVALID_CANCEL("A000605", "预约已完成或已取消");
+
+    private final String code;
+
+    private final String message;
+
+    ReservationErrorCode(String code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    @Override
+    public String code() {
+        return code;
+    }
+
+    @Override
+    public String message() {
+        return message;
+    }
+}
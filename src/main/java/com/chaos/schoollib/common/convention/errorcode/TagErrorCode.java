@@ -0,0 +1,30 @@
+package com.chaos.schoollib.common.convention.errorcode;
+
+/**
+ * 标签相关业务错误码
+ * A - 客户端 - 0005xx (标签)
+ */
+public enum TagErrorCode implements IErrorCode {
+
+    TAG_NOT_FOUND("A000501", "标签不存在"),
+    TAG_NAME_EXIST("A000502", "标签名称已存在");
+
+    private final String code;
+
+    private final String message;
+
+    TagErrorCode(String code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    @Override
+    public String code() {
+        return code;
+    }
+
+    @Override
+    public String message() {
+        return message;
+    }
+}
\ No newline at end of file
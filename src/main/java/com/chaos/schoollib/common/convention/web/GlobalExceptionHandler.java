@@ -4,7 +4,11 @@ import com.chaos.schoollib.common.convention.errorcode.BaseErrorCode;
 import com.chaos.schoollib.common.convention.exception.AbstractException;
 import com.chaos.schoollib.common.result.Result;
 import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.metrics.LibraryMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.validation.FieldError;
@@ -20,9 +24,17 @@ import java.util.Optional;
  * 全局异常处理器
  * - 适配 AbstractException 和 Result 体系
  */
+@Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final LibraryMetrics libraryMetrics;
+
+    @Autowired
+    public GlobalExceptionHandler(LibraryMetrics libraryMetrics) {
+        this.libraryMetrics = libraryMetrics;
+    }
+
     /**
      * 1. 捕获定义的 AbstractException (ClientException / ServiceException)
      */
@@ -30,6 +42,7 @@ public class GlobalExceptionHandler {
     @ResponseStatus(HttpStatus.OK) // HTTP 状态码保持 200，错误在 code 字段体现
     @ResponseBody
     public Result<Void> handleAbstractException(AbstractException ex) {
+        libraryMetrics.rejected(ex.getErrorCode());
         return Results.failure(ex);
     }
 
@@ -69,14 +82,26 @@ public class GlobalExceptionHandler {
     }
 
     /**
-     * 5. 捕获所有其他 RuntimeException (服务器内部错误)
+     * 5. 数据库连接获取超时 (连接池或数据库并发限制已满), 属于过载而非程序错误
+     */
+    @ExceptionHandler(CannotGetJdbcConnectionException.class)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public Result<Void> handleConnectionTimeout(CannotGetJdbcConnectionException ex) {
+        log.warn("Database connection unavailable: {}", ex.getMostSpecificCause().getMessage());
+        libraryMetrics.rejected(BaseErrorCode.SERVICE_TIMEOUT_ERROR);
+        return Results.failure(BaseErrorCode.SERVICE_TIMEOUT_ERROR.code(), BaseErrorCode.SERVICE_TIMEOUT_ERROR.message());
+    }
+
+    /**
+     * 6. 捕获所有其他 RuntimeException (服务器内部错误)
      */
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.OK)
     @ResponseBody
     public Result<Void> handleRuntimeException(RuntimeException ex) {
-        // 在此处记录日志
-        // log.error("Internal Server Error: ", ex);
+        log.error("Internal Server Error: ", ex);
+        libraryMetrics.rejected(BaseErrorCode.SERVICE_ERROR);
         return Results.failure(BaseErrorCode.SERVICE_ERROR.code(), BaseErrorCode.SERVICE_ERROR.message());
     }
 }
\ No newline at end of file
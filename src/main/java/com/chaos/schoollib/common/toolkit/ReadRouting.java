@@ -0,0 +1,57 @@
+package com.chaos.schoollib.common.toolkit;
+
+/**
+ * 读写分离的线程内路由提示 (读写分离关闭时没有任何效果)
+ *
+ * - replica(): 本次获取的连接只用于读, 可以交给从库 (只读事务开始时 / 标注 {@link ReplicaRead} 的查询)
+ * - primary(): 范围内一律使用主库, 优先于 replica(); 用于读到的数据会被缓存或马上要依据它写入的场景
+ * 两者都按 try-with-resources 使用, 可以嵌套, 关闭时恢复之前的状态
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+    private static final ThreadLocal<Integer> PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * 范围结束时恢复之前的提示, 不抛出受检异常
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static Scope replica() {
+        Boolean previous = REPLICA.get();
+        REPLICA.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                REPLICA.remove();
+            } else {
+                REPLICA.set(previous);
+            }
+        };
+    }
+
+    public static Scope primary() {
+        Integer depth = PRIMARY.get();
+        PRIMARY.set(depth == null ? 1 : depth + 1);
+        return () -> {
+            if (depth == null) {
+                PRIMARY.remove();
+            } else {
+                PRIMARY.set(depth);
+            }
+        };
+    }
+
+    /**
+     * 当前线程获取的连接可以交给从库
+     */
+    public static boolean replicaAllowed() {
+        return REPLICA.get() != null && PRIMARY.get() == null;
+    }
+}
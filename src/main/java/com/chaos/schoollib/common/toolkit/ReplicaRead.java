@@ -0,0 +1,18 @@
+package com.chaos.schoollib.common.toolkit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在 Mapper 查询方法上: 不在事务中执行时可以读从库 (开启读写分离时生效)
+ * 只用于能容忍短暂延迟的读, 结果不应被缓存或作为写入的依据;
+ * 在读写事务中执行时沿用事务的主库连接
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplicaRead {
+}
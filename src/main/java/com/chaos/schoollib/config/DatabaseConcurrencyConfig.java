@@ -0,0 +1,52 @@
+package com.chaos.schoollib.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * 数据库并发限制 (library.db.concurrency-limit.enabled, 默认随虚拟线程模式开启)
+ * 把容器中的 DataSource 包装为 {@link ConcurrencyLimitedDataSource},
+ * 许可数取 Hikari 连接池大小 (maximum-pool-size)。
+ * 先于读写分离 (ReadReplicaConfig) 包装, 读写分离的主库即为限流后的连接池
+ * (Bean 方法返回具体类型, 容器在实例化之前就能识别 PriorityOrdered)。
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+    @Bean
+    public static ConcurrencyLimitPostProcessor concurrencyLimitedDataSourcePostProcessor(Environment environment) {
+        long acquireTimeoutMs = environment.getProperty("library.db.concurrency-limit.acquire-timeout-ms", Long.class, 5000L);
+        return new ConcurrencyLimitPostProcessor(acquireTimeoutMs);
+    }
+
+    static final class ConcurrencyLimitPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        private final long acquireTimeoutMs;
+
+        ConcurrencyLimitPostProcessor(long acquireTimeoutMs) {
+            this.acquireTimeoutMs = acquireTimeoutMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                return new ConcurrencyLimitedDataSource(hikari, hikari.getMaximumPoolSize(), acquireTimeoutMs);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.chaos.schoollib.config;
+
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import com.chaos.schoollib.entity.User;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Data;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离 (library.db.read-replica.enabled, 默认关闭)
+ * 把容器中的 dataSource 包装为 {@link ReplicaRoutingDataSource}, 主库仍为 spring.datasource (及其并发限制),
+ * 从库按 library.db.read-replica.replicas 创建 Hikari 连接池。走从库的读:
+ * - @Transactional(readOnly = true) 的事务 ({@link ReplicaRoutingTransactionManager})
+ * - 不在事务中执行、标注 @ReplicaRead 的 Mapper 查询 ({@link ReplicaReadInterceptor})
+ * 其余语句 (借还书等读写事务、库存闸门 / 缓存 / 索引的加载查询) 都走主库;
+ * 写请求 (非 GET) 执行期间一律走主库, 结束后按用户记录写入时间 (读己之写)
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.db.read-replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    /**
+     * 一个从库的连接配置
+     */
+    @Data
+    public static class ReplicaProperties {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+
+    /**
+     * 在并发限制 (DatabaseConcurrencyConfig) 之后包装, 主库保留原有的并发限制, 从库按各自的连接池大小限制
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingDataSourcePostProcessor(Environment environment) {
+        long maxLagMs = environment.getProperty("library.db.read-replica.max-lag-ms", Long.class, 5000L);
+        long intervalMs = environment.getProperty("library.db.read-replica.heartbeat-interval-ms", Long.class, 1000L);
+        int maxTrackedUsers = environment.getProperty("library.db.read-replica.read-your-writes-max-users", Integer.class, 100000);
+        boolean limited = environment.getProperty("library.db.concurrency-limit.enabled", Boolean.class, false);
+        long acquireTimeoutMs = environment.getProperty("library.db.concurrency-limit.acquire-timeout-ms", Long.class, 5000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource primary)
+                        || bean instanceof ReplicaRoutingDataSource) {
+                    return bean;
+                }
+                List<ReplicaProperties> configured = Binder.get(environment)
+                        .bind("library.db.read-replica.replicas", Bindable.listOf(ReplicaProperties.class))
+                        .orElse(List.of());
+                Map<String, DataSource> replicas = new LinkedHashMap<>();
+                for (int i = 0; i < configured.size(); i++) {
+                    ReplicaProperties properties = configured.get(i);
+                    HikariDataSource hikari = new HikariDataSource();
+                    hikari.setPoolName("replica-" + i);
+                    hikari.setJdbcUrl(properties.getUrl());
+                    hikari.setUsername(properties.getUsername());
+                    hikari.setPassword(properties.getPassword());
+                    hikari.setMaximumPoolSize(properties.getMaximumPoolSize());
+                    hikari.setReadOnly(true);
+                    replicas.put("replica-" + i, limited
+                            ? new ConcurrencyLimitedDataSource(hikari, properties.getMaximumPoolSize(), acquireTimeoutMs)
+                            : hikari);
+                }
+                ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                        primary, replicas, maxLagMs, maxTrackedUsers, ReadReplicaConfig::currentUserId);
+                routing.start(intervalMs);
+                return routing;
+            }
+        };
+    }
+
+    /**
+     * 替换默认的事务管理器, 只读事务走从库
+     */
+    @Bean
+    public JdbcTransactionManager transactionManager(DataSource dataSource,
+                                                     ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JdbcTransactionManager transactionManager = new ReplicaRoutingTransactionManager(dataSource);
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReplicaReadInterceptor replicaReadInterceptor() {
+        return new ReplicaReadInterceptor();
+    }
+
+    /**
+     * 写请求期间固定走主库 (请求内先写后读能读到自己的写入), 结束后记录该用户的写入时间;
+     * 在 Spring Security 过滤器链之后执行, 可以取到当前用户
+     */
+    @Bean
+    public OncePerRequestFilter readYourWritesFilter(DataSource dataSource) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                String method = request.getMethod();
+                if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+                    chain.doFilter(request, response);
+                } finally {
+                    if (dataSource instanceof ReplicaRoutingDataSource routing) {
+                        routing.recordWrite(currentUserId());
+                    }
+                }
+            }
+        };
+    }
+
+    private static Integer currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof User user ? user.getUserID() : null;
+    }
+}
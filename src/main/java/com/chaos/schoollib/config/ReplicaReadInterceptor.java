@@ -0,0 +1,69 @@
+package com.chaos.schoollib.config;
+
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import com.chaos.schoollib.common.toolkit.ReplicaRead;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MyBatis 拦截器: 执行标注 {@link ReplicaRead} 的 Mapper 查询时带上从库提示
+ * 不在事务中时每条语句各取一次连接, 由 ReplicaRoutingDataSource 选择从库;
+ * 事务中连接已经绑定, 提示不起作用
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class ReplicaReadInterceptor implements Interceptor {
+
+    /**
+     * 语句 ID -> 是否标注了 ReplicaRead
+     */
+    private final Map<String, Boolean> replicaReads = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (!replicaReads.computeIfAbsent(statement.getId(), ReplicaReadInterceptor::annotated)) {
+            return invocation.proceed();
+        }
+        try (ReadRouting.Scope ignored = ReadRouting.replica()) {
+            return invocation.proceed();
+        }
+    }
+
+    /**
+     * com.chaos.schoollib.mapper.BookMapper.findAll -> BookMapper#findAll 上是否有 ReplicaRead
+     * (找不到 Mapper 接口的语句, 如 selectKey, 视为没有)
+     */
+    private static boolean annotated(String id) {
+        int split = id.lastIndexOf('.');
+        if (split < 0) {
+            return false;
+        }
+        try {
+            Class<?> mapper = Class.forName(id.substring(0, split), false, ReplicaReadInterceptor.class.getClassLoader());
+            String name = id.substring(split + 1);
+            for (Method method : mapper.getMethods()) {
+                if (method.getName().equals(name) && method.isAnnotationPresent(ReplicaRead.class)) {
+                    return true;
+                }
+            }
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,265 @@
+package com.chaos.schoollib.config;
+
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import com.chaos.schoollib.metrics.ComponentStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 读写分离数据源: 默认使用主库, 线程上有 {@link ReadRouting#replica()} 提示时从健康的从库中轮询选择
+ *
+ * - 延迟: 每 heartbeat-interval-ms 在主库写入 ReplicaHeartbeat (当前时间), 再从每个从库读回;
+ *   从库延迟 = 现在 - 读到的时间。读不到或延迟超过 max-lag-ms 的从库不参与路由, 全部不可用时回到主库
+ * - 读己之写: 用户的写请求结束后记录时间, 之后该用户的读只交给心跳已追上这个时间的从库
+ *   (心跳在这些写入提交之后写入, 从库按提交顺序回放); 超过 max-lag-ms 后不必再记录, 落后更多的从库已被排除
+ * - 心跳以主库时钟为准, 多个实例共用同一行, 各实例的时钟偏差会计入延迟
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable, ComponentStats {
+
+    private static final String PRIMARY = "primary";
+    private static final String WRITE_HEARTBEAT =
+            "INSERT INTO ReplicaHeartbeat (ID, Ts) VALUES (1, ?) ON DUPLICATE KEY UPDATE Ts = VALUES(Ts)";
+    private static final String READ_HEARTBEAT = "SELECT Ts FROM ReplicaHeartbeat WHERE ID = 1";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMs;
+    private final Supplier<Integer> currentUserId;
+    private final Cache<Integer, Long> lastWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService heartbeat;
+    private volatile boolean heartbeatFailing;
+
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder lagFallbacks = new LongAdder();
+    private final LongAdder readYourWritesFallbacks = new LongAdder();
+    private final LongAdder heartbeatErrors = new LongAdder();
+
+    /**
+     * @param replicas      从库名称 -> 数据源
+     * @param currentUserId 当前请求的用户 (读己之写), 没有登录用户时返回 null
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLagMs,
+                                    int maxTrackedUsers, Supplier<Integer> currentUserId) {
+        this.primary = primary;
+        this.maxLagMs = maxLagMs;
+        this.currentUserId = currentUserId;
+        this.lastWrites = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxTrackedUsers, 1))
+                .expireAfterWrite(Duration.ofMillis(Math.max(maxLagMs, 1)))
+                .build();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * 从库的心跳状态
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        /**
+         * 从库上读到的心跳时间, 0 表示还没读到或最近一次读取失败
+         */
+        private volatile long seenTs;
+        private volatile boolean healthy;
+        private final LongAdder connections = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    /**
+     * 开始定时心跳; 第一次心跳之前所有读都走主库 (此时建表脚本可能还没执行)
+     */
+    public void start(long intervalMs) {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-heartbeat-"));
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录用户的一次写入 (写请求结束、事务已提交之后调用)
+     */
+    public void recordWrite(Integer userId) {
+        if (userId != null && !replicas.isEmpty()) {
+            lastWrites.put(userId, System.currentTimeMillis());
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    @Override
+    public String statsName() {
+        return "db-routing";
+    }
+
+    /**
+     * 各从库的连接数 / 错误数也是累计值
+     */
+    @Override
+    public Set<String> counters() {
+        Set<String> counters = new HashSet<>(
+                Set.of("primaryConnections", "lagFallbacks", "readYourWritesFallbacks", "heartbeatErrors"));
+        for (Replica replica : replicas) {
+            counters.add(replica.name + ".connections");
+            counters.add(replica.name + ".errors");
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("primaryConnections", primaryConnections.sum());
+        stats.put("lagFallbacks", lagFallbacks.sum());
+        stats.put("readYourWritesFallbacks", readYourWritesFallbacks.sum());
+        stats.put("trackedWriters", lastWrites.estimatedSize());
+        stats.put("heartbeatErrors", heartbeatErrors.sum());
+        for (Replica replica : replicas) {
+            long seen = replica.seenTs;
+            stats.put(replica.name + ".connections", replica.connections.sum());
+            stats.put(replica.name + ".errors", replica.errors.sum());
+            // 读不到心跳时为 -1
+            stats.put(replica.name + ".lagMs", seen == 0 ? -1 : Math.max(now - seen, 0));
+            stats.put(replica.name + ".healthy", replica.healthy ? 1 : 0);
+        }
+        return stats;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!replicas.isEmpty() && ReadRouting.replicaAllowed()) {
+            Replica replica = pick();
+            if (replica != null) {
+                replica.connections.increment();
+                return replica.name;
+            }
+        }
+        primaryConnections.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * 从当前位置开始轮询, 跳过延迟超标的从库和还没追上当前用户写入的从库
+     */
+    private Replica pick() {
+        long now = System.currentTimeMillis();
+        Integer userId = currentUserId.get();
+        Long written = userId == null ? null : lastWrites.getIfPresent(userId);
+        boolean behindWrite = false;
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            long seen = replica.seenTs;
+            if (seen == 0 || now - seen > maxLagMs) {
+                continue;
+            }
+            if (written != null && seen < written) {
+                behindWrite = true;
+                continue;
+            }
+            return replica;
+        }
+        (behindWrite ? readYourWritesFallbacks : lagFallbacks).increment();
+        return null;
+    }
+
+    /**
+     * 写入主库心跳, 再读回各从库的心跳; 主库写入失败时从库的心跳不再前进, 延迟超标后自然回到主库
+     */
+    void heartbeat() {
+        try (Connection connection = primary.getConnection();
+             PreparedStatement statement = connection.prepareStatement(WRITE_HEARTBEAT)) {
+            statement.setLong(1, System.currentTimeMillis());
+            statement.executeUpdate();
+            heartbeatFailing = false;
+        } catch (SQLException | RuntimeException ex) {
+            heartbeatErrors.increment();
+            // 连续失败只记录第一次 (例如还没有执行升级脚本创建 ReplicaHeartbeat)
+            if (!heartbeatFailing) {
+                heartbeatFailing = true;
+                log.warn("failed to write replica heartbeat", ex);
+            }
+        }
+        for (Replica replica : replicas) {
+            long seen = 0;
+            try (Connection connection = replica.dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(READ_HEARTBEAT);
+                 ResultSet rs = statement.executeQuery()) {
+                seen = rs.next() ? rs.getLong(1) : 0;
+            } catch (SQLException | RuntimeException ex) {
+                replica.errors.increment();
+                log.debug("failed to read heartbeat from replica {}", replica.name, ex);
+            }
+            replica.seenTs = seen;
+            boolean healthy = seen != 0 && System.currentTimeMillis() - seen <= maxLagMs;
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    log.info("replica {} is serving reads", replica.name);
+                } else {
+                    log.warn("replica {} is unavailable or lagging more than {}ms, reads fall back to primary",
+                            replica.name, maxLagMs);
+                }
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    /**
+     * 容器关闭时停止心跳并关闭主库与从库连接池
+     */
+    @Override
+    public void close() throws Exception {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
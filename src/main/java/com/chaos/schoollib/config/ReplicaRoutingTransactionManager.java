@@ -0,0 +1,29 @@
+package com.chaos.schoollib.config;
+
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离时的事务管理器: 只读事务 (@Transactional(readOnly = true)) 开始获取连接时带上从库提示,
+ * 整个事务使用同一个从库连接; 读写事务和 ReadRouting.primary() 范围内的事务使用主库
+ */
+public class ReplicaRoutingTransactionManager extends JdbcTransactionManager {
+
+    public ReplicaRoutingTransactionManager(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        if (!definition.isReadOnly()) {
+            super.doBegin(transaction, definition);
+            return;
+        }
+        try (ReadRouting.Scope ignored = ReadRouting.replica()) {
+            super.doBegin(transaction, definition);
+        }
+    }
+}
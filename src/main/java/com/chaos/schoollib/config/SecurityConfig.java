@@ -1,8 +1,10 @@
 package com.chaos.schoollib.config;
 
+import com.chaos.schoollib.security.BoundedPasswordEncoder;
 import com.chaos.schoollib.security.CustomUserDetailsService;
 import com.chaos.schoollib.security.JwtAuthFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -12,8 +14,6 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -32,10 +32,13 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService customUserDetailsService; // 确保它被注入 (虽然可能未在此处显式使用)
 
-    // 1. 密码编码器
+    // 1. 密码编码器 (BCrypt 在独立的有界线程池中执行, 见 BoundedPasswordEncoder)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${library.password.bcrypt-strength:10}") int strength,
+            @Value("${library.password.hash-threads:0}") int threads,
+            @Value("${library.password.queue-capacity:64}") int queueCapacity) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity);
     }
 
     // 2. 认证管理器
@@ -61,21 +64,30 @@ public class SecurityConfig {
                         // ---- 公开访问 ----
                         .requestMatchers("/ping").permitAll()
                         .requestMatchers("/api/auth/**").permitAll() // 注册和登录
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // 健康检查和指标抓取 (只在本机的管理端口 management.server.port 提供)
 
                         // ---- 图书 API 权限 (阶段二/三) ----
                         // GET (查书) 对所有人开放
                         .requestMatchers(HttpMethod.GET, "/api/books", "/api/books/**").permitAll()
                         // POST, PUT, DELETE (增改删) 仅限 ADMIN
-                        .requestMatchers(HttpMethod.POST, "/api/books").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/books", "/api/books/import").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/books/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/books/**").hasRole("ADMIN")
 
+                        // ---- 标签 API 权限 ----
+                        // 查询标签对所有人开放, 新建 / 删除仅限 ADMIN
+                        .requestMatchers(HttpMethod.GET, "/api/tags").permitAll()
+                        .requestMatchers("/api/tags", "/api/tags/**").hasRole("ADMIN")
+
                         // ---- 借阅 API 权限 (阶段四) ----
                         // 借书, 还书, 查看自己的记录, 至少需要是 'student'
                         // (hasRole 会自动添加 'ROLE_' 前缀)
-                        .requestMatchers("/api/borrow").hasAnyRole("STUDENT", "TEACHER", "ADMIN")
-                        .requestMatchers("/api/return").hasAnyRole("STUDENT", "TEACHER", "ADMIN")
+                        .requestMatchers("/api/borrow", "/api/borrow/batch").hasAnyRole("STUDENT", "TEACHER", "ADMIN")
+                        .requestMatchers("/api/return", "/api/return/batch").hasAnyRole("STUDENT", "TEACHER", "ADMIN")
                         .requestMatchers("/api/me/records").hasAnyRole("STUDENT", "TEACHER", "ADMIN")
+                        // 预约: 同借书
+                        .requestMatchers("/api/reservations", "/api/reservations/**", "/api/me/reservations")
+                        .hasAnyRole("STUDENT", "TEACHER", "ADMIN")
                         // (注意：/api/admin/records 的权限
                         // 现在由 @PreAuthorize 在 Controller 中控制,
                         // 所以这里不需要再写了)
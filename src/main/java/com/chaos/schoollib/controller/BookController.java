@@ -3,12 +3,29 @@ package com.chaos.schoollib.controller;
 import com.chaos.schoollib.common.result.Result;
 import com.chaos.schoollib.common.result.Results;
 import com.chaos.schoollib.dto.BookDTO;
+import com.chaos.schoollib.dto.BookFacetQueryDTO;
+import com.chaos.schoollib.dto.BookImportReportDTO;
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.dto.BookSearchHitDTO;
+import com.chaos.schoollib.dto.BookTagsDTO;
+import com.chaos.schoollib.dto.FacetPageDTO;
 import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.Tag;
 import com.chaos.schoollib.service.BookService;
+import com.chaos.schoollib.service.TagService;
+import com.chaos.schoollib.service.support.CatalogResponseCache;
+import com.chaos.schoollib.service.support.CatalogVersion;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
 import java.util.List;
 
 /**
@@ -19,11 +36,20 @@ import java.util.List;
 @RequestMapping("/api/books")
 public class BookController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final BookService bookService;
+    private final TagService tagService;
+    private final CatalogVersion catalogVersion;
+    private final CatalogResponseCache responseCache;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, TagService tagService,
+                          CatalogVersion catalogVersion, CatalogResponseCache responseCache) {
         this.bookService = bookService;
+        this.tagService = tagService;
+        this.catalogVersion = catalogVersion;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -36,21 +62,70 @@ public class BookController {
     }
 
     /**
-     * 2. 获取所有图书
+     * 2. 分页查询图书
+     * - 游标分页: cursor 为上一页返回的 nextCursor
+     * - 支持 category / author / inStock 过滤
+     * - 条件 GET: If-None-Match 与目录版本一致时直接返回 304, 不查库
+     * - 响应体从序列化缓存直接写出 (见 writeCached)
      */
     @GetMapping
-    public Result<List<Book>> getAllBooks() {
-        List<Book> books = bookService.getAllBooks();
-        return Results.success(books);
+    public void listBooks(BookQueryDTO query, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String tag = catalogVersion.catalogTag();
+        if (notModified(request, response, tag)) {
+            return;
+        }
+        writeCached(request, response,
+                responseCache.page(filterKey(bookService.pageSize(query.getSize()), query), query.getCursor(), tag,
+                        () -> bookService.pageBooks(query)));
+    }
+
+    /**
+     * 2.1 获取所有图书 (不分页)
+     * 仅在显式传入 unpaged=true 时使用, 图书较多时请使用分页查询
+     */
+    @GetMapping(params = "unpaged=true")
+    public void getAllBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String tag = catalogVersion.catalogTag();
+        if (notModified(request, response, tag)) {
+            return;
+        }
+        writeCached(request, response, responseCache.all(tag, bookService::getAllBooks));
+    }
+
+    /**
+     * 2.2 全文检索图书
+     * - 按书名 / 作者 / 出版社 / ISBN / 分类检索, 支持中文, 按相关度排序
+     * - size 为最多返回的条数 (默认 20, 最大 100)
+     */
+    @GetMapping("/search")
+    public Result<List<BookSearchHitDTO>> searchBooks(@RequestParam(value = "q", required = false) String keyword,
+                                                      @RequestParam(value = "size", required = false) Integer size) {
+        return Results.success(bookService.searchBooks(keyword, size));
+    }
+
+    /**
+     * 2.3 按标签分面浏览图书
+     * - tagIds 之间为 AND 关系, inStock=true 时只返回有库存的图书, 游标分页同 2
+     * - 同时返回整个筛选结果的总数、有库存数和各标签计数 (用于继续筛选)
+     */
+    @GetMapping("/facets")
+    public Result<FacetPageDTO<Book>> browseBooks(BookFacetQueryDTO query) {
+        return Results.success(tagService.browseBooks(query));
     }
 
     /**
      * 3. 根据 ID 获取单本图书
+     * - 条件 GET: If-None-Match 与这本书的版本一致时直接返回 304, 不查库
      */
     @GetMapping("/{id}")
-    public Result<Book> getBookById(@PathVariable("id") Integer bookId) {
-        Book book = bookService.getBookById(bookId);
-        return Results.success(book);
+    public void getBookById(@PathVariable("id") Integer bookId,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String tag = catalogVersion.bookTag(bookId);
+        if (notModified(request, response, tag)) {
+            return;
+        }
+        writeCached(request, response, responseCache.book(bookId, tag, () -> bookService.getBookById(bookId)));
     }
 
     /**
@@ -71,4 +146,132 @@ public class BookController {
         bookService.deleteBook(bookId);
         return Results.success();
     }
-}
\ No newline at end of file
+
+    /**
+     * 6. 查询图书的标签
+     */
+    @GetMapping("/{id}/tags")
+    public Result<List<Tag>> getBookTags(@PathVariable("id") Integer bookId) {
+        return Results.success(tagService.getBookTags(bookId));
+    }
+
+    /**
+     * 7. 设置图书的标签 (整体替换)
+     */
+    @PutMapping("/{id}/tags")
+    public Result<List<Tag>> setBookTags(@PathVariable("id") Integer bookId,
+                                         @Valid @RequestBody BookTagsDTO bookTagsDTO) {
+        return Results.success(tagService.setBookTags(bookId, bookTagsDTO));
+    }
+
+    /**
+     * 8. 批量导入图书 (CSV 带表头 / NDJSON, 请求体直接为文件内容)
+     * - 格式由 format 参数指定, 不传时按 Content-Type 判断 (application/x-ndjson 为 NDJSON, 其余为 CSV)
+     * - 不接受表单类型的请求体 (会被当作表单参数提前读走)
+     * - 按 ISBN 合并到已有图书 (累加 Total 和 Stock), 有错误的行记入报告, 其余照常导入
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "text/plain", "application/x-ndjson",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Result<BookImportReportDTO> importBooks(@RequestParam(value = "format", required = false) String format,
+                                                   @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                   InputStream body) {
+        if (format == null && contentType.isCompatibleWith(NDJSON)) {
+            format = "ndjson";
+        }
+        return Results.success(bookService.importBooks(body, format));
+    }
+
+    /**
+     * If-None-Match 包含该版本 (任一编码) 时返回 304
+     * - 版本在读数据之前取得, 读取期间的变更在下一次请求时被发现
+     */
+    private boolean notModified(HttpServletRequest request, HttpServletResponse response, String tag) {
+        String matched = matchIfNoneMatch(request, tag);
+        if (matched == null) {
+            return false;
+        }
+        catalogVersion.notModified();
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        response.setHeader(HttpHeaders.ETAG, matched);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return true;
+    }
+
+    /**
+     * 直接写出缓存中编码好的字节 (客户端接受 gzip 时写出预先压缩的版本)
+     * - 两种编码的 ETag 不同 (gzip 的带 -gz 后缀), 均为强校验
+     * - Cache-Control: no-cache 允许客户端缓存, 但每次使用前带 If-None-Match 验证
+     */
+    private void writeCached(HttpServletRequest request, HttpServletResponse response,
+                             CatalogResponseCache.Encoded encoded) throws IOException {
+        // 缓存中的页面可能早于当前目录版本编码, 客户端持有的正是这个版本时同样返回 304
+        if (notModified(request, response, encoded.tag())) {
+            return;
+        }
+        boolean gzip = encoded.hasGzip() && acceptsGzip(request);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, etag(encoded.tag(), gzip));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(encoded.length(gzip));
+        encoded.writeTo(response.getOutputStream(), gzip);
+    }
+
+    private static String etag(String tag, boolean gzip) {
+        return gzip ? "\"" + tag + "-gz\"" : "\"" + tag + "\"";
+    }
+
+    /**
+     * @return If-None-Match 中与该版本匹配的 ETag (弱比较), 没有时为 null
+     * "*" 不视为匹配: 它只在资源存在时成立, 而这里在查库之前判断 (图书不存在时应返回 404 而不是 304)
+     */
+    private static String matchIfNoneMatch(HttpServletRequest request, String tag) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        while (headers.hasMoreElements()) {
+            for (String candidate : headers.nextElement().split(",")) {
+                candidate = candidate.strip();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals(etag(tag, false))) {
+                    return etag(tag, false);
+                }
+                if (candidate.equals(etag(tag, true))) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.strip().split(";");
+            if (parts[0].strip().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 分页查询条件 (不含游标) -> 缓存分组键, 同一条件的各页在 CatalogResponseCache 中归为一组;
+     * 每页条数用 pageBooks 实际使用的值 (未传 / 超出范围与对应的边界值是同一组);
+     * 字符串带长度前缀, 不同条件不会拼出相同的键
+     */
+    private static String filterKey(int pageSize, BookQueryDTO query) {
+        return pageSize + "|" + keyPart(query.getCategory()) + "|"
+                + keyPart(query.getAuthor()) + "|" + Boolean.TRUE.equals(query.getInStock());
+    }
+
+    private static String keyPart(String value) {
+        return value == null || value.isEmpty() ? "-" : value.length() + ":" + value;
+    }
+}
@@ -3,16 +3,22 @@ package com.chaos.schoollib.controller;
 import com.chaos.schoollib.common.result.Result;
 import com.chaos.schoollib.common.result.Results;
 import com.chaos.schoollib.dto.BorrowRequestDTO;
+import com.chaos.schoollib.dto.MultiBorrowRequestDTO;
+import com.chaos.schoollib.dto.MultiResultDTO;
+import com.chaos.schoollib.dto.MultiReturnRequestDTO;
+import com.chaos.schoollib.dto.RecordExportQueryDTO;
 import com.chaos.schoollib.dto.ReturnRequestDTO;
 import com.chaos.schoollib.entity.BorrowRecord;
 import com.chaos.schoollib.entity.User;
 import com.chaos.schoollib.service.BorrowService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -54,6 +60,30 @@ public class BorrowController {
         return Results.success(record);
     }
 
+    /**
+     * 2.1 一次借多本 (借阅台一次扫描一摞书)
+     * - 一个事务内完成, 每本单独给出结果; mode=all-or-nothing 时任何一本失败则整批不借
+     */
+    @PostMapping("/borrow/batch")
+    public Result<MultiResultDTO> borrowBooks(
+            @Valid @RequestBody MultiBorrowRequestDTO request,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(borrowService.borrowBooks(currentUser.getUserID(), request));
+    }
+
+    /**
+     * 2.2 一次还多本
+     * - 一个事务内完成, 每条记录单独给出结果; mode=all-or-nothing 时任何一条失败则整批不还
+     */
+    @PostMapping("/return/batch")
+    public Result<MultiResultDTO> returnBooks(
+            @Valid @RequestBody MultiReturnRequestDTO request,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(borrowService.returnBooks(currentUser.getUserID(), request));
+    }
+
     /**
      * 3. 获取我的借阅记录
      */
@@ -74,4 +104,19 @@ public class BorrowController {
         List<BorrowRecord> records = borrowService.getAllRecords();
         return Results.success(records);
     }
-}
\ No newline at end of file
+
+    /**
+     * 5. 管理员流式导出借阅记录 (CSV / NDJSON)
+     * - 直接写入响应输出流, 不在内存中组装整个结果
+     * - 支持按借书日期范围 (from / to, yyyy-MM-dd) 和状态过滤
+     */
+    @GetMapping("/admin/records/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportRecords(@Valid RecordExportQueryDTO query,
+                              HttpServletResponse response) throws IOException {
+        String extension = query.isNdjson() ? "ndjson" : "csv";
+        response.setContentType(query.isNdjson() ? "application/x-ndjson;charset=UTF-8" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"borrow-records." + extension + "\"");
+        borrowService.exportRecords(query, response.getOutputStream());
+    }
+}
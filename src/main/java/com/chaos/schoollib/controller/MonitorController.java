@@ -0,0 +1,54 @@
+package com.chaos.schoollib.controller;
+
+import com.chaos.schoollib.common.convention.errorcode.BaseErrorCode;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.metrics.ComponentStats;
+import com.chaos.schoollib.metrics.ComponentStatsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行状态监控 (仅管理员)
+ * - 各类进程内缓存 / 计数器的统计信息, 组件实现 {@link ComponentStats} 即可在这里查询
+ */
+@RestController
+@RequestMapping("/api/admin/monitor")
+@PreAuthorize("hasRole('ADMIN')")
+public class MonitorController {
+
+    private final ComponentStatsRegistry components;
+
+    @Autowired
+    public MonitorController(ComponentStatsRegistry components) {
+        this.components = components;
+    }
+
+    /**
+     * 1. 可查询的组件名 (如 stock-gate / search / db-routing, 未开启的功能不在其中)
+     */
+    @GetMapping
+    public Result<List<String>> listComponents() {
+        return Results.success(List.copyOf(components.getComponents().keySet()));
+    }
+
+    /**
+     * 2. 单个组件的统计信息
+     */
+    @GetMapping("/{component}")
+    public Result<Map<String, ?>> componentStats(@PathVariable("component") String component) {
+        ComponentStats stats = components.find(component);
+        if (stats == null) {
+            throw new ClientException("未知的监控组件: " + component, BaseErrorCode.CLIENT_ERROR);
+        }
+        return Results.success(stats.getStats());
+    }
+}
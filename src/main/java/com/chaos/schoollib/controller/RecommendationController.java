@@ -0,0 +1,39 @@
+package com.chaos.schoollib.controller;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.dto.RecommendationDTO;
+import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.service.RecommendationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 图书推荐 (登录用户)
+ */
+@RestController
+@RequestMapping("/api")
+public class RecommendationController {
+
+    private final RecommendationService recommendationService;
+
+    @Autowired
+    public RecommendationController(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+
+    /**
+     * 1. 为我推荐: 借过我最近借的书的人还借了什么; 没有借阅记录时推荐同分类 / 同标签和全站热门图书
+     * - size 为最多返回的条数 (默认 10, 最大 50)
+     */
+    @GetMapping("/me/recommendations")
+    public Result<List<RecommendationDTO>> getMyRecommendations(
+            @RequestParam(value = "size", required = false) Integer size,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(recommendationService.recommend(currentUser.getUserID(), size));
+    }
+}
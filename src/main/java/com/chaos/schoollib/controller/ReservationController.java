@@ -0,0 +1,61 @@
+package com.chaos.schoollib.controller;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.dto.ReservationRequestDTO;
+import com.chaos.schoollib.entity.Reservation;
+import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.service.ReservationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 图书预约 (登录用户)
+ */
+@RestController
+@RequestMapping("/api")
+public class ReservationController {
+
+    private final ReservationService reservationService;
+
+    @Autowired
+    public ReservationController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    /**
+     * 1. 预约已借完的图书; 有人还书时直接为队首保留, 保留期内通过 /api/borrow 借走
+     */
+    @PostMapping("/reservations")
+    public Result<Reservation> reserve(
+            @Valid @RequestBody ReservationRequestDTO reservationRequest,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(reservationService.reserve(currentUser.getUserID(), reservationRequest.getBookId()));
+    }
+
+    /**
+     * 2. 取消预约
+     */
+    @DeleteMapping("/reservations/{id}")
+    public Result<Reservation> cancel(
+            @PathVariable("id") Integer reservationId,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(reservationService.cancel(currentUser.getUserID(), reservationId));
+    }
+
+    /**
+     * 3. 获取我的预约
+     */
+    @GetMapping("/me/reservations")
+    public Result<List<Reservation>> getMyReservations(
+            @AuthenticationPrincipal User currentUser
+    ) {
+        return Results.success(reservationService.getMyReservations(currentUser.getUserID()));
+    }
+}
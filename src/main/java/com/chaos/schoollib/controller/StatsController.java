@@ -0,0 +1,36 @@
+package com.chaos.schoollib.controller;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.dto.LeaderboardDTO;
+import com.chaos.schoollib.service.StatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 借阅统计 (登录用户可见)
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final StatsService statsService;
+
+    @Autowired
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    /**
+     * 1. 借阅排行榜: 借阅最多的图书和借书最多的用户, 分全部 / 近 30 天 / 近 7 天
+     * - books / users 为各榜条数 (默认 10 / 5, 最大 50)
+     */
+    @GetMapping("/leaderboards")
+    public Result<List<LeaderboardDTO>> getLeaderboards(
+            @RequestParam(value = "books", required = false) Integer bookLimit,
+            @RequestParam(value = "users", required = false) Integer userLimit) {
+        return Results.success(statsService.getLeaderboards(bookLimit, userLimit));
+    }
+}
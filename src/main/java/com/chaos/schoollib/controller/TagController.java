@@ -0,0 +1,53 @@
+package com.chaos.schoollib.controller;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.dto.TagDTO;
+import com.chaos.schoollib.entity.Tag;
+import com.chaos.schoollib.service.TagService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 分类标签管理
+ * - 查询对所有人开放, 新建 / 删除仅限 ADMIN (见 SecurityConfig)
+ */
+@RestController
+@RequestMapping("/api/tags")
+public class TagController {
+
+    private final TagService tagService;
+
+    @Autowired
+    public TagController(TagService tagService) {
+        this.tagService = tagService;
+    }
+
+    /**
+     * 1. 查询全部标签
+     */
+    @GetMapping
+    public Result<List<Tag>> listTags() {
+        return Results.success(tagService.listTags());
+    }
+
+    /**
+     * 2. 新建标签
+     */
+    @PostMapping
+    public Result<Tag> createTag(@Valid @RequestBody TagDTO tagDTO) {
+        return Results.success(tagService.createTag(tagDTO));
+    }
+
+    /**
+     * 3. 删除标签 (同时从所有图书上移除)
+     */
+    @DeleteMapping("/{id}")
+    public Result<Void> deleteTag(@PathVariable("id") Integer tagId) {
+        tagService.deleteTag(tagId);
+        return Results.success();
+    }
+}
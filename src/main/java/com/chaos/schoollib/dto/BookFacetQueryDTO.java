@@ -0,0 +1,33 @@
+package com.chaos.schoollib.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 标签分面浏览查询条件 DTO
+ * 接收 GET /api/books/facets 的查询参数, 例如 ?tagIds=1,3&inStock=true
+ */
+@Data
+public class BookFacetQueryDTO {
+
+    /**
+     * 标签ID, 多个标签之间为 AND 关系
+     */
+    private List<Integer> tagIds;
+
+    /**
+     * 为 true 时只返回有库存的图书
+     */
+    private Boolean inStock;
+
+    /**
+     * 游标: 上一页最后一本书的 BookID, 查询第一页时不传
+     */
+    private Integer cursor;
+
+    /**
+     * 每页数量 (默认 20, 最大 100)
+     */
+    private Integer size;
+}
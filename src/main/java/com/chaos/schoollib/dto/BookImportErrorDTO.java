@@ -0,0 +1,26 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量导入中未导入的一行
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+
+    /**
+     * 行号 (从 1 开始, 不含 CSV 表头)
+     */
+    private long row;
+
+    /**
+     * 该行的 ISBN (无法解析时为 null)
+     */
+    private String isbn;
+
+    private String message;
+}
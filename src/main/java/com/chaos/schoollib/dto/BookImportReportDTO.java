@@ -0,0 +1,48 @@
+package com.chaos.schoollib.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入图书的结果
+ */
+@Data
+public class BookImportReportDTO {
+
+    /**
+     * 读到的数据行数
+     */
+    private long rows;
+
+    /**
+     * 成功导入的行数
+     */
+    private long imported;
+
+    /**
+     * 新增的图书数
+     */
+    private long created;
+
+    /**
+     * 按 ISBN 合并到已有图书 (或同一文件中更早的行) 的行数, Total / Stock 累加
+     */
+    private long merged;
+
+    /**
+     * 未导入的行数
+     */
+    private long failed;
+
+    /**
+     * 未导入的行及原因 (最多保留 library.book-import.max-errors 条)
+     */
+    private List<BookImportErrorDTO> errors = new ArrayList<>();
+
+    /**
+     * 是否有错误因超出上限未列出
+     */
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,30 @@
+package com.chaos.schoollib.dto;
+
+import lombok.Data;
+
+/**
+ * 图书列表查询条件 DTO
+ * 接收 GET /api/books 的查询参数 (游标分页 + 过滤条件)
+ */
+@Data
+public class BookQueryDTO {
+
+    /**
+     * 游标: 上一页最后一本书的 BookID, 查询第一页时不传
+     */
+    private Integer cursor;
+
+    /**
+     * 每页数量 (默认 20, 最大 100)
+     */
+    private Integer size;
+
+    private String category;
+
+    private String author;
+
+    /**
+     * 为 true 时只返回有库存 (Stock > 0) 的图书
+     */
+    private Boolean inStock;
+}
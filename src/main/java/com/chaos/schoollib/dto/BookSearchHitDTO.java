@@ -0,0 +1,22 @@
+package com.chaos.schoollib.dto;
+
+import com.chaos.schoollib.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图书检索结果 (按 score 从高到低排列)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchHitDTO {
+
+    private Book book;
+
+    /**
+     * BM25 相关度得分, 只用于同一次检索内的比较
+     */
+    private double score;
+}
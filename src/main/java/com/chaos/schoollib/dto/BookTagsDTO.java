@@ -0,0 +1,19 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 设置图书标签请求 DTO
+ * 接收 PUT /api/books/{id}/tags 的请求体, 用 tagIds 整体替换图书现有的标签 (空列表表示清空)
+ */
+@Data
+public class BookTagsDTO {
+
+    @NotNull(message = "标签ID列表不能为空")
+    @Size(max = 32, message = "一本书最多 32 个标签")
+    private List<@NotNull Integer> tagIds;
+}
@@ -0,0 +1,27 @@
+package com.chaos.schoollib.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 借阅次数统计行 (重建排行榜时的 GROUP BY 结果)
+ */
+@Data
+public class BorrowCountDTO {
+
+    /**
+     * BookID 或 UserID
+     */
+    private Integer id;
+
+    /**
+     * 借书日期, 不按天分组时为 null
+     */
+    private LocalDate borrowDay;
+
+    /**
+     * 借阅次数
+     */
+    private Long borrows;
+}
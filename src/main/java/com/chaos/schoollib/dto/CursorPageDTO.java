@@ -0,0 +1,26 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 前端将 nextCursor 作为下一次请求的 cursor 参数, hasMore 为 false 时表示已到最后一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> records;
+
+    /**
+     * 下一页游标 (本页最后一条记录的 ID), 没有更多数据时为 null
+     */
+    private Integer nextCursor;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,38 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 标签分面浏览结果
+ * records / nextCursor / hasMore 与 {@link CursorPageDTO} 含义相同, 另附整个筛选结果的计数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetPageDTO<T> {
+
+    private List<T> records;
+
+    private Integer nextCursor;
+
+    private boolean hasMore;
+
+    /**
+     * 符合筛选条件的图书总数
+     */
+    private long total;
+
+    /**
+     * 其中有库存的图书数
+     */
+    private long inStockCount;
+
+    /**
+     * 各标签在筛选结果中的图书数 (按数量从多到少, 不含 0)
+     */
+    private List<TagCountDTO> tagCounts;
+}
@@ -0,0 +1,31 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 一个时间窗口的借阅排行榜
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardDTO {
+
+    /**
+     * 时间窗口: all (全部) / 30d (近 30 天) / 7d (近 7 天)
+     */
+    private String window;
+
+    /**
+     * 借阅最多的图书
+     */
+    private List<LeaderboardEntryDTO> books;
+
+    /**
+     * 借书最多的用户
+     */
+    private List<LeaderboardEntryDTO> users;
+}
@@ -0,0 +1,29 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 排行榜中的一项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDTO {
+
+    /**
+     * BookID 或 UserID
+     */
+    private Integer id;
+
+    /**
+     * 书名或用户名
+     */
+    private String name;
+
+    /**
+     * 窗口内的借阅次数
+     */
+    private long count;
+}
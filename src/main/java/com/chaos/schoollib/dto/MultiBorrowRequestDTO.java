@@ -0,0 +1,31 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一次借多本书的请求 DTO (借阅台一次扫描一摞书)
+ * 接收 /api/borrow/batch 接口的请求体 (UserID 从 JWT 中获取)
+ */
+@Data
+public class MultiBorrowRequestDTO {
+
+    @NotEmpty(message = "图书ID不能为空")
+    @Size(max = 50, message = "一次最多借 50 本")
+    private List<@NotNull(message = "图书ID不能为空") Integer> bookIds;
+
+    /**
+     * all-or-nothing: 任何一本失败则整批不借; best-effort (默认): 能借的都借
+     */
+    @Pattern(regexp = "(?i)all-or-nothing|best-effort", message = "模式只支持 all-or-nothing 或 best-effort")
+    private String mode;
+
+    public boolean isAllOrNothing() {
+        return "all-or-nothing".equalsIgnoreCase(mode);
+    }
+}
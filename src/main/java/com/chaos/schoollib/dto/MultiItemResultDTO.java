@@ -0,0 +1,34 @@
+package com.chaos.schoollib.dto;
+
+import com.chaos.schoollib.entity.BorrowRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 多本借书 / 还书中一项的结果, 顺序与请求一致
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiItemResultDTO {
+
+    /**
+     * 请求中的图书ID (借书) 或借阅记录ID (还书)
+     */
+    private Integer id;
+
+    private boolean success;
+
+    /**
+     * 成功时为 "0", 失败时为与单本接口相同的错误码
+     */
+    private String code;
+
+    private String message;
+
+    /**
+     * 创建或更新后的借阅记录, 失败时为 null
+     */
+    private BorrowRecord record;
+}
@@ -0,0 +1,21 @@
+package com.chaos.schoollib.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多本借书 / 还书的结果
+ */
+@Data
+public class MultiResultDTO {
+
+    private boolean allOrNothing;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<MultiItemResultDTO> items = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 一次还多本书的请求 DTO
+ * 接收 /api/return/batch 接口的请求体
+ */
+@Data
+public class MultiReturnRequestDTO {
+
+    @NotEmpty(message = "借阅记录ID不能为空")
+    @Size(max = 50, message = "一次最多还 50 本")
+    private List<@NotNull(message = "借阅记录ID不能为空") Integer> recordIds;
+
+    /**
+     * all-or-nothing: 任何一条失败则整批不还; best-effort (默认): 能还的都还
+     */
+    @Pattern(regexp = "(?i)all-or-nothing|best-effort", message = "模式只支持 all-or-nothing 或 best-effort")
+    private String mode;
+
+    public boolean isAllOrNothing() {
+        return "all-or-nothing".equalsIgnoreCase(mode);
+    }
+}
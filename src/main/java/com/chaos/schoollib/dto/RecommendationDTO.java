@@ -0,0 +1,27 @@
+package com.chaos.schoollib.dto;
+
+import com.chaos.schoollib.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 图书推荐结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationDTO {
+
+    private Book book;
+
+    /**
+     * 共同借阅时为加权相似度, 热门补充时为借阅人数; 只用于同一来源内的比较
+     */
+    private double score;
+
+    /**
+     * 推荐来源: co-borrow (借过相同图书的人也借了) / same-tag-or-category (同分类或同标签的热门图书) / popular (全站热门)
+     */
+    private String reason;
+}
@@ -0,0 +1,37 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 借阅记录导出条件 DTO
+ * 接收 GET /api/admin/records/export 的查询参数
+ */
+@Data
+public class RecordExportQueryDTO {
+
+    /**
+     * 导出格式: csv (默认) 或 ndjson
+     */
+    @Pattern(regexp = "(?i)csv|ndjson", message = "导出格式只支持 csv 或 ndjson")
+    private String format;
+
+    /**
+     * 借书日期范围 [from, to], 均可不传
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    @Pattern(regexp = "borrowed|returned|overdue", message = "状态只支持 borrowed, returned, overdue")
+    private String status;
+
+    public boolean isNdjson() {
+        return "ndjson".equalsIgnoreCase(format);
+    }
+}
@@ -0,0 +1,15 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 预约请求 DTO
+ * 接收 /api/reservations 接口的请求体 (UserID 从 JWT 中获取)
+ */
+@Data
+public class ReservationRequestDTO {
+
+    @NotNull(message = "图书ID不能为空")
+    private Integer bookId;
+}
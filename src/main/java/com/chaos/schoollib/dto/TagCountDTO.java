@@ -0,0 +1,20 @@
+package com.chaos.schoollib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分面计数: 当前筛选结果中带有该标签的图书数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagCountDTO {
+
+    private Integer tagID;
+
+    private String name;
+
+    private long count;
+}
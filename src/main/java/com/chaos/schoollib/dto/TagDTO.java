@@ -0,0 +1,17 @@
+package com.chaos.schoollib.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 新建标签请求 DTO
+ * 接收 POST /api/tags 的请求体
+ */
+@Data
+public class TagDTO {
+
+    @NotBlank(message = "标签名称不能为空")
+    @Size(max = 50, message = "标签名称不能超过 50 个字符")
+    private String name;
+}
@@ -0,0 +1,15 @@
+package com.chaos.schoollib.entity;
+
+import lombok.Data;
+
+/**
+ * 图书-标签映射
+ * 对应数据库中的 'BookTag' 表
+ */
+@Data
+public class BookTag {
+
+    private Integer bookID;
+    private Integer tagID;
+
+}
@@ -0,0 +1,20 @@
+package com.chaos.schoollib.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 预约实体
+ * 对应 'Reservation' 表
+ */
+@Data
+public class Reservation {
+
+    private Integer reservationID;
+    private Integer userID;
+    private Integer bookID;
+    private String status; // 'waiting', 'held', 'fulfilled', 'cancelled', 'expired'
+    private LocalDateTime createdAt;
+    private LocalDateTime holdUntil;
+}
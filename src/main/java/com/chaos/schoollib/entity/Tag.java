@@ -0,0 +1,18 @@
+package com.chaos.schoollib.entity;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 分类标签实体类
+ * 对应数据库中的 'Tag' 表
+ */
+@Data
+public class Tag {
+
+    private Integer tagID;
+    private String name;
+    private LocalDateTime createdAt;
+
+}
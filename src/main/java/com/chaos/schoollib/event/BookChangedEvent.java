@@ -0,0 +1,16 @@
+package com.chaos.schoollib.event;
+
+/**
+ * 图书数据变更事件
+ * 由 BookService (增删改) 和借还书流程 (库存变化) 在事务内发布,
+ * 监听方使用 @TransactionalEventListener 在事务提交后处理 (缓存失效、索引更新等)。
+ *
+ * @param bookId 图书ID
+ * @param type   变更类型
+ */
+public record BookChangedEvent(Integer bookId, Type type) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, STOCK_CHANGED
+    }
+}
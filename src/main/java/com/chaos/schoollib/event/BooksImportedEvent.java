@@ -0,0 +1,14 @@
+package com.chaos.schoollib.event;
+
+import java.util.List;
+
+/**
+ * 批量导入事件
+ * 由批量导入在每一块的事务内发布一次 (代替逐本的 BookChangedEvent), 让监听方按批处理,
+ * 例如检索索引一次合并一块新书的倒排表, 而不是每本书复制一次常见词的倒排表。
+ *
+ * @param createdBookIds 新建的图书
+ * @param mergedBookIds  按 ISBN 合并 (Total / Stock 增加) 的已有图书
+ */
+public record BooksImportedEvent(List<Integer> createdBookIds, List<Integer> mergedBookIds) {
+}
@@ -0,0 +1,16 @@
+package com.chaos.schoollib.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 借书成功事件
+ * 由借书流程 (单本借书和合并借书) 在事务内为每条新借阅记录发布,
+ * 监听方使用 @TransactionalEventListener 在事务提交后处理 (排行榜等)。
+ *
+ * @param recordId   借阅记录ID
+ * @param userId     借书用户ID
+ * @param bookId     图书ID
+ * @param borrowDate 借书时间
+ */
+public record BorrowedEvent(Integer recordId, Integer userId, Integer bookId, LocalDateTime borrowDate) {
+}
@@ -0,0 +1,16 @@
+package com.chaos.schoollib.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 还书成功事件
+ * 由还书流程 (单本还书和批量还书) 在事务内为每条归还的借阅记录发布,
+ * 监听方使用 @TransactionalEventListener 在事务提交后处理 (撤销逾期时间轮中的条目等)。
+ *
+ * @param recordId 借阅记录ID
+ * @param userId   还书用户ID
+ * @param bookId   图书ID
+ * @param dueDate  应还时间
+ */
+public record ReturnedEvent(Integer recordId, Integer userId, Integer bookId, LocalDateTime dueDate) {
+}
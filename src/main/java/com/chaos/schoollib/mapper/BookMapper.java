@@ -1,18 +1,47 @@
 package com.chaos.schoollib.mapper;
 
+import com.chaos.schoollib.common.toolkit.ReplicaRead;
+import com.chaos.schoollib.dto.BookQueryDTO;
 import com.chaos.schoollib.entity.Book;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface BookMapper {
 
+    // 开启读写分离时可读从库 (开启响应缓存时缓存加载固定走主库)
+    @ReplicaRead
     List<Book> findAll();
 
+    /**
+     * 游标分页查询 (按 BookID 升序的 keyset 分页)
+     * 对应 BookMapper.xml 中的 'findPage'
+     * @param query 游标与过滤条件
+     * @param limit 最多返回的行数
+     * @return 图书列表
+     */
+    List<Book> findPage(@Param("query") BookQueryDTO query, @Param("limit") int limit);
+
     Book findById(@Param("bookId") Integer bookId);
 
+    /**
+     * 按 ID 批量查询 (检索结果回表)
+     * 对应 BookMapper.xml 中的 'findByIds'
+     * @param bookIds 图书ID (不能为空)
+     * @return 存在的图书, 顺序不保证
+     */
+    List<Book> findByIds(@Param("bookIds") Collection<Integer> bookIds);
+
+    /**
+     * 只查询库存 (用于初始化库存闸门)
+     * @param bookId 图书ID
+     * @return 当前库存, 图书不存在时返回 null
+     */
+    Integer findStockById(@Param("bookId") Integer bookId);
+
     // (useGeneratedKeys 在 XML 中配置)
     int insert(Book book);
 
@@ -36,4 +65,68 @@ public interface BookMapper {
      * @return 受影响的行数
      */
     int increaseStock(@Param("bookId") Integer bookId);
-}
\ No newline at end of file
+
+    /**
+     * 批量减库存 (合并借书)
+     * 对应 BookMapper.xml 中的 'decreaseStockBy'
+     * @param bookId 图书ID
+     * @param count  要扣减的数量
+     * @return 受影响的行数 (1 表示成功, 0 表示库存不足 count 或图书不存在)
+     */
+    int decreaseStockBy(@Param("bookId") Integer bookId, @Param("count") int count);
+
+    /**
+     * 查询库存并加行锁 (SELECT ... FOR UPDATE, 需在事务中调用)
+     * @param bookId 图书ID
+     * @return 当前库存, 图书不存在时返回 null
+     */
+    Integer lockStockById(@Param("bookId") Integer bookId);
+
+    /**
+     * 按 ISBN 批量查询 BookID (批量导入时区分新增 / 合并)
+     * 对应 BookMapper.xml 中的 'findIdsByIsbns'
+     * @param isbns ISBN (不能为空)
+     * @return 存在的图书, 只填充 bookID 和 isbn
+     */
+    List<Book> findIdsByIsbns(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * 多行插入, ISBN 已存在时把 Total 和 Stock 加到已有图书上 (书名等信息不覆盖)
+     * 对应 BookMapper.xml 中的 'upsertByIsbn'
+     * @param books 要导入的图书 (ISBN 不能为空, 且互不相同)
+     * @return 受影响的行数 (MySQL 语义: 新增计 1, 合并计 2)
+     */
+    int upsertByIsbn(@Param("books") List<Book> books);
+
+    /**
+     * 多行插入 (没有 ISBN 的图书), 生成的 BookID 回填到每个实体
+     * 对应 BookMapper.xml 中的 'insertAll'
+     * @param books 要插入的图书 (不能为空)
+     * @return 插入的行数
+     */
+    int insertAll(@Param("books") List<Book> books);
+
+    /**
+     * 按 BookID 升序查询库存并加行锁 (SELECT ... FOR UPDATE, 需在事务中调用)
+     * 对应 BookMapper.xml 中的 'lockStocksByIds'
+     * @param bookIds 图书ID (不能为空)
+     * @return 存在的图书, 只填充 bookID 和 stock
+     */
+    List<Book> lockStocksByIds(@Param("bookIds") Collection<Integer> bookIds);
+
+    /**
+     * 每本图书库存减 1 (库存为 0 的不变)
+     * 对应 BookMapper.xml 中的 'decreaseStockByIds'
+     * @param bookIds 图书ID (不能为空, 且互不相同)
+     * @return 实际扣减的图书数
+     */
+    int decreaseStockByIds(@Param("bookIds") Collection<Integer> bookIds);
+
+    /**
+     * 每本图书库存加 1
+     * 对应 BookMapper.xml 中的 'increaseStockByIds'
+     * @param bookIds 图书ID (不能为空, 且互不相同)
+     * @return 受影响的行数
+     */
+    int increaseStockByIds(@Param("bookIds") Collection<Integer> bookIds);
+}
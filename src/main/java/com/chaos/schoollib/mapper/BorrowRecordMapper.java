@@ -1,9 +1,14 @@
 package com.chaos.schoollib.mapper;
 
+import com.chaos.schoollib.common.toolkit.ReplicaRead;
+import com.chaos.schoollib.dto.BorrowCountDTO;
 import com.chaos.schoollib.entity.BorrowRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -19,6 +24,13 @@ public interface BorrowRecordMapper {
      */
     int insert(BorrowRecord record);
 
+    /**
+     * 多行插入借阅记录 (回填 recordID)
+     * @param records 记录列表
+     * @return 受影响行数
+     */
+    int insertBatch(List<BorrowRecord> records);
+
     /**
      * 根据 ID 查找记录
      * @param recordId 记录ID
@@ -38,23 +50,117 @@ public interface BorrowRecordMapper {
      * @param userId 用户ID
      * @return 记录列表
      */
+    @ReplicaRead
     List<BorrowRecord> findByUserId(@Param("userId") Integer userId);
 
     /**
-     * 查找某用户对某本书的未还记录
-     * @param userId 用户ID
+     * 在给定用户中, 查找对某本书有未还记录 (借出中或逾期) 的用户
      * @param bookId 图书ID
-     * @param status 状态 (例如 'borrowed')
-     * @return 记录
+     * @param userIds 用户ID列表
+     * @return 已有未还记录的用户ID
      */
-    BorrowRecord findActiveRecordByUserAndBook(
-            @Param("userId") Integer userId,
+    List<Integer> findActiveUserIdsByBook(
             @Param("bookId") Integer bookId,
-            @Param("status") String status
+            @Param("userIds") Collection<Integer> userIds
     );
 
     /**
      * 查询所有借阅记录 (管理员使用)
      */
+    @ReplicaRead
     List<BorrowRecord> findAll();
-}
\ No newline at end of file
+
+    /**
+     * 流式读取借阅记录 (导出使用, 需在事务中遍历)
+     * @param from 借书时间下界 (含), 可为 null
+     * @param to 借书时间上界 (不含), 可为 null
+     * @param status 状态, 可为 null
+     * @return 游标, 逐行从数据库读取
+     */
+    Cursor<BorrowRecord> streamByFilter(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("status") String status
+    );
+
+    /**
+     * 当前最大的借阅记录ID (重建排行榜的水位线)
+     * @return 最大 RecordID, 表为空时返回 null
+     */
+    Integer findMaxRecordId();
+
+    /**
+     * 按图书或用户统计借阅次数 (启动时重建排行榜)
+     * @param byUser      true 按 UserID 统计, false 按 BookID 统计
+     * @param since       借书时间下界 (含); 不为 null 时同时按天分组
+     * @param maxRecordId 只统计 RecordID 不超过该值的记录
+     * @return 统计行
+     */
+    List<BorrowCountDTO> countBorrows(
+            @Param("byUser") boolean byUser,
+            @Param("since") LocalDateTime since,
+            @Param("maxRecordId") int maxRecordId
+    );
+
+    /**
+     * 按 RecordID 分页读取借阅关系 (只有 RecordID / UserID / BookID, 构建推荐模型用)
+     * @param afterRecordId 上一页最后一条 RecordID, 第一页为 0
+     * @param maxRecordId   只读取 RecordID 不超过该值的记录
+     * @param limit         每页数量
+     * @return 按 RecordID 升序的借阅记录
+     */
+    List<BorrowRecord> findLoanPairs(
+            @Param("afterRecordId") int afterRecordId,
+            @Param("maxRecordId") int maxRecordId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * 按到期时间 keyset 分页查找借出中的记录 (走 (Status, DueDate) 索引, 只返回 RecordID / DueDate)
+     * @param dueFrom        到期时间下界 (含), 可为 null
+     * @param dueBefore      到期时间上界 (不含)
+     * @param afterDueDate   上一页最后一条的到期时间, 第一页为 null
+     * @param afterRecordId  上一页最后一条的 RecordID
+     * @param limit          每页数量
+     * @return 按 (DueDate, RecordID) 升序的记录
+     */
+    List<BorrowRecord> findDueLoans(
+            @Param("dueFrom") LocalDateTime dueFrom,
+            @Param("dueBefore") LocalDateTime dueBefore,
+            @Param("afterDueDate") LocalDateTime afterDueDate,
+            @Param("afterRecordId") Integer afterRecordId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * 批量把借出中的记录标记为逾期 (已归还的不受影响)
+     * @param recordIds 记录ID, 不能为空
+     * @return 实际标记的行数
+     */
+    int markOverdue(@Param("recordIds") List<Integer> recordIds);
+
+    /**
+     * 按 RecordID 升序读取记录并加行锁 (SELECT ... FOR UPDATE, 需在事务中调用)
+     * @param recordIds 记录ID, 不能为空
+     * @return 存在的记录
+     */
+    List<BorrowRecord> lockByIds(@Param("recordIds") Collection<Integer> recordIds);
+
+    /**
+     * 还书 (单本 / 批量): 借出中或逾期的记录标记为 returned
+     * @param recordIds  记录ID, 不能为空
+     * @param returnDate 归还时间
+     * @return 实际更新的行数
+     */
+    int markReturned(@Param("recordIds") Collection<Integer> recordIds,
+                     @Param("returnDate") LocalDateTime returnDate);
+
+    /**
+     * 用户在给定图书中尚未归还的 (借出中或逾期)
+     * @param userId  用户ID
+     * @param bookIds 图书ID, 不能为空
+     * @return 未归还的图书ID
+     */
+    List<Integer> findActiveBookIdsByUser(@Param("userId") Integer userId,
+                                          @Param("bookIds") Collection<Integer> bookIds);
+}
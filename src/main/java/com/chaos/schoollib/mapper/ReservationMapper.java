@@ -0,0 +1,69 @@
+package com.chaos.schoollib.mapper;
+
+import com.chaos.schoollib.common.toolkit.ReplicaRead;
+import com.chaos.schoollib.entity.Reservation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ReservationMapper {
+
+    // (useGeneratedKeys 在 XML 中配置; 重复预约时违反 uk_reservation_active, 抛出 DuplicateKeyException)
+    int insert(Reservation reservation);
+
+    Reservation findById(@Param("reservationId") Integer reservationId);
+
+    /**
+     * 我的预约 (按预约时间倒序)
+     */
+    @ReplicaRead
+    List<Reservation> findByUserId(@Param("userId") Integer userId);
+
+    /**
+     * 按 ReservationID 分页读取排队中和保留中的预约 (启动时重建内存队列)
+     * @param afterReservationId 上一页最后一条 ReservationID, 第一页为 0
+     * @param limit              每页数量
+     */
+    List<Reservation> findActivePage(@Param("afterReservationId") int afterReservationId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 一本书排在 afterReservationId 之后的若干条排队中的预约 (内存队列尚未就绪时使用)
+     * 加锁读 (FOR UPDATE SKIP LOCKED), 在持有图书行锁的交付事务中调用
+     * @param afterReservationId 已跳过的最后一条 ReservationID, 从队首开始为 0
+     */
+    List<Reservation> findWaitingByBook(@Param("bookId") Integer bookId,
+                                        @Param("afterReservationId") int afterReservationId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 排队中 -> 保留中
+     * @return 受影响的行数, 0 表示预约已被取消
+     */
+    int hold(@Param("reservationId") Integer reservationId, @Param("holdUntil") LocalDateTime holdUntil);
+
+    /**
+     * 按当前状态做条件更新 (取消 / 借走 / 过期)
+     * @param from 允许的当前状态
+     * @param to   新状态
+     * @return 受影响的行数, 0 表示状态已被并发修改
+     */
+    int updateStatus(@Param("reservationId") Integer reservationId,
+                     @Param("from") List<String> from,
+                     @Param("to") String to);
+
+    /**
+     * 保留已过期的预约
+     * @param now   当前时间
+     * @param limit 每次最多处理的数量
+     */
+    List<Reservation> findExpiredHolds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 用户为一本书保留中的预约 (内存队列尚未就绪时使用)
+     */
+    Reservation findHeld(@Param("userId") Integer userId, @Param("bookId") Integer bookId);
+}
@@ -0,0 +1,52 @@
+package com.chaos.schoollib.mapper;
+
+import com.chaos.schoollib.entity.BookTag;
+import com.chaos.schoollib.entity.Tag;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface TagMapper {
+
+    List<Tag> findAll();
+
+    Tag findById(@Param("tagId") Integer tagId);
+
+    /**
+     * 统计存在的标签数 (校验图书打标签请求中的标签ID)
+     * @param tagIds 标签ID (不能为空)
+     * @return 其中存在的标签数
+     */
+    int countByIds(@Param("tagIds") Collection<Integer> tagIds);
+
+    // (useGeneratedKeys 在 XML 中配置; Name 上有唯一索引, 重名时抛出 DuplicateKeyException)
+    int insert(Tag tag);
+
+    /**
+     * 删除标签, BookTag 中的映射由外键级联删除
+     */
+    int deleteById(@Param("tagId") Integer tagId);
+
+    /**
+     * 查询一本书的标签
+     */
+    List<Tag> findByBookId(@Param("bookId") Integer bookId);
+
+    /**
+     * 批量查询图书-标签映射 (构建 / 刷新标签分面索引)
+     * @param bookIds 图书ID (不能为空)
+     * @return 这些图书的全部映射
+     */
+    List<BookTag> findBookTagsByBookIds(@Param("bookIds") Collection<Integer> bookIds);
+
+    int deleteBookTags(@Param("bookId") Integer bookId);
+
+    /**
+     * 多行插入一本书的标签映射
+     * @param tagIds 标签ID (不能为空)
+     */
+    int insertBookTags(@Param("bookId") Integer bookId, @Param("tagIds") Collection<Integer> tagIds);
+}
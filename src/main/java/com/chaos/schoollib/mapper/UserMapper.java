@@ -4,6 +4,8 @@ import com.chaos.schoollib.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.List;
+
 @Mapper
 public interface UserMapper {
 
@@ -21,4 +23,17 @@ public interface UserMapper {
      * @return 受影响的行数
      */
     int insert(User user);
+
+    /**
+     * 更新密码哈希 (登录时按新的 BCrypt cost 重新哈希)
+     * @return 受影响的行数
+     */
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    /**
+     * 批量查询用户名 (只返回 UserID 和 Username, 不含密码)
+     * @param userIds 用户ID列表, 不能为空
+     * @return 存在的用户
+     */
+    List<User> findNamesByIds(@Param("userIds") List<Integer> userIds);
 }
\ No newline at end of file
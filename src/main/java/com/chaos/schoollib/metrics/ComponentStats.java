@@ -0,0 +1,37 @@
+package com.chaos.schoollib.metrics;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 提供运行统计的组件 (缓存 / 索引 / 计数器等)
+ * 容器中实现该接口的 Bean 由 {@link ComponentStatsRegistry} 发现:
+ * - 监控接口 GET /api/admin/monitor/{statsName} 返回 getStats()
+ * - {@link ComponentStatsMeterBinder} 把同一份统计注册为计量
+ */
+public interface ComponentStats {
+
+    /**
+     * 监控接口中的组件名, 例如 stock-gate
+     */
+    String statsName();
+
+    /**
+     * 计量名前缀, 默认由组件名得到, 例如 stock-gate -> library.stock.gate
+     */
+    default String meterName() {
+        return "library." + statsName().replace('-', '.');
+    }
+
+    /**
+     * 统计项 -> 数值, 或嵌套的 Map (按 bucket 展开, 如直方图); 其他类型的值 (如状态) 不注册计量
+     */
+    Map<String, ?> getStats();
+
+    /**
+     * 累计值 (只增不减) 的统计项, 注册为 FunctionCounter; 其余数值注册为 Gauge
+     */
+    default Set<String> counters() {
+        return Set.of();
+    }
+}
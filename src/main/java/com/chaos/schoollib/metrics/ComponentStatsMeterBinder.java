@@ -0,0 +1,111 @@
+package com.chaos.schoollib.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 把 {@link ComponentStatsRegistry} 发现的各组件统计 (监控接口 /api/admin/monitor 使用的同一份数据) 注册为计量
+ * - 累计值注册为 FunctionCounter, 例如 StockGate 的 rejected -> library.stock.gate.rejected (Prometheus 可以 rate())
+ * - 当前值注册为 Gauge, 例如 trackedBooks -> library.stock.gate{stat="trackedBooks"}
+ * 嵌套的 Map (如合并借书的批大小直方图) 按 bucket 展开, 例如 library.borrow.batch.batchSizes{bucket="<=8"}
+ */
+@Component
+public class ComponentStatsMeterBinder implements MeterBinder {
+
+    private static final long SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ComponentStatsRegistry components;
+    private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public ComponentStatsMeterBinder(ComponentStatsRegistry components) {
+        this.components = components;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        components.getComponents().values().forEach(stats -> bind(registry, stats));
+    }
+
+    /**
+     * 累计值 ({@link ComponentStats#counters()}) 注册为 FunctionCounter: name.stat (Prometheus 为 name_stat_total);
+     * 其余数值注册为 Gauge: name{stat=...}; 嵌套的 Map 按 bucket 展开
+     */
+    private void bind(MeterRegistry registry, ComponentStats component) {
+        String name = component.meterName();
+        Snapshot snapshot = new Snapshot(component::getStats);
+        // 计量只弱引用目标对象, 由这里持有
+        snapshots.add(snapshot);
+        Set<String> cumulative = component.counters();
+        snapshot.get().forEach((stat, value) -> {
+            boolean counter = cumulative.contains(stat);
+            if (value instanceof Number) {
+                if (counter) {
+                    FunctionCounter.builder(name + "." + stat, snapshot, s -> s.value(stat, null))
+                            .register(registry);
+                } else {
+                    Gauge.builder(name, snapshot, s -> s.value(stat, null))
+                            .tag("stat", stat)
+                            .register(registry);
+                }
+            } else if (value instanceof Map<?, ?> nested) {
+                nested.keySet().forEach(bucket -> {
+                    if (counter) {
+                        FunctionCounter.builder(name + "." + stat, snapshot, s -> s.value(stat, bucket))
+                                .tag("bucket", String.valueOf(bucket))
+                                .register(registry);
+                    } else {
+                        Gauge.builder(name, snapshot, s -> s.value(stat, bucket))
+                                .tag("stat", stat)
+                                .tag("bucket", String.valueOf(bucket))
+                                .register(registry);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 一次抓取中同一组件的各个计量共用一份 getStats() 结果 (SNAPSHOT_TTL_NANOS 内不重复读取)
+     */
+    private static final class Snapshot {
+
+        private final Supplier<? extends Map<String, ?>> stats;
+        private volatile Map<String, ?> value;
+        private volatile long takenAt;
+
+        Snapshot(Supplier<? extends Map<String, ?>> stats) {
+            this.stats = stats;
+        }
+
+        Map<String, ?> get() {
+            long now = System.nanoTime();
+            Map<String, ?> current = value;
+            if (current == null || now - takenAt > SNAPSHOT_TTL_NANOS) {
+                current = stats.get();
+                value = current;
+                takenAt = now;
+            }
+            return current;
+        }
+
+        double value(String stat, Object bucket) {
+            Object value = get().get(stat);
+            if (bucket != null) {
+                value = value instanceof Map<?, ?> nested ? nested.get(bucket) : null;
+            }
+            return value instanceof Number number ? number.doubleValue() : Double.NaN;
+        }
+    }
+}
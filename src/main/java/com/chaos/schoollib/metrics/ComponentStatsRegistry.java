@@ -0,0 +1,63 @@
+package com.chaos.schoollib.metrics;
+
+import com.chaos.schoollib.config.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按组件名查找 {@link ComponentStats}
+ * 1. 容器中实现该接口的 Bean
+ * 2. dataSource 的包装链 (读写分离 -> 并发限制), 它们由 BeanPostProcessor 包装, 不是独立的 Bean
+ * 第一次使用时收集, 之后不再变化
+ */
+@Component
+public class ComponentStatsRegistry {
+
+    private final ObjectProvider<ComponentStats> components;
+    private final ObjectProvider<DataSource> dataSource;
+    private volatile Map<String, ComponentStats> byName;
+
+    @Autowired
+    public ComponentStatsRegistry(ObjectProvider<ComponentStats> components,
+                                  ObjectProvider<DataSource> dataSource) {
+        this.components = components;
+        this.dataSource = dataSource;
+    }
+
+    public Map<String, ComponentStats> getComponents() {
+        Map<String, ComponentStats> current = byName;
+        if (current == null) {
+            synchronized (this) {
+                current = byName;
+                if (current == null) {
+                    current = collect();
+                    byName = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public ComponentStats find(String name) {
+        return getComponents().get(name);
+    }
+
+    private Map<String, ComponentStats> collect() {
+        Map<String, ComponentStats> collected = new LinkedHashMap<>();
+        components.orderedStream().forEach(stats -> collected.putIfAbsent(stats.statsName(), stats));
+        DataSource current = dataSource.getIfUnique();
+        while (current != null) {
+            if (current instanceof ComponentStats stats) {
+                collected.putIfAbsent(stats.statsName(), stats);
+            }
+            current = current instanceof ReplicaRoutingDataSource routing ? routing.getPrimary() : null;
+        }
+        return Collections.unmodifiableMap(collected);
+    }
+}
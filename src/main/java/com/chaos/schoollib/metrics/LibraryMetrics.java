@@ -0,0 +1,70 @@
+package com.chaos.schoollib.metrics;
+
+import com.chaos.schoollib.common.convention.errorcode.BaseErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.BorrowErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.IErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.ReservationErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.TagErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 业务指标
+ * - library.rejections:              按错误码统计的业务拒绝次数 (code + reason 标签)
+ * - library.borrow.stock.rejections: 按图书统计的 "库存不足" 次数, 用于定位被抢借的热门书
+ */
+@Component
+public class LibraryMetrics {
+
+    private static final Map<String, String> ERROR_CODE_NAMES = new HashMap<>();
+
+    static {
+        Stream.of(BaseErrorCode.values(), BookErrorCode.values(), BorrowErrorCode.values(),
+                        ReservationErrorCode.values(), TagErrorCode.values())
+                .flatMap(Stream::of)
+                .forEach(errorCode -> ERROR_CODE_NAMES.put(errorCode.code(), ((Enum<?>) errorCode).name()));
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> stockRejectionCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LibraryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 记录一次业务拒绝 (ClientException / ServiceException)
+     */
+    public void rejected(String errorCode) {
+        rejectionCounters.computeIfAbsent(errorCode, code -> Counter.builder("library.rejections")
+                .description("按错误码统计的业务拒绝次数")
+                .tag("code", code)
+                .tag("reason", ERROR_CODE_NAMES.getOrDefault(code, "UNKNOWN"))
+                .register(registry)).increment();
+    }
+
+    public void rejected(IErrorCode errorCode) {
+        rejected(errorCode.code());
+    }
+
+    /**
+     * 记录一次借书 "库存不足" (闸门拒绝或数据库减库存失败)
+     * 标签基数 = 被借空过的图书数量, 以馆藏规模为上限
+     */
+    public void stockRejected(Integer bookId) {
+        stockRejectionCounters.computeIfAbsent(bookId, id -> Counter.builder("library.borrow.stock.rejections")
+                .description("按图书统计的库存不足次数")
+                .tag("book", String.valueOf(id))
+                .register(registry)).increment();
+    }
+}
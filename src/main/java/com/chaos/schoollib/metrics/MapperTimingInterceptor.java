@@ -0,0 +1,87 @@
+package com.chaos.schoollib.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis 语句耗时拦截器
+ * 每个 Mapper 方法记录到 mybatis.statement 计时器, 标签:
+ * - statement: Mapper 简单类名 + 方法名, 例如 BookMapper.decreaseStock
+ * - command:   select / insert / update / delete
+ * - outcome:   success / error
+ * (游标查询只统计打开游标的耗时, 不含遍历)
+ * 同时把每条语句交给 SlowQueryLog, 由其决定是否异步写入慢查询日志
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class MapperTimingInterceptor implements Interceptor {
+
+    private final MeterRegistry registry;
+    private final SlowQueryLog slowQueryLog;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MapperTimingInterceptor(MeterRegistry registry, SlowQueryLog slowQueryLog) {
+        this.registry = registry;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        long start = System.nanoTime();
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            long duration = System.nanoTime() - start;
+            timer(statement, error == null ? "success" : "error").record(duration, TimeUnit.NANOSECONDS);
+            slowQueryLog.record(statement, parameter, result, duration, error);
+        }
+    }
+
+    private Timer timer(MappedStatement statement, String outcome) {
+        return timers.computeIfAbsent(statement.getId() + '#' + outcome, key -> Timer.builder("mybatis.statement")
+                .description("MyBatis 语句执行耗时")
+                .tag("statement", shortId(statement.getId()))
+                .tag("command", statement.getSqlCommandType().name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    /**
+     * com.chaos.schoollib.mapper.BookMapper.decreaseStock -> BookMapper.decreaseStock
+     */
+    private static String shortId(String id) {
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return id.substring(type + 1);
+    }
+}
@@ -0,0 +1,182 @@
+package com.chaos.schoollib.metrics;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.TemporalAccessor;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步慢查询日志 (替代 MyBatis StdOutImpl)
+ * - 只记录耗时超过 threshold-ms 的语句 (WARN), 以及其余语句中按 sample-rate 抽样的部分 (INFO)
+ * - 请求线程只把条目放入有界队列, 队列满时直接丢弃并计数, 不阻塞请求;
+ *   由后台线程 slow-query-log 写日志
+ * - 参数只记录摘要: 简单类型取值 (字符串截断), 集合记录大小, 其他对象只记录类型 (避免密码等字段进入日志)
+ */
+@Component
+public class SlowQueryLog implements ComponentStats {
+
+    private static final Logger log = LoggerFactory.getLogger("com.chaos.schoollib.sql.slow");
+    private static final int MAX_VALUE_LENGTH = 32;
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final BlockingQueue<Entry> buffer;
+    private final Thread writer;
+
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public SlowQueryLog(@Value("${library.query-log.enabled:true}") boolean enabled,
+                        @Value("${library.query-log.threshold-ms:200}") long thresholdMs,
+                        @Value("${library.query-log.sample-rate:0.001}") double sampleRate,
+                        @Value("${library.query-log.buffer-size:4096}") int bufferSize) {
+        this.enabled = enabled;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(bufferSize, 1));
+        this.writer = new Thread(this::drain, "slow-query-log");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            this.writer.start();
+        }
+    }
+
+    /**
+     * 由 MapperTimingInterceptor 在语句执行完成后调用 (请求线程)
+     */
+    public void record(MappedStatement statement, Object parameter, Object result, long durationNanos, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        boolean isSlow = durationNanos >= thresholdNanos || error != null;
+        if (!isSlow && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        Entry entry = new Entry(statement.getId(), summarize(parameter), rows(result), durationNanos, isSlow,
+                error == null ? null : error.getClass().getSimpleName());
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+            return;
+        }
+        (isSlow ? slow : sampled).increment();
+    }
+
+    @Override
+    public String statsName() {
+        return "query-log";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("slow", "sampled", "dropped");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        stats.put("sampleRate", sampleRate);
+        stats.put("slow", slow.sum());
+        stats.put("sampled", sampled.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("pending", buffer.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.interrupt();
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                write(buffer.take());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                // 日志写入失败不能让后台线程退出
+                log.debug("failed to write query log entry", ex);
+            }
+        }
+    }
+
+    private static void write(Entry entry) {
+        double millis = entry.durationNanos() / 1_000_000.0;
+        if (entry.slow()) {
+            log.warn("slow query {} took {} ms, rows={}, params={}{}", entry.statementId(),
+                    String.format("%.2f", millis), entry.rows(), entry.parameters(),
+                    entry.error() == null ? "" : ", error=" + entry.error());
+        } else {
+            log.info("sampled query {} took {} ms, rows={}, params={}", entry.statementId(),
+                    String.format("%.2f", millis), entry.rows(), entry.parameters());
+        }
+    }
+
+    /**
+     * 查询返回行数, 更新返回影响行数, 游标未知 (-1)
+     */
+    private static int rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Integer affected) {
+            return affected;
+        }
+        return -1;
+    }
+
+    private static String summarize(Object parameter) {
+        if (parameter instanceof Map<?, ?> params) {
+            StringBuilder summary = new StringBuilder("{");
+            params.forEach((name, value) -> {
+                // MyBatis 会为每个 @Param 额外生成 param1, param2... 别名, 跳过重复项
+                if (name instanceof String key && !key.startsWith("param")) {
+                    if (summary.length() > 1) {
+                        summary.append(", ");
+                    }
+                    summary.append(key).append('=').append(summarizeValue(value));
+                }
+            });
+            return summary.append('}').toString();
+        }
+        return summarizeValue(parameter);
+    }
+
+    private static String summarizeValue(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence text) {
+            return text.length() <= MAX_VALUE_LENGTH ? text.toString() : text.subSequence(0, MAX_VALUE_LENGTH) + "...";
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>
+                || value instanceof TemporalAccessor) {
+            return value.toString();
+        }
+        if (value instanceof Collection<?> collection) {
+            return value.getClass().getSimpleName() + "[size=" + collection.size() + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private record Entry(String statementId, String parameters, int rows, long durationNanos,
+                         boolean slow, String error) {
+    }
+}
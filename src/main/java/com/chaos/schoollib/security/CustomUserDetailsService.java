@@ -2,24 +2,44 @@ package com.chaos.schoollib.security;
 
 import com.chaos.schoollib.entity.User;
 import com.chaos.schoollib.mapper.UserMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 /**
  * 实现 Spring Security 的 UserDetailsService
  * 职责：根据用户名从数据库加载用户信息 (User)
+ * - loadUserByUsername 始终查库 (登录校验密码时使用)
+ * - getCachedUser / loadAndCacheUser 走有界 TTL 缓存 (JWT 过滤器构建 principal 时使用)
+ * - updatePassword: 登录成功且密码哈希需要升级 (BCrypt cost 变化) 时由 Spring Security 回调
  */
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserMapper userMapper;
 
+    /**
+     * 用户名 -> 用户信息 (已去除密码), 按容量和写入时间淘汰
+     */
+    private final Cache<String, User> userCache;
+
     @Autowired
-    public CustomUserDetailsService(UserMapper userMapper) {
+    public CustomUserDetailsService(UserMapper userMapper,
+                                    @Value("${jwt.user-cache.max-size:10000}") long maxSize,
+                                    @Value("${jwt.user-cache.ttl-seconds:300}") long ttlSeconds) {
         this.userMapper = userMapper;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
     }
 
     @Override
@@ -33,4 +53,50 @@ public class CustomUserDetailsService implements UserDetailsService {
         // 返回的 User 对象（实现的 UserDetails）
         return user;
     }
-}
\ No newline at end of file
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userMapper.updatePassword(user.getUsername(), newPassword);
+        evictUser(user.getUsername());
+        if (user instanceof User entity) {
+            entity.setPassword(newPassword);
+            return entity;
+        }
+        return loadUserByUsername(user.getUsername());
+    }
+
+    /**
+     * 从缓存中获取用户, 未命中返回 null
+     */
+    public User getCachedUser(String username) {
+        return userCache.getIfPresent(username);
+    }
+
+    /**
+     * 查库加载用户并放入缓存
+     * (在调用线程查库, 不在缓存内部加锁加载)
+     * @return 不含密码的用户信息
+     */
+    public User loadAndCacheUser(String username) {
+        User user = copyWithoutPassword((User) loadUserByUsername(username));
+        userCache.put(username, user);
+        return user;
+    }
+
+    /**
+     * 用户信息 (角色、密码等) 变更后调用, 使缓存失效
+     */
+    public void evictUser(String username) {
+        userCache.invalidate(username);
+    }
+
+    private static User copyWithoutPassword(User source) {
+        User user = new User();
+        user.setUserID(source.getUserID());
+        user.setUsername(source.getUsername());
+        user.setRole(source.getRole());
+        user.setContact(source.getContact());
+        user.setRegistrationDate(source.getRegistrationDate());
+        return user;
+    }
+}
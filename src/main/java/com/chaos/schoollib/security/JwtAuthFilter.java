@@ -1,10 +1,13 @@
 package com.chaos.schoollib.security;
 
+import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.metrics.ComponentStats;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,13 +17,28 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * JWT 认证过滤器
  * 职责：拦截所有请求，检查 Header 中是否有有效的 JWT
+ *
+ * principal 的来源由 jwt.principal-source 决定:
+ * - claims:   直接由已验签的 uid / sub / roles 构建, 不查库 (角色变更需等 Token 过期才生效)
+ * - cache:    走 CustomUserDetailsService 的有界 TTL 缓存, 未命中才查库 (默认)
+ * - database: 每次请求都查库 (原有行为)
  */
 @Component
-public class JwtAuthFilter extends OncePerRequestFilter {
+public class JwtAuthFilter extends OncePerRequestFilter implements ComponentStats {
+
+    public enum PrincipalSource {
+        CLAIMS, CACHE, DATABASE
+    }
+
+    private static final String ROLE_PREFIX = "ROLE_";
 
     @Autowired
     private JwtTokenProvider tokenProvider;
@@ -28,6 +46,14 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    @Value("${jwt.principal-source:cache}")
+    private PrincipalSource principalSource;
+
+    // 统计: 有多少请求没有查库
+    private final LongAdder claimsResolved = new LongAdder();
+    private final LongAdder cacheResolved = new LongAdder();
+    private final LongAdder databaseLoads = new LongAdder();
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -36,31 +62,95 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            // 1. 检查 token 是否有效
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                // 2. 从 token 中获取用户名
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            // 1. 解析并验证 token (只验签一次)
+            VerifiedToken token = StringUtils.hasText(jwt) ? tokenProvider.verifyToken(jwt) : null;
+            if (token != null) {
+                // 2. 构建用户信息
+                UserDetails userDetails = resolvePrincipal(token);
 
-                // 3. 加载用户信息
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-
-                // 4. 创建认证信息
+                // 3. 创建认证信息
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
 
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                // 5. 将认证信息设置到 Spring Security 上下文中
+                // 4. 将认证信息设置到 Spring Security 上下文中
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception ex) {
             // (日志)
         }
 
-        // 6. 放行请求
+        // 5. 放行请求
         filterChain.doFilter(request, response);
     }
 
+    @Override
+    public String statsName() {
+        return "auth";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.auth.principal";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("claims", "cache", "database");
+    }
+
+    /**
+     * 各来源构建 principal 的次数
+     */
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("claims", claimsResolved.sum());
+        stats.put("cache", cacheResolved.sum());
+        stats.put("database", databaseLoads.sum());
+        return stats;
+    }
+
+    private UserDetails resolvePrincipal(VerifiedToken token) {
+        String username = token.username();
+
+        if (principalSource == PrincipalSource.DATABASE) {
+            databaseLoads.increment();
+            return customUserDetailsService.loadUserByUsername(username);
+        }
+
+        // 旧 Token 中没有 uid, 退回到缓存方式
+        if (principalSource == PrincipalSource.CLAIMS && token.userId() != null) {
+            claimsResolved.increment();
+            return userFromClaims(token);
+        }
+
+        User cached = customUserDetailsService.getCachedUser(username);
+        if (cached != null) {
+            cacheResolved.increment();
+            return cached;
+        }
+        databaseLoads.increment();
+        return customUserDetailsService.loadAndCacheUser(username);
+    }
+
+    /**
+     * 由 claims 构建 User, roles 形如 "ROLE_STUDENT"
+     */
+    private static User userFromClaims(VerifiedToken token) {
+        User user = new User();
+        user.setUserID(token.userId());
+        user.setUsername(token.username());
+        String roles = token.roles();
+        String role = StringUtils.hasText(roles) ? roles.split(",")[0] : "";
+        if (role.startsWith(ROLE_PREFIX)) {
+            role = role.substring(ROLE_PREFIX.length());
+        }
+        user.setRole(role.toLowerCase());
+        return user;
+    }
+
     /**
      * 从请求头中提取 "Bearer Token"
      */
@@ -71,4 +161,4 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+}
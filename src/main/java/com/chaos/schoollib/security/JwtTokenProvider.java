@@ -1,7 +1,13 @@
 package com.chaos.schoollib.security;
 
 import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.metrics.ComponentStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -11,24 +17,48 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  *
  * JWT Token 的生成和验证
+ * - 共享一个不可变、线程安全的 JwtParser
+ * - verifyToken 一次解析 + 验签, 返回全部所需信息
+ * - 可选的已验签 Token 缓存: 以 Token 的 SHA-256 摘要为 key, 最晚在 Token 的 exp 时过期,
+ *   热点客户端重复携带同一 Token 时不再做 HMAC 计算和 JSON 解析
  *
  */
 @Component
-public class JwtTokenProvider {
+public class JwtTokenProvider implements ComponentStats {
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
 
     private final long jwtExpiration;
     // 使用 SecretKey 对象
     private final SecretKey key;
 
+    private final JwtParser parser;
+
+    /**
+     * Token 摘要 -> 验签结果, 未开启缓存时为 null
+     */
+    private final Cache<String, VerifiedToken> verifiedCache;
+
     public JwtTokenProvider(
             @Value("${jwt.secret}") String jwtSecret,
-            @Value("${jwt.expiration-ms}") long jwtExpiration
+            @Value("${jwt.expiration-ms}") long jwtExpiration,
+            @Value("${jwt.verified-cache.enabled:true}") boolean cacheEnabled,
+            @Value("${jwt.verified-cache.max-size:10000}") long cacheMaxSize
     ) {
         this.jwtExpiration = jwtExpiration;
 
@@ -36,6 +66,17 @@ public class JwtTokenProvider {
         byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
         // 使用 Keys 工具从 byte[] 生成 SecretKey
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+
+        this.verifiedCache = cacheEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfter(new ExpireAtTokenExp())
+                        .recordStats()
+                        .build()
+                : null;
     }
 
     /**
@@ -52,7 +93,8 @@ public class JwtTokenProvider {
 
         return Jwts.builder()
                 .setSubject(user.getUsername())
-                .claim("roles", roles)
+                .claim(CLAIM_USER_ID, user.getUserID())
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 // signWith 只需要 SecretKey，它已包含算法
@@ -60,33 +102,121 @@ public class JwtTokenProvider {
                 .compact();
     }
 
+    /**
+     * 解析并验证 Token (只验签一次)
+     * @return 验签通过的 Token 信息, 无效或已过期时返回 null
+     */
+    public VerifiedToken verifyToken(String token) {
+        if (verifiedCache == null) {
+            return parse(token);
+        }
+
+        String digest = digest(token);
+        VerifiedToken cached = verifiedCache.getIfPresent(digest);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        // 无效 Token 不缓存
+        VerifiedToken verified = parse(token);
+        if (verified != null) {
+            verifiedCache.put(digest, verified);
+        }
+        return verified;
+    }
+
     /**
      * 从 Token 中获取用户名
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+        VerifiedToken verified = verifyToken(token);
+        return verified == null ? null : verified.username();
     }
 
     /**
      * 验证 Token 是否有效
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
+        return verifyToken(token) != null;
+    }
+
+    @Override
+    public String statsName() {
+        return "jwt";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.jwt.verified.cache";
+    }
 
-            return true;
+    @Override
+    public Set<String> counters() {
+        return Set.of("hits", "misses", "evictions");
+    }
+
+    /**
+     * 已验签 Token 缓存的统计信息
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", verifiedCache != null);
+        if (verifiedCache != null) {
+            CacheStats cacheStats = verifiedCache.stats();
+            stats.put("size", verifiedCache.estimatedSize());
+            stats.put("hits", cacheStats.hitCount());
+            stats.put("misses", cacheStats.missCount());
+            stats.put("evictions", cacheStats.evictionCount());
+        }
+        return stats;
+    }
+
+    private VerifiedToken parse(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get(CLAIM_USER_ID, Integer.class),
+                    claims.get(CLAIM_ROLES, String.class),
+                    expiration == null ? Long.MAX_VALUE : expiration.getTime());
         } catch (Exception ex) {
             // (日志) ：
             // logger.error("Invalid JWT token: {}", ex.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 JRE 都必须支持 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存条目在 Token 的 exp 时刻过期
+     */
+    private static final class ExpireAtTokenExp implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMs = value.expiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
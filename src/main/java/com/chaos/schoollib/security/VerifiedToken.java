@@ -0,0 +1,12 @@
+package com.chaos.schoollib.security;
+
+/**
+ * 已验签的 Token 信息 (不可变, 可在线程间共享和缓存)
+ *
+ * @param username  subject
+ * @param userId    uid claim (旧 Token 中可能为 null)
+ * @param roles     roles claim, 形如 "ROLE_STUDENT"
+ * @param expiresAt 过期时间 (epoch 毫秒)
+ */
+public record VerifiedToken(String username, Integer userId, String roles, long expiresAt) {
+}
@@ -1,8 +1,13 @@
 package com.chaos.schoollib.service;
 
 import com.chaos.schoollib.dto.BookDTO;
+import com.chaos.schoollib.dto.BookImportReportDTO;
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.dto.BookSearchHitDTO;
+import com.chaos.schoollib.dto.CursorPageDTO;
 import com.chaos.schoollib.entity.Book;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -39,8 +44,40 @@ public interface BookService {
     Book getBookById(Integer bookId);
 
     /**
-     * 获取所有图书
+     * 获取所有图书 (不分页, 仅在显式传入 unpaged=true 时使用)
      * @return 图书实体列表
      */
     List<Book> getAllBooks();
-}
\ No newline at end of file
+
+    /**
+     * 实际使用的每页条数
+     * @param size 请求的条数, 可为 null
+     * @return 默认 20, 限制在 1 ~ 100 之间
+     */
+    int pageSize(Integer size);
+
+    /**
+     * 游标分页查询图书
+     * @param query 游标与过滤条件
+     * @return 一页图书及下一页游标
+     */
+    CursorPageDTO<Book> pageBooks(BookQueryDTO query);
+
+    /**
+     * 全文检索图书 (书名 / 作者 / 出版社 / ISBN / 分类)
+     * @param keyword 关键词
+     * @param size    最多返回的条数 (默认 20, 最大 100)
+     * @return 按相关度从高到低排列的图书
+     */
+    List<BookSearchHitDTO> searchBooks(String keyword, Integer size);
+
+    /**
+     * 批量导入图书 (流式读取, 分块写入)
+     * - 按 ISBN 合并: 已存在的图书累加 Total 和 Stock, 不存在的新建
+     * - 校验失败或写入失败的行记入报告, 不中断导入
+     * @param in     CSV (带表头) 或 NDJSON
+     * @param format csv (默认) 或 ndjson
+     * @return 导入结果及逐行错误
+     */
+    BookImportReportDTO importBooks(InputStream in, String format);
+}
@@ -1,6 +1,13 @@
 package com.chaos.schoollib.service;
 
+import com.chaos.schoollib.dto.MultiBorrowRequestDTO;
+import com.chaos.schoollib.dto.MultiResultDTO;
+import com.chaos.schoollib.dto.MultiReturnRequestDTO;
+import com.chaos.schoollib.dto.RecordExportQueryDTO;
 import com.chaos.schoollib.entity.BorrowRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -24,6 +31,22 @@ public interface BorrowService {
      */
     BorrowRecord returnBook(Integer userId, Integer recordId);
 
+    /**
+     * 一次借多本书 (一个事务, 每本单独给出结果)
+     * @param userId 借书的用户 ID (来自 JWT)
+     * @param request 图书 ID 列表与模式 (all-or-nothing / best-effort)
+     * @return 每本的结果, 顺序与请求一致
+     */
+    MultiResultDTO borrowBooks(Integer userId, MultiBorrowRequestDTO request);
+
+    /**
+     * 一次还多本书 (一个事务, 每条记录单独给出结果)
+     * @param userId 还书的用户 ID (来自 JWT, 用于验证)
+     * @param request 借阅记录 ID 列表与模式 (all-or-nothing / best-effort)
+     * @return 每条记录的结果, 顺序与请求一致
+     */
+    MultiResultDTO returnBooks(Integer userId, MultiReturnRequestDTO request);
+
     /**
      * 获取当前登录用户的借阅记录
      * @param userId 用户 ID (来自 JWT)
@@ -36,4 +59,12 @@ public interface BorrowService {
      * @return 记录列表
      */
     List<BorrowRecord> getAllRecords();
+
+    /**
+     * 流式导出借阅记录 (管理员), 内存占用与记录总数无关
+     * @param query 过滤条件与导出格式
+     * @param out 输出流 (通常为 HTTP 响应)
+     * @return 导出的记录数
+     */
+    long exportRecords(RecordExportQueryDTO query, OutputStream out) throws IOException;
 }
@@ -0,0 +1,16 @@
+package com.chaos.schoollib.service;
+
+import com.chaos.schoollib.dto.RecommendationDTO;
+
+import java.util.List;
+
+public interface RecommendationService {
+
+    /**
+     * 根据用户最近的借阅推荐图书
+     * @param userId 用户ID
+     * @param size   最多返回的条数, 为 null 时默认 10
+     * @return 推荐的图书 (不含用户借过的)
+     */
+    List<RecommendationDTO> recommend(Integer userId, Integer size);
+}
@@ -0,0 +1,29 @@
+package com.chaos.schoollib.service;
+
+import com.chaos.schoollib.entity.Reservation;
+
+import java.util.List;
+
+public interface ReservationService {
+
+    /**
+     * 预约一本已借完的图书 (排到队尾)
+     * @param userId 用户ID
+     * @param bookId 图书ID
+     * @return 新建的预约
+     */
+    Reservation reserve(Integer userId, Integer bookId);
+
+    /**
+     * 取消预约; 取消保留中的预约时这本书交给下一位
+     * @param userId        用户ID (只能取消自己的预约)
+     * @param reservationId 预约ID
+     * @return 取消后的预约
+     */
+    Reservation cancel(Integer userId, Integer reservationId);
+
+    /**
+     * 我的预约 (按预约时间倒序)
+     */
+    List<Reservation> getMyReservations(Integer userId);
+}
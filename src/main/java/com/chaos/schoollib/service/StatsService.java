@@ -0,0 +1,16 @@
+package com.chaos.schoollib.service;
+
+import com.chaos.schoollib.dto.LeaderboardDTO;
+
+import java.util.List;
+
+public interface StatsService {
+
+    /**
+     * 借阅排行榜 (全部 / 近 30 天 / 近 7 天)
+     * @param bookLimit 图书榜条数, 为 null 时默认 10
+     * @param userLimit 用户榜条数, 为 null 时默认 5
+     * @return 三个时间窗口的排行榜
+     */
+    List<LeaderboardDTO> getLeaderboards(Integer bookLimit, Integer userLimit);
+}
@@ -0,0 +1,52 @@
+package com.chaos.schoollib.service;
+
+import com.chaos.schoollib.dto.BookFacetQueryDTO;
+import com.chaos.schoollib.dto.BookTagsDTO;
+import com.chaos.schoollib.dto.FacetPageDTO;
+import com.chaos.schoollib.dto.TagDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.Tag;
+
+import java.util.List;
+
+public interface TagService {
+
+    /**
+     * 查询全部标签
+     */
+    List<Tag> listTags();
+
+    /**
+     * 新建标签
+     * @param tagDTO 标签名称
+     * @return 新建的标签
+     */
+    Tag createTag(TagDTO tagDTO);
+
+    /**
+     * 删除标签 (同时删除所有图书上的该标签)
+     * @param tagId 标签ID
+     */
+    void deleteTag(Integer tagId);
+
+    /**
+     * 查询一本书的标签
+     * @param bookId 图书ID
+     */
+    List<Tag> getBookTags(Integer bookId);
+
+    /**
+     * 整体替换一本书的标签
+     * @param bookId      图书ID
+     * @param bookTagsDTO 新的标签ID列表 (空列表表示清空)
+     * @return 替换后的标签
+     */
+    List<Tag> setBookTags(Integer bookId, BookTagsDTO bookTagsDTO);
+
+    /**
+     * 按标签 (AND) 和库存分面浏览图书
+     * @param query 标签、库存过滤条件与游标
+     * @return 一页图书, 以及整个筛选结果的总数和各标签计数
+     */
+    FacetPageDTO<Book> browseBooks(BookFacetQueryDTO query);
+}
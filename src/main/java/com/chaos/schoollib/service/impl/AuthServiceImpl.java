@@ -9,6 +9,7 @@ import com.chaos.schoollib.mapper.UserMapper;
 import com.chaos.schoollib.security.JwtTokenProvider;
 import com.chaos.schoollib.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -45,13 +46,7 @@ public class AuthServiceImpl implements AuthService {
     @Transactional
     @Override
     public Integer register(UserRegisterDTO registerDTO) {
-        // 1. 检查用户名是否已存在
-        if (userMapper.findByUsername(registerDTO.getUsername()) != null) {
-            // (更新) 抛出 ClientException
-            throw new ClientException(BaseErrorCode.USER_NAME_EXIST_ERROR);
-        }
-
-        // 2. 创建新用户
+        // 1. 创建新用户
         User user = new User();
         user.setUsername(registerDTO.getUsername());
         user.setPassword(passwordEncoder.encode(registerDTO.getPassword()));
@@ -59,8 +54,13 @@ public class AuthServiceImpl implements AuthService {
         user.setContact(registerDTO.getContact());
         user.setRegistrationDate(LocalDateTime.now());
 
-        // 4. 保存到数据库
-        userMapper.insert(user);
+        // 2. 保存到数据库
+        // 用户名是否已存在由 Username 唯一约束判断, 不再预先查询 (并发注册时预查询也挡不住重复)
+        try {
+            userMapper.insert(user);
+        } catch (DuplicateKeyException ex) {
+            throw new ClientException(BaseErrorCode.USER_NAME_EXIST_ERROR);
+        }
         return user.getUserID();
     }
 
@@ -2,28 +2,87 @@ package com.chaos.schoollib.service.impl;
 
 import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
 import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.toolkit.TransactionHooks;
 import com.chaos.schoollib.dto.BookDTO;
+import com.chaos.schoollib.dto.BookImportErrorDTO;
+import com.chaos.schoollib.dto.BookImportReportDTO;
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.dto.BookSearchHitDTO;
+import com.chaos.schoollib.dto.CursorPageDTO;
 import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
 import com.chaos.schoollib.mapper.BookMapper;
 import com.chaos.schoollib.service.BookService;
+import com.chaos.schoollib.service.support.BookCache;
+import com.chaos.schoollib.service.support.BookImportReader;
+import com.chaos.schoollib.service.support.CatalogSearchIndex;
+import com.chaos.schoollib.service.support.StockGate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * (重构) BookService
  * - 抛出 ClientException
  */
+@Slf4j
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final BookMapper bookMapper;
+    private final StockGate stockGate;
+    private final BookCache bookCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogSearchIndex searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int importChunkSize;
+    private final int importMaxErrors;
 
     @Autowired
-    public BookServiceImpl(BookMapper bookMapper) {
+    public BookServiceImpl(BookMapper bookMapper,
+                           StockGate stockGate,
+                           BookCache bookCache,
+                           ApplicationEventPublisher eventPublisher,
+                           CatalogSearchIndex searchIndex,
+                           TransactionTemplate transactionTemplate,
+                           Validator validator,
+                           ObjectMapper objectMapper,
+                           @Value("${library.book-import.chunk-size:500}") int importChunkSize,
+                           @Value("${library.book-import.max-errors:1000}") int importMaxErrors) {
         this.bookMapper = bookMapper;
+        this.stockGate = stockGate;
+        this.bookCache = bookCache;
+        this.eventPublisher = eventPublisher;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.importChunkSize = Math.max(importChunkSize, 1);
+        this.importMaxErrors = Math.max(importMaxErrors, 0);
     }
 
     @Transactional
@@ -39,13 +98,18 @@ public class BookServiceImpl implements BookService {
         // 刚创建时, 库存 = 总数
         book.setStock(bookDTO.getTotal());
         bookMapper.insert(book);
+        eventPublisher.publishEvent(new BookChangedEvent(book.getBookID(), BookChangedEvent.Type.CREATED));
         return book;
     }
 
     @Transactional
     @Override
     public Book updateBook(Integer bookId, BookDTO bookDTO) {
-        Book existingBook = getBookById(bookId); // getBookById 内部会抛出异常
+        // 直接查库: 缓存中的对象是共享只读的, 不能在此修改
+        Book existingBook = bookMapper.findById(bookId);
+        if (existingBook == null) {
+            throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
+        }
 
         Integer stockChange = 0;
         if (bookDTO.getTotal() != null) {
@@ -66,6 +130,9 @@ public class BookServiceImpl implements BookService {
         }
 
         bookMapper.update(existingBook);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.UPDATED));
+        // 库存可能变化, 提交后让库存闸门重新初始化
+        TransactionHooks.afterCommit(() -> stockGate.invalidate(bookId));
         return existingBook;
     }
 
@@ -77,11 +144,13 @@ public class BookServiceImpl implements BookService {
             // (更新)
             throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
         }
+        eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.DELETED));
+        TransactionHooks.afterCommit(() -> stockGate.invalidate(bookId));
     }
 
     @Override
     public Book getBookById(Integer bookId) {
-        Book book = bookMapper.findById(bookId);
+        Book book = bookCache.get(bookId);
         if (book == null) {
             // (更新)
             throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
@@ -93,4 +162,215 @@ public class BookServiceImpl implements BookService {
     public List<Book> getAllBooks() {
         return bookMapper.findAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    public int pageSize(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    @Override
+    public CursorPageDTO<Book> pageBooks(BookQueryDTO query) {
+        int size = pageSize(query.getSize());
+
+        // 多取一条, 用于判断是否还有下一页
+        List<Book> books = bookMapper.findPage(query, size + 1);
+        boolean hasMore = books.size() > size;
+        if (hasMore) {
+            books = books.subList(0, size);
+        }
+        Integer nextCursor = hasMore ? books.get(books.size() - 1).getBookID() : null;
+        return new CursorPageDTO<>(books, nextCursor, hasMore);
+    }
+
+    @Override
+    public List<BookSearchHitDTO> searchBooks(String keyword, Integer size) {
+        if (keyword == null || keyword.isBlank()) {
+            throw new ClientException(BookErrorCode.BOOK_SEARCH_KEYWORD_EMPTY);
+        }
+        int limit = pageSize(size);
+
+        // 索引只给出 BookID 和得分, 图书详情 (含实时库存) 从缓存批量回表
+        List<CatalogSearchIndex.Hit> hits = searchIndex.search(keyword, limit);
+        Map<Integer, Book> books = bookCache.getAll(hits.stream().map(CatalogSearchIndex.Hit::bookId).toList());
+        List<BookSearchHitDTO> result = new ArrayList<>(hits.size());
+        for (CatalogSearchIndex.Hit hit : hits) {
+            Book book = books.get(hit.bookId());
+            if (book != null) {
+                result.add(new BookSearchHitDTO(book, hit.score()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 边读边校验, 每攒够 chunk-size 行写一次; 每块一个短事务, 不会长时间持有锁
+     */
+    @Override
+    public BookImportReportDTO importBooks(InputStream in, String format) {
+        boolean ndjson;
+        if (format == null || "csv".equalsIgnoreCase(format)) {
+            ndjson = false;
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            ndjson = true;
+        } else {
+            throw new ClientException(BookErrorCode.BOOK_IMPORT_FORMAT_UNSUPPORTED);
+        }
+
+        BookImportReportDTO report = new BookImportReportDTO();
+        List<ImportRow> chunk = new ArrayList<>(importChunkSize);
+        try {
+            BookImportReader.read(in, ndjson, objectMapper, row -> {
+                report.setRows(row.row());
+                if (row.book() == null) {
+                    reportError(report, row.row(), null, row.error());
+                    return;
+                }
+                Set<ConstraintViolation<BookDTO>> violations = validator.validate(row.book());
+                if (!violations.isEmpty()) {
+                    reportError(report, row.row(), row.book().getIsbn(), violations.stream()
+                            .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; ")));
+                    return;
+                }
+                chunk.add(new ImportRow(row.row(), row.book()));
+                if (chunk.size() == importChunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            });
+        } catch (IOException ex) {
+            // 已经写入的块不回滚, 报告中注明读取在哪里中断
+            reportError(report, report.getRows() + 1, null, "读取中断: " + ex.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report);
+        }
+        log.info("book import: {} rows, {} created, {} merged, {} failed",
+                report.getRows(), report.getCreated(), report.getMerged(), report.getFailed());
+        return report;
+    }
+
+    private record ImportRow(long row, BookDTO book) {
+    }
+
+    /**
+     * 一块在一个事务中写入; 整块失败 (例如某一行超出列长度) 时逐行重试, 只把出错的行记入报告
+     */
+    private void writeChunk(List<ImportRow> rows, BookImportReportDTO report) {
+        try {
+            int[] result = transactionTemplate.execute(status -> upsertChunk(rows));
+            report.setImported(report.getImported() + rows.size());
+            report.setCreated(report.getCreated() + result[0]);
+            report.setMerged(report.getMerged() + result[1]);
+        } catch (RuntimeException ex) {
+            if (rows.size() == 1) {
+                ImportRow row = rows.get(0);
+                reportError(report, row.row(), row.book().getIsbn(), "写入失败: " + briefMessage(ex));
+                return;
+            }
+            for (ImportRow row : rows) {
+                writeChunk(List.of(row), report);
+            }
+        }
+    }
+
+    /**
+     * 写入一块 (在事务中调用)
+     * 1. 块内按 ISBN 合并  2. 一条多行 upsert 写入有 ISBN 的图书  3. 一条多行 insert 写入没有 ISBN 的图书
+     * 4. 整块发布一个 BooksImportedEvent
+     * @return {新建的图书数, 合并的行数}
+     */
+    private int[] upsertChunk(List<ImportRow> rows) {
+        Map<String, Book> byIsbn = new LinkedHashMap<>();
+        Map<String, Integer> rowsByIsbn = new HashMap<>();
+        List<Book> withoutIsbn = new ArrayList<>();
+        for (ImportRow row : rows) {
+            Book book = toImportedBook(row.book());
+            if (book.getIsbn() == null) {
+                withoutIsbn.add(book);
+                continue;
+            }
+            rowsByIsbn.merge(book.getIsbn(), 1, Integer::sum);
+            byIsbn.merge(book.getIsbn(), book, (first, next) -> {
+                first.setTotal(first.getTotal() + next.getTotal());
+                first.setStock(first.getStock() + next.getStock());
+                return first;
+            });
+        }
+
+        int created = withoutIsbn.size();
+        int merged = 0;
+        List<Integer> createdIds = new ArrayList<>();
+        List<Integer> mergedIds = new ArrayList<>();
+        if (!byIsbn.isEmpty()) {
+            Map<String, Integer> existing = isbnToId(bookMapper.findIdsByIsbns(byIsbn.keySet()));
+            bookMapper.upsertByIsbn(new ArrayList<>(byIsbn.values()));
+
+            List<String> fresh = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : rowsByIsbn.entrySet()) {
+                if (existing.containsKey(entry.getKey())) {
+                    merged += entry.getValue();
+                } else {
+                    fresh.add(entry.getKey());
+                    created++;
+                    merged += entry.getValue() - 1;
+                }
+            }
+            mergedIds.addAll(existing.values());
+            if (!fresh.isEmpty()) {
+                createdIds.addAll(isbnToId(bookMapper.findIdsByIsbns(fresh)).values());
+            }
+            // 合并的图书库存变化, 提交后让库存闸门重新初始化
+            TransactionHooks.afterCommit(() -> existing.values().forEach(stockGate::invalidate));
+        }
+        if (!withoutIsbn.isEmpty()) {
+            bookMapper.insertAll(withoutIsbn);
+            for (Book book : withoutIsbn) {
+                createdIds.add(book.getBookID());
+            }
+        }
+        eventPublisher.publishEvent(new BooksImportedEvent(createdIds, mergedIds));
+        return new int[]{created, merged};
+    }
+
+    private static Book toImportedBook(BookDTO bookDTO) {
+        Book book = new Book();
+        book.setTitle(bookDTO.getTitle());
+        book.setAuthor(bookDTO.getAuthor());
+        book.setPublisher(bookDTO.getPublisher());
+        String isbn = bookDTO.getIsbn() == null ? null : bookDTO.getIsbn().strip();
+        book.setIsbn(isbn == null || isbn.isEmpty() ? null : isbn);
+        book.setCategory(bookDTO.getCategory());
+        book.setTotal(bookDTO.getTotal());
+        // 与 createBook 相同: 新到的册数全部可借
+        book.setStock(bookDTO.getTotal());
+        return book;
+    }
+
+    private static Map<String, Integer> isbnToId(List<Book> books) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Book book : books) {
+            ids.put(book.getIsbn(), book.getBookID());
+        }
+        return ids;
+    }
+
+    /**
+     * 数据库异常的根因, 去掉附带的 SQL 语句
+     */
+    private static String briefMessage(RuntimeException ex) {
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+        int sql = message.indexOf("; SQL statement");
+        message = sql >= 0 ? message.substring(0, sql) : message;
+        int newline = message.indexOf('\n');
+        return newline >= 0 ? message.substring(0, newline) : message;
+    }
+
+    private void reportError(BookImportReportDTO report, long row, String isbn, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < importMaxErrors) {
+            report.getErrors().add(new BookImportErrorDTO(row, isbn, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -1,17 +1,55 @@
 package com.chaos.schoollib.service.impl;
 
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
 import com.chaos.schoollib.common.convention.errorcode.BorrowErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.IErrorCode;
 import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.common.toolkit.TransactionHooks;
+import com.chaos.schoollib.dto.MultiBorrowRequestDTO;
+import com.chaos.schoollib.dto.MultiItemResultDTO;
+import com.chaos.schoollib.dto.MultiResultDTO;
+import com.chaos.schoollib.dto.MultiReturnRequestDTO;
+import com.chaos.schoollib.dto.RecordExportQueryDTO;
+import com.chaos.schoollib.entity.Book;
 import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BorrowedEvent;
+import com.chaos.schoollib.event.ReturnedEvent;
 import com.chaos.schoollib.mapper.BookMapper;
 import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.metrics.LibraryMetrics;
 import com.chaos.schoollib.service.BorrowService;
+import com.chaos.schoollib.service.support.BorrowBatcher;
+import com.chaos.schoollib.service.support.LoanRecords;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import com.chaos.schoollib.service.support.StockGate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * (重构) BorrowService
@@ -20,40 +58,120 @@ import java.util.List;
 @Service
 public class BorrowServiceImpl implements BorrowService {
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "RecordID,UserID,BookID,BorrowDate,DueDate,ReturnDate,Status\n";
+    private static final DateTimeFormatter CSV_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final BookMapper bookMapper;
     private final BorrowRecordMapper borrowRecordMapper;
+    private final StockGate stockGate;
+    private final BorrowBatcher borrowBatcher;
+    private final ReservationQueue reservationQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final LibraryMetrics libraryMetrics;
 
     @Autowired
-    public BorrowServiceImpl(BookMapper bookMapper, BorrowRecordMapper borrowRecordMapper) {
+    public BorrowServiceImpl(BookMapper bookMapper,
+                             BorrowRecordMapper borrowRecordMapper,
+                             StockGate stockGate,
+                             BorrowBatcher borrowBatcher,
+                             ReservationQueue reservationQueue,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper,
+                             LibraryMetrics libraryMetrics) {
         this.bookMapper = bookMapper;
         this.borrowRecordMapper = borrowRecordMapper;
+        this.stockGate = stockGate;
+        this.borrowBatcher = borrowBatcher;
+        this.reservationQueue = reservationQueue;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.libraryMetrics = libraryMetrics;
     }
 
-    @Transactional
     @Override
     public BorrowRecord borrowBook(Integer userId, Integer bookId) {
 
-        // 1. (更新) 检查是否已借阅
-        BorrowRecord activeRecord = borrowRecordMapper.findActiveRecordByUserAndBook(userId, bookId, "borrowed");
-        if (activeRecord != null) {
-            throw new ClientException(BorrowErrorCode.ALREADY_BORROWED);
+        // 预约的图书已为本人保留: 直接借走, 不占用公共库存
+        Integer heldReservation = reservationQueue.heldReservation(userId, bookId);
+        if (heldReservation != null) {
+            BorrowRecord record = transactionTemplate.execute(status -> doClaim(userId, bookId, heldReservation));
+            if (record != null) {
+                return record;
+            }
+            // 保留刚刚过期, 按普通借书处理
         }
 
-        // 2. (更新) 尝试原子化减库存
+        // 0. 库存闸门: 已借完的图书直接拒绝, 不开启事务, 不争抢 Book 行锁
+        if (!stockGate.tryAcquire(bookId)) {
+            libraryMetrics.stockRejected(bookId);
+            throw new ClientException(BorrowErrorCode.STOCK_NOT_SUFFICIENT);
+        }
+
+        try {
+            // 开启合并借书时, 同一本书的并发请求合并为一个事务
+            if (borrowBatcher.isEnabled()) {
+                return borrowBatcher.borrow(userId, bookId);
+            }
+            return transactionTemplate.execute(status -> doBorrow(userId, bookId));
+        } catch (ClientException ex) {
+            if (BorrowErrorCode.STOCK_NOT_SUFFICIENT.code().equals(ex.getErrorCode())) {
+                // 闸门与数据库不一致, 下次重新从数据库初始化
+                stockGate.invalidate(bookId);
+                libraryMetrics.stockRejected(bookId);
+            } else {
+                stockGate.release(bookId);
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            stockGate.release(bookId);
+            throw ex;
+        }
+    }
+
+    /**
+     * 借书事务 (由 borrowBook 在事务中调用)
+     */
+    private BorrowRecord doBorrow(Integer userId, Integer bookId) {
+        // 1. (更新) 尝试原子化减库存
         int affectedRows = bookMapper.decreaseStock(bookId);
         if (affectedRows == 0) {
             throw new ClientException(BorrowErrorCode.STOCK_NOT_SUFFICIENT);
         }
 
-        // 3. 减库存成功，创建借阅记录
-        BorrowRecord record = new BorrowRecord();
-        record.setUserID(userId);
-        record.setBookID(bookId);
-        record.setBorrowDate(LocalDateTime.now());
-        record.setDueDate(LocalDateTime.now().plusDays(30)); // 默认 30 天
-        record.setStatus("borrowed");
+        // 2. 减库存成功，创建借阅记录
+        // "同一用户对同一本书只有一条未还记录" 由唯一索引 uk_record_active_loan 保证,
+        // 重复借阅时插入失败, 整个事务 (包括减库存) 回滚
+        BorrowRecord record = LoanRecords.newLoan(userId, bookId, LocalDateTime.now());
+        try {
+            borrowRecordMapper.insert(record);
+        } catch (DuplicateKeyException ex) {
+            throw new ClientException(BorrowErrorCode.ALREADY_BORROWED);
+        }
+        eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.STOCK_CHANGED));
+        eventPublisher.publishEvent(new BorrowedEvent(record.getRecordID(), userId, bookId, record.getBorrowDate()));
+        return record;
+    }
 
-        borrowRecordMapper.insert(record);
+    /**
+     * 借走保留的图书 (由 borrowBook 在事务中调用): 保留时已经从归还的图书中扣除, 不再减库存
+     * @return null 表示保留已过期或已取消
+     */
+    private BorrowRecord doClaim(Integer userId, Integer bookId, Integer reservationId) {
+        if (!reservationQueue.fulfil(reservationId, userId, bookId)) {
+            return null;
+        }
+        BorrowRecord record = LoanRecords.newLoan(userId, bookId, LocalDateTime.now());
+        try {
+            borrowRecordMapper.insert(record);
+        } catch (DuplicateKeyException ex) {
+            throw new ClientException(BorrowErrorCode.ALREADY_BORROWED);
+        }
+        eventPublisher.publishEvent(new BorrowedEvent(record.getRecordID(), userId, bookId, record.getBorrowDate()));
         return record;
     }
 
@@ -71,21 +189,229 @@ public class BorrowServiceImpl implements BorrowService {
             throw new ClientException(BorrowErrorCode.NO_PERMISSION_FOR_RECORD);
         }
 
-        // 3. (更新) 验证：确保是"已借出"状态
-        if (!record.getStatus().equals("borrowed")) {
+        // 3. (更新) 验证：确保是"已借出"或"逾期"状态
+        if (!record.getStatus().equals("borrowed") && !record.getStatus().equals("overdue")) {
             throw new ClientException(BorrowErrorCode.INVALID_RETURN);
         }
 
-        // 4. 更新记录状态
+        // 4. 按状态条件更新: 上面的读取没有加锁, 并发的重复还书只有一个能更新成功, 只有它放回库存
+        LocalDateTime now = LocalDateTime.now();
+        if (borrowRecordMapper.markReturned(List.of(recordId), now) != 1) {
+            throw new ClientException(BorrowErrorCode.INVALID_RETURN);
+        }
         record.setStatus("returned");
-        record.setReturnDate(LocalDateTime.now());
-        borrowRecordMapper.update(record);
+        record.setReturnDate(now);
+        eventPublisher.publishEvent(new ReturnedEvent(recordId, userId, record.getBookID(), record.getDueDate()));
 
-        // 5. 原子化加库存
-        bookMapper.increaseStock(record.getBookID());
+        // 5. 有人预约时直接为队首保留, 否则原子化加库存
+        reservationQueue.handOffOrRestock(record.getBookID());
         return record;
     }
 
+    /**
+     * 一次借多本 (一个事务)
+     * 1. 按 BookID 升序锁住所有图书行, 与其他批次 / 单本借书的加锁顺序一致, 不会死锁
+     * 2. 逐本判断: 保留给本人的预约直接借走, 其余需要库存; 图书不存在、已借未还、重复、库存不足的记为失败
+     * 3. all-or-nothing 时有任何一本失败则回滚, 否则一条多行 UPDATE 减库存, 一条多行 INSERT 创建借阅记录
+     */
+    @Override
+    public MultiResultDTO borrowBooks(Integer userId, MultiBorrowRequestDTO request) {
+        return transactionTemplate.execute(status ->
+                doBorrowBooks(status, userId, request.getBookIds(), request.isAllOrNothing()));
+    }
+
+    private MultiResultDTO doBorrowBooks(TransactionStatus status, Integer userId, List<Integer> bookIds,
+                                         boolean allOrNothing) {
+        MultiItemResultDTO[] items = new MultiItemResultDTO[bookIds.size()];
+        Map<Integer, Integer> positions = positions(bookIds, items);
+        List<Integer> sorted = new ArrayList<>(positions.keySet());
+        Collections.sort(sorted);
+
+        // 1. 加锁并读取库存, 同时查出已借未还的
+        Map<Integer, Integer> stocks = new HashMap<>();
+        for (Book book : bookMapper.lockStocksByIds(sorted)) {
+            stocks.put(book.getBookID(), book.getStock());
+        }
+        Set<Integer> borrowed = new HashSet<>(borrowRecordMapper.findActiveBookIdsByUser(userId, sorted));
+
+        // 2. 逐本判断
+        List<Integer> decrease = new ArrayList<>();
+        List<Integer> lend = new ArrayList<>();
+        for (Integer bookId : sorted) {
+            int position = positions.get(bookId);
+            Integer stock = stocks.get(bookId);
+            if (stock == null) {
+                items[position] = failure(bookId, BookErrorCode.BOOK_NOT_FOUND);
+                continue;
+            }
+            if (borrowed.contains(bookId)) {
+                items[position] = failure(bookId, BorrowErrorCode.ALREADY_BORROWED);
+                continue;
+            }
+            Integer heldReservation = reservationQueue.heldReservation(userId, bookId);
+            if (heldReservation != null && reservationQueue.fulfil(heldReservation, userId, bookId)) {
+                lend.add(bookId);
+            } else if (stock > 0) {
+                decrease.add(bookId);
+                lend.add(bookId);
+            } else {
+                libraryMetrics.stockRejected(bookId);
+                items[position] = failure(bookId, BorrowErrorCode.STOCK_NOT_SUFFICIENT);
+            }
+        }
+        if (lend.size() < bookIds.size() && allOrNothing) {
+            // 已经借走的预约随事务回滚
+            status.setRollbackOnly();
+            return result(bookIds, items, true);
+        }
+        if (lend.isEmpty()) {
+            return result(bookIds, items, allOrNothing);
+        }
+
+        // 3. 一条多行 UPDATE 减库存 (行已锁住, 库存都大于 0), 一条多行 INSERT 创建借阅记录
+        if (!decrease.isEmpty() && bookMapper.decreaseStockByIds(decrease) != decrease.size()) {
+            throw new IllegalStateException("locked stock changed during batch borrow");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<BorrowRecord> records = new ArrayList<>(lend.size());
+        for (Integer bookId : lend) {
+            records.add(LoanRecords.newLoan(userId, bookId, now));
+        }
+        try {
+            borrowRecordMapper.insertBatch(records);
+        } catch (DuplicateKeyException ex) {
+            // 并发的单本借书在检查之后插入了同一本书 (只会发生在借走预约时, 其他情况被行锁挡住)
+            throw new ClientException(BorrowErrorCode.ALREADY_BORROWED);
+        }
+        for (BorrowRecord record : records) {
+            items[positions.get(record.getBookID())] =
+                    new MultiItemResultDTO(record.getBookID(), true, Result.SUCCESS_CODE, null, record);
+        }
+
+        for (Integer bookId : decrease) {
+            eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.STOCK_CHANGED));
+        }
+        for (BorrowRecord record : records) {
+            eventPublisher.publishEvent(new BorrowedEvent(record.getRecordID(), userId, record.getBookID(),
+                    record.getBorrowDate()));
+        }
+        // 没有经过闸门扣减, 提交后让闸门重新从数据库读取
+        TransactionHooks.afterCommit(() -> decrease.forEach(stockGate::invalidate));
+        return result(bookIds, items, allOrNothing);
+    }
+
+    /**
+     * 一次还多本 (一个事务)
+     * 1. 按 RecordID 升序锁住借阅记录并逐条校验
+     * 2. all-or-nothing 时有任何一条失败则不还, 否则一条多行 UPDATE 标记归还
+     * 3. 有人预约的书交给队首, 其余一条多行 UPDATE 放回库存 (按 BookID 升序)
+     */
+    @Override
+    public MultiResultDTO returnBooks(Integer userId, MultiReturnRequestDTO request) {
+        return transactionTemplate.execute(status ->
+                doReturnBooks(userId, request.getRecordIds(), request.isAllOrNothing()));
+    }
+
+    private MultiResultDTO doReturnBooks(Integer userId, List<Integer> recordIds, boolean allOrNothing) {
+        MultiItemResultDTO[] items = new MultiItemResultDTO[recordIds.size()];
+        Map<Integer, Integer> positions = positions(recordIds, items);
+        List<Integer> sorted = new ArrayList<>(positions.keySet());
+        Collections.sort(sorted);
+
+        // 1. 加锁读取并校验
+        Map<Integer, BorrowRecord> locked = new HashMap<>();
+        for (BorrowRecord record : borrowRecordMapper.lockByIds(sorted)) {
+            locked.put(record.getRecordID(), record);
+        }
+        List<BorrowRecord> returning = new ArrayList<>();
+        for (Integer recordId : sorted) {
+            BorrowRecord record = locked.get(recordId);
+            BorrowErrorCode error = null;
+            if (record == null) {
+                error = BorrowErrorCode.RECORD_NOT_FOUND;
+            } else if (!record.getUserID().equals(userId)) {
+                error = BorrowErrorCode.NO_PERMISSION_FOR_RECORD;
+            } else if (!record.getStatus().equals("borrowed") && !record.getStatus().equals("overdue")) {
+                error = BorrowErrorCode.INVALID_RETURN;
+            }
+            if (error != null) {
+                items[positions.get(recordId)] = failure(recordId, error);
+            } else {
+                returning.add(record);
+            }
+        }
+        if (returning.size() < recordIds.size() && allOrNothing) {
+            return result(recordIds, items, true);
+        }
+        if (returning.isEmpty()) {
+            return result(recordIds, items, allOrNothing);
+        }
+
+        // 2. 标记归还 (记录已锁住, 状态不会再变)
+        LocalDateTime now = LocalDateTime.now();
+        if (borrowRecordMapper.markReturned(returning.stream().map(BorrowRecord::getRecordID).toList(), now)
+                != returning.size()) {
+            throw new IllegalStateException("locked records changed during batch return");
+        }
+
+        // 3. 同一用户每本书只有一条未还记录, 这里的 BookID 互不相同
+        returning.sort(Comparator.comparing(BorrowRecord::getBookID));
+        List<Integer> restock = new ArrayList<>();
+        for (BorrowRecord record : returning) {
+            record.setStatus("returned");
+            record.setReturnDate(now);
+            items[positions.get(record.getRecordID())] =
+                    new MultiItemResultDTO(record.getRecordID(), true, Result.SUCCESS_CODE, null, record);
+            eventPublisher.publishEvent(new ReturnedEvent(record.getRecordID(), userId, record.getBookID(),
+                    record.getDueDate()));
+            if (reservationQueue.handOff(record.getBookID()) == null) {
+                restock.add(record.getBookID());
+            }
+        }
+        reservationQueue.restock(restock);
+        return result(recordIds, items, allOrNothing);
+    }
+
+    /**
+     * 批次内去重: id -> 第一次出现的位置, 之后重复出现的直接记为失败
+     */
+    private Map<Integer, Integer> positions(List<Integer> ids, MultiItemResultDTO[] items) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (positions.putIfAbsent(ids.get(i), i) != null) {
+                items[i] = failure(ids.get(i), BorrowErrorCode.DUPLICATE_BATCH_ITEM);
+            }
+        }
+        return positions;
+    }
+
+    private MultiItemResultDTO failure(Integer id, IErrorCode error) {
+        libraryMetrics.rejected(error);
+        return new MultiItemResultDTO(id, false, error.code(), error.message(), null);
+    }
+
+    /**
+     * 汇总结果; 整批未执行时, 本身没有问题的项记为 BATCH_ABORTED
+     */
+    private static MultiResultDTO result(List<Integer> ids, MultiItemResultDTO[] items, boolean allOrNothing) {
+        MultiResultDTO result = new MultiResultDTO();
+        result.setAllOrNothing(allOrNothing);
+        for (int i = 0; i < items.length; i++) {
+            MultiItemResultDTO item = items[i];
+            if (item == null) {
+                item = new MultiItemResultDTO(ids.get(i), false, BorrowErrorCode.BATCH_ABORTED.code(),
+                        BorrowErrorCode.BATCH_ABORTED.message(), null);
+            }
+            if (item.isSuccess()) {
+                result.setSucceeded(result.getSucceeded() + 1);
+            } else {
+                result.setFailed(result.getFailed() + 1);
+            }
+            result.getItems().add(item);
+        }
+        return result;
+    }
+
     @Override
     public List<BorrowRecord> getMyRecords(Integer userId) {
         return borrowRecordMapper.findByUserId(userId);
@@ -95,4 +421,56 @@ public class BorrowServiceImpl implements BorrowService {
     public List<BorrowRecord> getAllRecords() {
         return borrowRecordMapper.findAll();
     }
+
+    // 游标需要在事务 (同一个 SqlSession) 内遍历
+    @Transactional(readOnly = true)
+    @Override
+    public long exportRecords(RecordExportQueryDTO query, OutputStream out) throws IOException {
+        LocalDateTime from = query.getFrom() == null ? null : query.getFrom().atStartOfDay();
+        LocalDateTime to = query.getTo() == null ? null : query.getTo().plusDays(1).atStartOfDay();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        long count = 0;
+        try (Cursor<BorrowRecord> cursor = borrowRecordMapper.streamByFilter(from, to, query.getStatus())) {
+            if (!query.isNdjson()) {
+                writer.write(CSV_HEADER);
+            }
+            for (BorrowRecord record : cursor) {
+                if (query.isNdjson()) {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.write('\n');
+                } else {
+                    writeCsvRow(writer, record);
+                }
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvRow(Writer writer, BorrowRecord record) throws IOException {
+        writer.write(String.valueOf(record.getRecordID()));
+        writer.write(',');
+        writer.write(String.valueOf(record.getUserID()));
+        writer.write(',');
+        writer.write(String.valueOf(record.getBookID()));
+        writer.write(',');
+        writer.write(csvValue(record.getBorrowDate()));
+        writer.write(',');
+        writer.write(csvValue(record.getDueDate()));
+        writer.write(',');
+        writer.write(csvValue(record.getReturnDate()));
+        writer.write(',');
+        writer.write(csvValue(record.getStatus()));
+        writer.write('\n');
+    }
+
+    private static String csvValue(LocalDateTime value) {
+        return value == null ? "" : CSV_DATE_FORMAT.format(value);
+    }
+
+    private static String csvValue(String value) {
+        return value == null ? "" : value;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.chaos.schoollib.service.impl;
+
+import com.chaos.schoollib.dto.RecommendationDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.service.RecommendationService;
+import com.chaos.schoollib.service.support.BookCache;
+import com.chaos.schoollib.service.support.CoBorrowRecommender;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图书推荐
+ * - 推荐列表由 CoBorrowRecommender 在内存中计算, 图书详情从缓存批量回表
+ */
+@Service
+public class RecommendationServiceImpl implements RecommendationService {
+
+    private static final int DEFAULT_SIZE = 10;
+    private static final int MAX_SIZE = 50;
+
+    private final CoBorrowRecommender recommender;
+    private final BookCache bookCache;
+
+    @Autowired
+    public RecommendationServiceImpl(CoBorrowRecommender recommender,
+                                     BookCache bookCache) {
+        this.recommender = recommender;
+        this.bookCache = bookCache;
+    }
+
+    @Override
+    public List<RecommendationDTO> recommend(Integer userId, Integer size) {
+        int limit = size == null ? DEFAULT_SIZE : Math.min(Math.max(size, 1), MAX_SIZE);
+
+        List<CoBorrowRecommender.Recommendation> recommendations = recommender.recommend(userId, limit);
+        Map<Integer, Book> books = bookCache.getAll(
+                recommendations.stream().map(CoBorrowRecommender.Recommendation::bookId).toList());
+        List<RecommendationDTO> result = new ArrayList<>(recommendations.size());
+        for (CoBorrowRecommender.Recommendation recommendation : recommendations) {
+            // 模型中可能还有已删除的图书
+            Book book = books.get(recommendation.bookId());
+            if (book != null) {
+                result.add(new RecommendationDTO(book, recommendation.score(), recommendation.source().label()));
+            }
+        }
+        return result;
+    }
+}
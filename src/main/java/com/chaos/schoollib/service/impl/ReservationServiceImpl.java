@@ -0,0 +1,111 @@
+package com.chaos.schoollib.service.impl;
+
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.BorrowErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.ReservationErrorCode;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.toolkit.TransactionHooks;
+import com.chaos.schoollib.entity.Reservation;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.mapper.ReservationMapper;
+import com.chaos.schoollib.service.ReservationService;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 图书预约
+ * - 排队顺序和交付由 ReservationQueue 维护, 这里只处理预约 / 取消
+ */
+@Service
+public class ReservationServiceImpl implements ReservationService {
+
+    private final ReservationMapper reservationMapper;
+    private final BookMapper bookMapper;
+    private final BorrowRecordMapper borrowRecordMapper;
+    private final ReservationQueue reservationQueue;
+
+    @Autowired
+    public ReservationServiceImpl(ReservationMapper reservationMapper,
+                                  BookMapper bookMapper,
+                                  BorrowRecordMapper borrowRecordMapper,
+                                  ReservationQueue reservationQueue) {
+        this.reservationMapper = reservationMapper;
+        this.bookMapper = bookMapper;
+        this.borrowRecordMapper = borrowRecordMapper;
+        this.reservationQueue = reservationQueue;
+    }
+
+    @Transactional
+    @Override
+    public Reservation reserve(Integer userId, Integer bookId) {
+        // 1. 验证：图书存在且已借完 (有库存时直接借)
+        //    在图书行锁下检查并入队: 还书的交付也先锁这一行 (ReservationQueue.handOff),
+        //    要么还书先提交、这里读到库存, 要么还书在本预约入队之后才查找排队者
+        Integer stock = bookMapper.lockStockById(bookId);
+        if (stock == null) {
+            throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
+        }
+        if (stock > 0) {
+            throw new ClientException(ReservationErrorCode.BOOK_AVAILABLE);
+        }
+
+        // 2. 验证：正在借阅这本书时不能预约
+        if (!borrowRecordMapper.findActiveUserIdsByBook(bookId, List.of(userId)).isEmpty()) {
+            throw new ClientException(BorrowErrorCode.ALREADY_BORROWED);
+        }
+
+        // 3. 排到队尾; "同一用户对同一本书只有一条未结束的预约" 由唯一索引 uk_reservation_active 保证
+        Reservation reservation = new Reservation();
+        reservation.setUserID(userId);
+        reservation.setBookID(bookId);
+        reservation.setStatus("waiting");
+        reservation.setCreatedAt(LocalDateTime.now());
+        try {
+            reservationMapper.insert(reservation);
+        } catch (DuplicateKeyException ex) {
+            throw new ClientException(ReservationErrorCode.RESERVATION_EXIST);
+        }
+        // 提交前入队 (仍持有行锁); 事务回滚时留下的条目在交付时更新失败后丢弃
+        reservationQueue.enqueue(reservation);
+        return reservation;
+    }
+
+    @Transactional
+    @Override
+    public Reservation cancel(Integer userId, Integer reservationId) {
+        // 1. 查找预约
+        Reservation reservation = reservationMapper.findById(reservationId);
+        if (reservation == null) {
+            throw new ClientException(ReservationErrorCode.RESERVATION_NOT_FOUND);
+        }
+
+        // 2. 验证：确保是本人的预约
+        if (!reservation.getUserID().equals(userId)) {
+            throw new ClientException(ReservationErrorCode.NO_PERMISSION_FOR_RESERVATION);
+        }
+
+        // 3. 按状态条件更新: 读出的状态可能已被并发交付改变, 先按排队中取消, 再按保留中取消
+        if (reservationMapper.updateStatus(reservationId, List.of("waiting"), "cancelled") == 0) {
+            if (reservationMapper.updateStatus(reservationId, List.of("held"), "cancelled") == 0) {
+                throw new ClientException(ReservationErrorCode.INVALID_CANCEL);
+            }
+            // 4. 放弃保留的图书交给下一位
+            reservationQueue.handOffOrRestock(reservation.getBookID());
+        }
+        reservation.setStatus("cancelled");
+        TransactionHooks.afterCommit(() -> reservationQueue.remove(reservation));
+        return reservation;
+    }
+
+    @Override
+    public List<Reservation> getMyReservations(Integer userId) {
+        return reservationMapper.findByUserId(userId);
+    }
+}
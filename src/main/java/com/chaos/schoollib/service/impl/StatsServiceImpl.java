@@ -0,0 +1,110 @@
+package com.chaos.schoollib.service.impl;
+
+import com.chaos.schoollib.dto.LeaderboardDTO;
+import com.chaos.schoollib.dto.LeaderboardEntryDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.User;
+import com.chaos.schoollib.mapper.UserMapper;
+import com.chaos.schoollib.service.StatsService;
+import com.chaos.schoollib.service.support.BookCache;
+import com.chaos.schoollib.service.support.BorrowLeaderboards;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 借阅统计
+ * - 排行榜从内存 (BorrowLeaderboards) 读取, 书名走图书缓存, 用户名单独缓存 (用户名注册后不会修改)
+ */
+@Service
+public class StatsServiceImpl implements StatsService {
+
+    private static final int DEFAULT_BOOK_LIMIT = 10;
+    private static final int DEFAULT_USER_LIMIT = 5;
+    private static final int MAX_LIMIT = 50;
+
+    private final BorrowLeaderboards leaderboards;
+    private final BookCache bookCache;
+    private final UserMapper userMapper;
+    private final Cache<Integer, String> usernames = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    @Autowired
+    public StatsServiceImpl(BorrowLeaderboards leaderboards,
+                            BookCache bookCache,
+                            UserMapper userMapper) {
+        this.leaderboards = leaderboards;
+        this.bookCache = bookCache;
+        this.userMapper = userMapper;
+    }
+
+    @Override
+    public List<LeaderboardDTO> getLeaderboards(Integer bookLimit, Integer userLimit) {
+        int books = limit(bookLimit, DEFAULT_BOOK_LIMIT);
+        int users = limit(userLimit, DEFAULT_USER_LIMIT);
+
+        Map<BorrowLeaderboards.Window, List<BorrowLeaderboards.Entry>> topBooks = new HashMap<>();
+        Map<BorrowLeaderboards.Window, List<BorrowLeaderboards.Entry>> topUsers = new HashMap<>();
+        Set<Integer> bookIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (BorrowLeaderboards.Window window : BorrowLeaderboards.Window.values()) {
+            List<BorrowLeaderboards.Entry> windowBooks = leaderboards.topBooks(window, books);
+            List<BorrowLeaderboards.Entry> windowUsers = leaderboards.topUsers(window, users);
+            windowBooks.forEach(entry -> bookIds.add(entry.id()));
+            windowUsers.forEach(entry -> userIds.add(entry.id()));
+            topBooks.put(window, windowBooks);
+            topUsers.put(window, windowUsers);
+        }
+
+        // 三个窗口的名称一起批量回表
+        Map<Integer, String> titles = new HashMap<>();
+        bookCache.getAll(bookIds).forEach((id, book) -> titles.put(id, book.getTitle()));
+        Map<Integer, String> names = loadUsernames(userIds);
+
+        List<LeaderboardDTO> result = new ArrayList<>();
+        for (BorrowLeaderboards.Window window : BorrowLeaderboards.Window.values()) {
+            result.add(new LeaderboardDTO(window.label(),
+                    toEntries(topBooks.get(window), titles),
+                    toEntries(topUsers.get(window), names)));
+        }
+        return result;
+    }
+
+    private Map<Integer, String> loadUsernames(Set<Integer> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        return usernames.getAll(userIds, missing -> {
+            Map<Integer, String> loaded = new HashMap<>();
+            for (User user : userMapper.findNamesByIds(List.copyOf(missing))) {
+                loaded.put(user.getUserID(), user.getUsername());
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * 已删除的图书 / 用户仍保留在榜上, 名称为 null
+     */
+    private static List<LeaderboardEntryDTO> toEntries(List<BorrowLeaderboards.Entry> entries,
+                                                       Map<Integer, String> names) {
+        List<LeaderboardEntryDTO> result = new ArrayList<>(entries.size());
+        for (BorrowLeaderboards.Entry entry : entries) {
+            result.add(new LeaderboardEntryDTO(entry.id(), names.get(entry.id()), entry.count()));
+        }
+        return result;
+    }
+
+    private static int limit(Integer requested, int defaultLimit) {
+        return requested == null ? defaultLimit : Math.min(Math.max(requested, 1), MAX_LIMIT);
+    }
+}
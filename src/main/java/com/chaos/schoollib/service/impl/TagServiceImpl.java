@@ -0,0 +1,131 @@
+package com.chaos.schoollib.service.impl;
+
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.TagErrorCode;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.toolkit.TransactionHooks;
+import com.chaos.schoollib.dto.BookFacetQueryDTO;
+import com.chaos.schoollib.dto.BookTagsDTO;
+import com.chaos.schoollib.dto.FacetPageDTO;
+import com.chaos.schoollib.dto.TagDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.Tag;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.TagMapper;
+import com.chaos.schoollib.service.TagService;
+import com.chaos.schoollib.service.support.BookCache;
+import com.chaos.schoollib.service.support.TagFacetIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 标签管理与分面浏览
+ * - 标签和映射存数据库, 分面查询走 TagFacetIndex, 写操作提交后同步索引
+ */
+@Service
+public class TagServiceImpl implements TagService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final TagMapper tagMapper;
+    private final BookMapper bookMapper;
+    private final BookCache bookCache;
+    private final TagFacetIndex facetIndex;
+
+    @Autowired
+    public TagServiceImpl(TagMapper tagMapper,
+                          BookMapper bookMapper,
+                          BookCache bookCache,
+                          TagFacetIndex facetIndex) {
+        this.tagMapper = tagMapper;
+        this.bookMapper = bookMapper;
+        this.bookCache = bookCache;
+        this.facetIndex = facetIndex;
+    }
+
+    @Override
+    public List<Tag> listTags() {
+        return tagMapper.findAll();
+    }
+
+    @Transactional
+    @Override
+    public Tag createTag(TagDTO tagDTO) {
+        Tag tag = new Tag();
+        tag.setName(tagDTO.getName().trim());
+        // 重名由 Name 唯一约束判断
+        try {
+            tagMapper.insert(tag);
+        } catch (DuplicateKeyException ex) {
+            throw new ClientException(TagErrorCode.TAG_NAME_EXIST);
+        }
+        TransactionHooks.afterCommit(() -> facetIndex.putTag(tag));
+        return tag;
+    }
+
+    @Transactional
+    @Override
+    public void deleteTag(Integer tagId) {
+        if (tagMapper.deleteById(tagId) == 0) {
+            throw new ClientException(TagErrorCode.TAG_NOT_FOUND);
+        }
+        TransactionHooks.afterCommit(() -> facetIndex.removeTag(tagId));
+    }
+
+    @Override
+    public List<Tag> getBookTags(Integer bookId) {
+        if (bookCache.get(bookId) == null) {
+            throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
+        }
+        return tagMapper.findByBookId(bookId);
+    }
+
+    @Transactional
+    @Override
+    public List<Tag> setBookTags(Integer bookId, BookTagsDTO bookTagsDTO) {
+        if (bookMapper.findById(bookId) == null) {
+            throw new ClientException(BookErrorCode.BOOK_NOT_FOUND);
+        }
+        Set<Integer> tagIds = new LinkedHashSet<>(bookTagsDTO.getTagIds());
+        if (!tagIds.isEmpty() && tagMapper.countByIds(tagIds) != tagIds.size()) {
+            throw new ClientException(TagErrorCode.TAG_NOT_FOUND);
+        }
+
+        tagMapper.deleteBookTags(bookId);
+        if (!tagIds.isEmpty()) {
+            tagMapper.insertBookTags(bookId, tagIds);
+        }
+        TransactionHooks.afterCommit(() -> facetIndex.markDirty(bookId));
+        return tagMapper.findByBookId(bookId);
+    }
+
+    @Override
+    public FacetPageDTO<Book> browseBooks(BookFacetQueryDTO query) {
+        int size = query.getSize() == null ? DEFAULT_PAGE_SIZE
+                : Math.min(Math.max(query.getSize(), 1), MAX_PAGE_SIZE);
+        TagFacetIndex.FacetResult result = facetIndex.browse(query.getTagIds(),
+                Boolean.TRUE.equals(query.getInStock()), query.getCursor(), size);
+
+        // 索引只给出 BookID, 图书详情从缓存批量回表
+        Map<Integer, Book> books = bookCache.getAll(result.bookIds());
+        List<Book> records = new ArrayList<>(result.bookIds().size());
+        for (Integer bookId : result.bookIds()) {
+            Book book = books.get(bookId);
+            if (book != null) {
+                records.add(book);
+            }
+        }
+        Integer nextCursor = result.hasMore() ? result.bookIds().get(result.bookIds().size() - 1) : null;
+        return new FacetPageDTO<>(records, nextCursor, result.hasMore(), result.total(), result.inStockCount(),
+                result.tagCounts());
+    }
+}
@@ -0,0 +1,152 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 图书读穿透缓存 (按 BookID)
+ *
+ * - 按容量和写入时间淘汰
+ * - 同一 ID 的并发未命中只查询一次数据库 (single-flight): 第一个线程负责查库,
+ *   其余线程等待同一个 future; 查库在调用线程中进行, 不在缓存内部持锁
+ * - 图书变更 (增删改、借还书库存变化) 提交后失效对应条目
+ *
+ * 注意: 返回的 Book 对象被所有调用方共享, 只读, 不要修改。
+ */
+@Component
+public class BookCache implements ComponentStats {
+
+    private final BookMapper bookMapper;
+    private final AsyncCache<Integer, Book> cache;
+
+    @Autowired
+    public BookCache(BookMapper bookMapper,
+                     @Value("${library.book-cache.max-size:50000}") long maxSize,
+                     @Value("${library.book-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.bookMapper = bookMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * 读取图书, 未命中时查库
+     * @return 图书, 不存在时返回 null (不缓存)
+     */
+    public Book get(Integer bookId) {
+        CompletableFuture<Book> loading = new CompletableFuture<>();
+        CompletableFuture<Book> future = cache.get(bookId, (id, executor) -> loading);
+        if (future == loading) {
+            // 当前线程负责加载; future 以 null 或异常完成时 Caffeine 会自动移除该条目
+            try {
+                loading.complete(bookMapper.findById(bookId));
+            } catch (RuntimeException ex) {
+                loading.completeExceptionally(ex);
+            }
+        }
+        return join(future);
+    }
+
+    /**
+     * 批量读取图书, 未命中的部分用一条 IN 查询加载 (同样在调用线程中进行)
+     * @return BookID -> 图书, 不存在的图书不在结果中
+     */
+    public Map<Integer, Book> getAll(Collection<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Map.of();
+        }
+        return join(cache.getAll(bookIds, (missing, executor) -> {
+            try {
+                Map<Integer, Book> loaded = new HashMap<>();
+                for (Book book : bookMapper.findByIds(List.copyOf(missing))) {
+                    loaded.put(book.getBookID(), book);
+                }
+                return CompletableFuture.completedFuture(loaded);
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw ex;
+        }
+    }
+
+    public void invalidate(Integer bookId) {
+        cache.synchronous().invalidate(bookId);
+    }
+
+    /**
+     * 图书变更提交后失效缓存
+     * 排在其他监听器之前: CatalogVersion / CatalogResponseCache 处理同一事件之后的读取经过这里, 必须已经读到新数据
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        invalidate(event.bookId());
+    }
+
+    /**
+     * 批量导入提交后失效合并的图书 (新建的图书不在缓存中)
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        cache.synchronous().invalidateAll(event.mergedBookIds());
+    }
+
+    @Override
+    public String statsName() {
+        return "book-cache";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("hits", "misses", "evictions", "loadSuccess", "loadFailure");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("loadSuccess", stats.loadSuccessCount());
+        result.put("loadFailure", stats.loadFailureCount());
+        return result;
+    }
+}
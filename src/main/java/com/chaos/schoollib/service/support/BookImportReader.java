@@ -0,0 +1,212 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * 批量导入的流式读取: 逐行解析 CSV / NDJSON 为 BookDTO, 不把整个文件读入内存
+ *
+ * - CSV 第一行为表头, 按列名 (不区分大小写) 识别 title, author, publisher, isbn, category, total, 其他列忽略;
+ *   字段可用双引号包裹 (可含逗号、换行, "" 表示一个引号)
+ * - NDJSON 每行一个 BookDTO 对象, 空行跳过
+ * - 无法解析的行交给调用方记录错误, 不中断读取
+ */
+public final class BookImportReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] COLUMNS = {"title", "author", "publisher", "isbn", "category", "total"};
+
+    /**
+     * 读取到的一行
+     * @param row   行号 (从 1 开始, 不含 CSV 表头)
+     * @param book  解析结果, 解析失败时为 null
+     * @param error 解析失败的原因
+     */
+    public record Row(long row, BookDTO book, String error) {
+    }
+
+    private BookImportReader() {
+    }
+
+    /**
+     * @param ndjson true 为 NDJSON, false 为 CSV
+     * @throws IOException 读取输入流失败, 或 CSV 引号未闭合 (此前读到的行已交给 handler)
+     * @throws ClientException CSV 表头缺少 title 列
+     */
+    public static void read(InputStream in, boolean ndjson, ObjectMapper objectMapper, Consumer<Row> handler)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (ndjson) {
+            readNdjson(reader, objectMapper, handler);
+        } else {
+            readCsv(reader, handler);
+        }
+    }
+
+    private static void readNdjson(BufferedReader reader, ObjectMapper objectMapper, Consumer<Row> handler)
+            throws IOException {
+        long row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                handler.accept(new Row(row, objectMapper.readValue(line, BookDTO.class), null));
+            } catch (JsonProcessingException ex) {
+                handler.accept(new Row(row, null, "JSON 格式错误: " + ex.getOriginalMessage()));
+            }
+        }
+    }
+
+    private static void readCsv(Reader reader, Consumer<Row> handler) throws IOException {
+        CsvParser parser = new CsvParser(reader);
+        List<String> header = parser.next();
+        if (header == null) {
+            return;
+        }
+        // 列名 -> 下标, 不存在的列为 -1
+        int[] index = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            index[c] = -1;
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).strip().toLowerCase(Locale.ROOT);
+                // 去掉 Excel 导出的 UTF-8 BOM
+                if (i == 0 && name.startsWith("\uFEFF")) {
+                    name = name.substring(1);
+                }
+                if (name.equals(COLUMNS[c])) {
+                    index[c] = i;
+                    break;
+                }
+            }
+        }
+        if (index[0] < 0) {
+            throw new ClientException(BookErrorCode.BOOK_IMPORT_HEADER_INVALID);
+        }
+
+        long row = 0;
+        List<String> fields;
+        while ((fields = parser.next()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            row++;
+            BookDTO book = new BookDTO();
+            book.setTitle(field(fields, index[0]));
+            book.setAuthor(field(fields, index[1]));
+            book.setPublisher(field(fields, index[2]));
+            book.setIsbn(field(fields, index[3]));
+            book.setCategory(field(fields, index[4]));
+            String total = field(fields, index[5]);
+            if (total != null) {
+                try {
+                    book.setTotal(Integer.valueOf(total));
+                } catch (NumberFormatException ex) {
+                    handler.accept(new Row(row, null, "总库存不是整数: " + total));
+                    continue;
+                }
+            }
+            handler.accept(new Row(row, book, null));
+        }
+    }
+
+    /**
+     * 去掉首尾空白, 空字符串视为未填写
+     */
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * RFC 4180 风格的 CSV 记录解析 (逐字符, 只保留当前记录)
+     */
+    private static final class CsvParser {
+
+        private final Reader reader;
+        private int peeked = -2;
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return 下一条记录的字段, 输入结束时为 null
+         */
+        List<String> next() throws IOException {
+            int ch = read();
+            if (ch == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (ch == -1) {
+                        throw new IOException("CSV 引号未闭合");
+                    }
+                    if (ch == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) ch);
+                    }
+                } else if (ch == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (ch == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\r' || ch == '\n' || ch == -1) {
+                    if (ch == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) ch);
+                }
+                ch = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int ch = peeked;
+                peeked = -2;
+                return ch;
+            }
+            return reader.read();
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.common.convention.errorcode.BaseErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.BorrowErrorCode;
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.common.convention.exception.ServiceException;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BorrowedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并借书 (group commit)
+ *
+ * 同一本书的并发借书请求在一个很短的窗口内被收集起来, 用一个事务统一处理:
+ * 1. 一条 SQL 查出批内已有未还记录的用户
+ * 2. UPDATE Book SET Stock = Stock - n WHERE Stock >= n;
+ *    库存不足 n 时 SELECT ... FOR UPDATE 读出剩余库存, 按先到先得部分满足
+ * 3. 一条多行 INSERT 写入借阅记录
+ * 事务提交后逐个完成调用方的请求 (成功返回记录, 失败抛出对应的 ClientException)。
+ *
+ * 达到 max-size 时立即提交, 否则在窗口 window-ms 结束时提交。
+ *
+ * 等待超时: 请求还没被批次领取时标记为放弃, 批次跳过它, 调用方收到超时;
+ * 已被领取的请求继续等待批次结果 (不会出现提示失败、实际却借出的记录)。
+ * 批次提交后队列为空的图书移除其队列, 队列表只保留近期有借书的图书。
+ */
+@Component
+public class BorrowBatcher implements ComponentStats {
+
+    /**
+     * 批大小分布的桶上界: 1, 2, 4, 8, 16, 32, 64, 以及更大
+     */
+    private static final int[] SIZE_BUCKETS = {1, 2, 4, 8, 16, 32, 64};
+
+    private final BookMapper bookMapper;
+    private final BorrowRecordMapper borrowRecordMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxSize;
+    private final long waitTimeoutMs;
+
+    private final ConcurrentHashMap<Integer, BookQueue> queues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService flushExecutor;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder partialFills = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final AtomicLongArray sizeHistogram = new AtomicLongArray(SIZE_BUCKETS.length + 1);
+
+    @Autowired
+    public BorrowBatcher(BookMapper bookMapper,
+                         BorrowRecordMapper borrowRecordMapper,
+                         TransactionTemplate transactionTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${library.borrow.batch.enabled:false}") boolean enabled,
+                         @Value("${library.borrow.batch.window-ms:5}") long windowMs,
+                         @Value("${library.borrow.batch.max-size:32}") int maxSize,
+                         @Value("${library.borrow.batch.flush-threads:4}") int flushThreads,
+                         @Value("${library.borrow.batch.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        this.bookMapper = bookMapper;
+        this.borrowRecordMapper = borrowRecordMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxSize = maxSize;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.timer = enabled
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("borrow-batch-timer-"))
+                : null;
+        this.flushExecutor = enabled
+                ? Executors.newFixedThreadPool(flushThreads, new CustomizableThreadFactory("borrow-batch-flush-"))
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 提交一个借书请求并等待所在批次提交
+     * @return 创建的借阅记录
+     */
+    public BorrowRecord borrow(Integer userId, Integer bookId) {
+        Ticket ticket = new Ticket(userId, new CompletableFuture<>());
+
+        BookQueue queue;
+        List<Ticket> fullBatch = null;
+        while (true) {
+            queue = queues.computeIfAbsent(bookId, id -> new BookQueue());
+            queue.lock.lock();
+            try {
+                // 取到的队列刚被移除, 重新取
+                if (queue.retired) {
+                    continue;
+                }
+                queue.pending.add(ticket);
+                if (queue.pending.size() >= maxSize) {
+                    fullBatch = queue.drain();
+                } else if (!queue.flushScheduled) {
+                    queue.flushScheduled = true;
+                    BookQueue scheduled = queue;
+                    timer.schedule(() -> flushWindow(bookId, scheduled), windowMs, TimeUnit.MILLISECONDS);
+                }
+                break;
+            } finally {
+                queue.lock.unlock();
+            }
+        }
+        if (fullBatch != null) {
+            List<Ticket> batch = fullBatch;
+            BookQueue full = queue;
+            flushExecutor.execute(() -> flush(bookId, full, batch));
+        }
+
+        try {
+            try {
+                return ticket.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (ticket.state.compareAndSet(Ticket.PENDING, Ticket.ABANDONED)) {
+                    abandoned.increment();
+                    throw new ServiceException(BaseErrorCode.SERVICE_TIMEOUT_ERROR);
+                }
+                // 批次已领取这个请求, 结果以批次为准
+                return ticket.result.get();
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ServiceException(null, ex.getCause(), BaseErrorCode.SERVICE_ERROR);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(null, ex, BaseErrorCode.SERVICE_ERROR);
+        }
+    }
+
+    @Override
+    public String statsName() {
+        return "borrow-batch";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("batches", "requests", "partialFills", "abandoned", "batchSizes");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("windowMs", windowMs);
+        stats.put("maxSize", maxSize);
+        stats.put("batches", batches.sum());
+        stats.put("requests", requests.sum());
+        stats.put("partialFills", partialFills.sum());
+        stats.put("abandoned", abandoned.sum());
+        stats.put("queues", queues.size());
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < SIZE_BUCKETS.length; i++) {
+            histogram.put("<=" + SIZE_BUCKETS[i], sizeHistogram.get(i));
+        }
+        histogram.put(">" + SIZE_BUCKETS[SIZE_BUCKETS.length - 1], sizeHistogram.get(SIZE_BUCKETS.length));
+        stats.put("batchSizes", histogram);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            timer.shutdown();
+            flushExecutor.shutdown();
+        }
+    }
+
+    private void flushWindow(Integer bookId, BookQueue queue) {
+        List<Ticket> batch;
+        queue.lock.lock();
+        try {
+            batch = queue.drain();
+        } finally {
+            queue.lock.unlock();
+        }
+        if (!batch.isEmpty()) {
+            flushExecutor.execute(() -> flush(bookId, queue, batch));
+        }
+    }
+
+    private void flush(Integer bookId, BookQueue queue, List<Ticket> drained) {
+        try {
+            // 领取请求: 已超时放弃的请求不再执行
+            List<Ticket> batch = new ArrayList<>(drained.size());
+            for (Ticket ticket : drained) {
+                if (ticket.state.compareAndSet(Ticket.PENDING, Ticket.CLAIMED)) {
+                    batch.add(ticket);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(bookId, batch);
+            }
+        } finally {
+            retireIfIdle(bookId, queue);
+        }
+    }
+
+    /**
+     * 队列中没有新的请求时移除; 之后取到这个队列的借书请求会看到 retired 并重新创建
+     */
+    private void retireIfIdle(Integer bookId, BookQueue queue) {
+        queue.lock.lock();
+        try {
+            if (queue.pending.isEmpty() && !queue.flushScheduled) {
+                queue.retired = true;
+                queues.remove(bookId, queue);
+            }
+        } finally {
+            queue.lock.unlock();
+        }
+    }
+
+    private void flush(Integer bookId, List<Ticket> batch) {
+        recordBatchSize(batch.size());
+        Map<Ticket, RuntimeException> failures = new LinkedHashMap<>();
+        try {
+            try {
+                transactionTemplate.executeWithoutResult(status -> execute(bookId, batch, failures));
+            } catch (DuplicateKeyException ex) {
+                // 检查之后有单条借书抢先提交了同一用户的记录 (唯一索引冲突), 重试一次即可看到它
+                transactionTemplate.executeWithoutResult(status -> execute(bookId, batch, failures));
+            }
+        } catch (RuntimeException ex) {
+            batch.forEach(ticket -> ticket.result.completeExceptionally(ex));
+            return;
+        }
+        // 事务已提交, 逐个完成调用方请求
+        for (Ticket ticket : batch) {
+            RuntimeException failure = failures.get(ticket);
+            if (failure != null) {
+                ticket.result.completeExceptionally(failure);
+            } else {
+                ticket.result.complete(ticket.record);
+            }
+        }
+    }
+
+    /**
+     * 批次事务, 失败的请求记入 failures, 成功的请求把记录写入 ticket.record
+     */
+    private void execute(Integer bookId, List<Ticket> batch, Map<Ticket, RuntimeException> failures) {
+        failures.clear();
+
+        // 1. 批内同一用户重复借同一本书, 只保留第一个
+        Set<Integer> userIds = new HashSet<>();
+        List<Ticket> candidates = new ArrayList<>();
+        for (Ticket ticket : batch) {
+            if (userIds.add(ticket.userId)) {
+                candidates.add(ticket);
+            } else {
+                failures.put(ticket, new ClientException(BorrowErrorCode.ALREADY_BORROWED));
+            }
+        }
+
+        // 2. 一次查出已借阅此书的用户
+        Set<Integer> activeUsers = new HashSet<>(
+                borrowRecordMapper.findActiveUserIdsByBook(bookId, userIds));
+        if (!activeUsers.isEmpty()) {
+            candidates.removeIf(ticket -> {
+                if (activeUsers.contains(ticket.userId)) {
+                    failures.put(ticket, new ClientException(BorrowErrorCode.ALREADY_BORROWED));
+                    return true;
+                }
+                return false;
+            });
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        // 3. 整批扣减库存, 不足时按先到先得部分满足
+        int granted = candidates.size();
+        if (bookMapper.decreaseStockBy(bookId, granted) == 0) {
+            Integer stock = bookMapper.lockStockById(bookId);
+            granted = stock == null ? 0 : Math.min(stock, granted);
+            if (granted > 0) {
+                bookMapper.decreaseStockBy(bookId, granted);
+                partialFills.increment();
+            }
+        }
+        for (Ticket ticket : candidates.subList(granted, candidates.size())) {
+            failures.put(ticket, new ClientException(BorrowErrorCode.STOCK_NOT_SUFFICIENT));
+        }
+        if (granted == 0) {
+            return;
+        }
+
+        // 4. 多行插入借阅记录
+        LocalDateTime now = LocalDateTime.now();
+        List<BorrowRecord> records = new ArrayList<>(granted);
+        for (Ticket ticket : candidates.subList(0, granted)) {
+            ticket.record = LoanRecords.newLoan(ticket.userId, bookId, now);
+            records.add(ticket.record);
+        }
+        borrowRecordMapper.insertBatch(records);
+        eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.STOCK_CHANGED));
+        for (BorrowRecord record : records) {
+            eventPublisher.publishEvent(new BorrowedEvent(record.getRecordID(), record.getUserID(), bookId,
+                    record.getBorrowDate()));
+        }
+    }
+
+    private void recordBatchSize(int size) {
+        batches.increment();
+        requests.add(size);
+        int bucket = 0;
+        while (bucket < SIZE_BUCKETS.length && size > SIZE_BUCKETS[bucket]) {
+            bucket++;
+        }
+        sizeHistogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * 一本书的待提交请求
+     */
+    private static final class BookQueue {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private List<Ticket> pending = new ArrayList<>();
+        private boolean flushScheduled;
+        private boolean retired;
+
+        /**
+         * 取出全部待提交请求 (调用方需持有 lock)
+         */
+        private List<Ticket> drain() {
+            List<Ticket> batch = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+            return batch;
+        }
+    }
+
+    /**
+     * 单个借书请求
+     */
+    private static final class Ticket {
+
+        private static final int PENDING = 0;
+        private static final int CLAIMED = 1;
+        private static final int ABANDONED = 2;
+
+        private final Integer userId;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CompletableFuture<BorrowRecord> result;
+        private BorrowRecord record;
+
+        private Ticket(Integer userId, CompletableFuture<BorrowRecord> result) {
+            this.userId = userId;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.dto.BorrowCountDTO;
+import com.chaos.schoollib.event.BorrowedEvent;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 借阅排行榜 (借阅最多的图书 / 最活跃的用户), 分全部、近 30 天、近 7 天三个窗口
+ *
+ * - 每个窗口保存全部 ID 的借阅次数, 另用按次数排序的 TreeSet 维护前 capacity 名;
+ *   借书只会让次数增加, 因此增量维护前 K 名是精确的: 已在榜上的重新排序, 不在榜上的超过末位时挤掉末位
+ * - 30 天 / 7 天窗口按天分桶, 跨天时把移出窗口的桶从计数中减掉, 再从计数重建前 K 名 (每天一次)
+ * - 应用启动完成后在后台线程中用 GROUP BY 从 BorrowRecord 重建: 先取最大 RecordID 作为水位线,
+ *   构建期间收到的借书事件先缓存, 构建完成后只补上水位线之后的记录
+ * - 借书事件 (BorrowedEvent) 在事务提交后计入, 回滚的借书不会上榜
+ * - 读写都很短 (O(log K)), 用一把锁保护
+ */
+@Slf4j
+@Component
+public class BorrowLeaderboards implements ComponentStats {
+
+    public enum State {
+        EMPTY, BUILDING, READY, FAILED
+    }
+
+    public enum Window {
+        ALL_TIME("all", 0),
+        LAST_30_DAYS("30d", 30),
+        LAST_7_DAYS("7d", 7);
+
+        private final String label;
+        private final int days;
+
+        Window(String label, int days) {
+            this.label = label;
+            this.days = days;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public int days() {
+            return days;
+        }
+    }
+
+    /**
+     * 榜单中的一项
+     * @param id    BookID 或 UserID
+     * @param count 借阅次数
+     */
+    public record Entry(Integer id, long count) {
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::count).reversed()
+            .thenComparing(Entry::id);
+
+    private static final int MAX_WINDOW_DAYS = 30;
+
+    private final BorrowRecordMapper borrowRecordMapper;
+    private final boolean enabled;
+    private final int capacity;
+
+    private final Object lock = new Object();
+    private Board books;
+    private Board users;
+    private LocalDate today;
+    private List<BorrowedEvent> pending = new ArrayList<>();
+    private volatile State state = State.EMPTY;
+    private volatile long buildMillis;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder rollovers = new LongAdder();
+
+    @Autowired
+    public BorrowLeaderboards(BorrowRecordMapper borrowRecordMapper,
+                              @Value("${library.leaderboard.enabled:true}") boolean enabled,
+                              @Value("${library.leaderboard.capacity:50}") int capacity) {
+        this.borrowRecordMapper = borrowRecordMapper;
+        this.enabled = enabled;
+        this.capacity = Math.max(capacity, 1);
+        this.today = LocalDate.now();
+        this.books = new Board(this.capacity);
+        this.users = new Board(this.capacity);
+    }
+
+    /**
+     * 应用启动完成后在后台线程中从数据库重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "leaderboard-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * 借书提交后计入排行榜; 构建完成前先缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBorrowed(BorrowedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (pending != null) {
+                pending.add(event);
+                return;
+            }
+            apply(event);
+        }
+        recorded.increment();
+    }
+
+    /**
+     * 图书排行榜
+     * @param window 时间窗口
+     * @param limit  最多返回的条数 (不超过 capacity)
+     */
+    public List<Entry> topBooks(Window window, int limit) {
+        return top(window, limit, true);
+    }
+
+    /**
+     * 用户排行榜
+     * @param window 时间窗口
+     * @param limit  最多返回的条数 (不超过 capacity)
+     */
+    public List<Entry> topUsers(Window window, int limit) {
+        return top(window, limit, false);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String statsName() {
+        return "leaderboards";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.leaderboard";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("recorded", "queries", "rollovers");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        synchronized (lock) {
+            stats.put("books", books.ranking(Window.ALL_TIME).size());
+            stats.put("users", users.ranking(Window.ALL_TIME).size());
+            stats.put("days", books.days.size());
+            stats.put("pending", pending == null ? 0 : pending.size());
+        }
+        stats.put("capacity", capacity);
+        stats.put("recorded", recorded.sum());
+        stats.put("queries", queries.sum());
+        stats.put("rollovers", rollovers.sum());
+        stats.put("buildMillis", buildMillis);
+        return stats;
+    }
+
+    /**
+     * 以最大 RecordID 为水位线, 按图书 / 用户各做一次全量和一次近 30 天按天的 GROUP BY
+     */
+    void build() {
+        long start = System.nanoTime();
+        state = State.BUILDING;
+        synchronized (lock) {
+            if (pending == null) {
+                pending = new ArrayList<>();
+            }
+        }
+        int watermark = 0;
+        Board builtBooks = new Board(capacity);
+        Board builtUsers = new Board(capacity);
+        LocalDate buildDay = LocalDate.now();
+        try {
+            Integer maxRecordId = borrowRecordMapper.findMaxRecordId();
+            if (maxRecordId != null) {
+                watermark = maxRecordId;
+                LocalDateTime since = buildDay.minusDays(MAX_WINDOW_DAYS - 1).atStartOfDay();
+                load(builtBooks, borrowRecordMapper.countBorrows(false, null, watermark), buildDay);
+                load(builtBooks, borrowRecordMapper.countBorrows(false, since, watermark), buildDay);
+                load(builtUsers, borrowRecordMapper.countBorrows(true, null, watermark), buildDay);
+                load(builtUsers, borrowRecordMapper.countBorrows(true, since, watermark), buildDay);
+            }
+            state = State.READY;
+            log.info("leaderboards built: {} books, {} users borrowed up to record {} in {} ms",
+                    builtBooks.ranking(Window.ALL_TIME).size(), builtUsers.ranking(Window.ALL_TIME).size(),
+                    watermark, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException ex) {
+            // 数据库不可用时只统计启动之后的借书
+            builtBooks = new Board(capacity);
+            builtUsers = new Board(capacity);
+            watermark = 0;
+            state = State.FAILED;
+            log.warn("failed to build leaderboards", ex);
+        } finally {
+            buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        builtBooks.rebuildRankings();
+        builtUsers.rebuildRankings();
+        int replayed = 0;
+        synchronized (lock) {
+            books = builtBooks;
+            users = builtUsers;
+            today = buildDay;
+            for (BorrowedEvent event : pending) {
+                if (event.recordId() == null || event.recordId() > watermark) {
+                    apply(event);
+                    replayed++;
+                }
+            }
+            pending = null;
+        }
+        recorded.add(replayed);
+    }
+
+    /**
+     * 统计行: borrowDay 为 null 的计入全部窗口, 否则计入对应的日桶和近 30 / 7 天窗口
+     */
+    private static void load(Board board, List<BorrowCountDTO> rows, LocalDate today) {
+        for (BorrowCountDTO row : rows) {
+            if (row.getBorrowDay() == null) {
+                board.ranking(Window.ALL_TIME).counts.merge(row.getId(), row.getBorrows(), Long::sum);
+            } else {
+                board.addToWindows(row.getId(), row.getBorrowDay(), row.getBorrows(), today);
+            }
+        }
+    }
+
+    private List<Entry> top(Window window, int limit, boolean ofBooks) {
+        queries.increment();
+        synchronized (lock) {
+            advance(LocalDate.now());
+            Ranking ranking = (ofBooks ? books : users).ranking(window);
+            List<Entry> result = new ArrayList<>(Math.min(limit, ranking.top.size()));
+            for (Entry entry : ranking.top) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(entry);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 调用方持有 lock
+     */
+    private void apply(BorrowedEvent event) {
+        LocalDate day = event.borrowDate() == null ? LocalDate.now() : event.borrowDate().toLocalDate();
+        advance(day.isAfter(LocalDate.now()) ? day : LocalDate.now());
+        books.add(event.bookId(), day, today);
+        users.add(event.userId(), day, today);
+    }
+
+    /**
+     * 跨天: 移出窗口的日桶从计数中减掉后重建前 K 名; 调用方持有 lock
+     */
+    private void advance(LocalDate now) {
+        if (!now.isAfter(today)) {
+            return;
+        }
+        LocalDate previous = today;
+        today = now;
+        books.rollover(previous, now);
+        users.rollover(previous, now);
+        rollovers.increment();
+    }
+
+    /**
+     * 一个维度 (图书或用户) 的三个窗口及近 30 天的日桶
+     */
+    private static final class Board {
+
+        private final Ranking allTime;
+        private final Ranking last30Days;
+        private final Ranking last7Days;
+        private final TreeMap<LocalDate, Map<Integer, Long>> days = new TreeMap<>();
+
+        Board(int capacity) {
+            this.allTime = new Ranking(capacity);
+            this.last30Days = new Ranking(capacity);
+            this.last7Days = new Ranking(capacity);
+        }
+
+        Ranking ranking(Window window) {
+            return switch (window) {
+                case ALL_TIME -> allTime;
+                case LAST_30_DAYS -> last30Days;
+                case LAST_7_DAYS -> last7Days;
+            };
+        }
+
+        void add(Integer id, LocalDate day, LocalDate today) {
+            allTime.increment(id, 1);
+            if (inWindow(day, today, MAX_WINDOW_DAYS)) {
+                days.computeIfAbsent(day, d -> new HashMap<>()).merge(id, 1L, Long::sum);
+                last30Days.increment(id, 1);
+                if (inWindow(day, today, Window.LAST_7_DAYS.days())) {
+                    last7Days.increment(id, 1);
+                }
+            }
+        }
+
+        /**
+         * 构建时使用, 只累加计数, 最后统一 rebuildRankings
+         */
+        void addToWindows(Integer id, LocalDate day, long count, LocalDate today) {
+            if (!inWindow(day, today, MAX_WINDOW_DAYS)) {
+                return;
+            }
+            days.computeIfAbsent(day, d -> new HashMap<>()).merge(id, count, Long::sum);
+            last30Days.counts.merge(id, count, Long::sum);
+            if (inWindow(day, today, Window.LAST_7_DAYS.days())) {
+                last7Days.counts.merge(id, count, Long::sum);
+            }
+        }
+
+        void rollover(LocalDate previous, LocalDate now) {
+            for (Iterator<Map.Entry<LocalDate, Map<Integer, Long>>> it = days.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<LocalDate, Map<Integer, Long>> bucket = it.next();
+                LocalDate day = bucket.getKey();
+                if (inWindow(day, now, Window.LAST_7_DAYS.days())) {
+                    break;
+                }
+                if (inWindow(day, previous, Window.LAST_7_DAYS.days())) {
+                    last7Days.subtract(bucket.getValue());
+                }
+                if (!inWindow(day, now, MAX_WINDOW_DAYS)) {
+                    last30Days.subtract(bucket.getValue());
+                    it.remove();
+                }
+            }
+            last30Days.rebuild();
+            last7Days.rebuild();
+        }
+
+        void rebuildRankings() {
+            allTime.rebuild();
+            last30Days.rebuild();
+            last7Days.rebuild();
+        }
+
+        private static boolean inWindow(LocalDate day, LocalDate today, int windowDays) {
+            return day.isAfter(today.minusDays(windowDays)) && !day.isAfter(today);
+        }
+    }
+
+    /**
+     * 全部 ID 的计数 + 前 capacity 名
+     */
+    private static final class Ranking {
+
+        private final int capacity;
+        private final Map<Integer, Long> counts = new HashMap<>();
+        private final TreeSet<Entry> top = new TreeSet<>(RANKING);
+
+        Ranking(int capacity) {
+            this.capacity = capacity;
+        }
+
+        int size() {
+            return counts.size();
+        }
+
+        /**
+         * 计数只增不减, 在榜上的重新排序, 不在榜上的与末位比较
+         */
+        void increment(Integer id, long delta) {
+            long previous = counts.getOrDefault(id, 0L);
+            long current = previous + delta;
+            counts.put(id, current);
+            Entry entry = new Entry(id, current);
+            if (previous > 0 && top.remove(new Entry(id, previous))) {
+                top.add(entry);
+                return;
+            }
+            if (top.size() < capacity) {
+                top.add(entry);
+            } else if (RANKING.compare(entry, top.last()) < 0) {
+                top.pollLast();
+                top.add(entry);
+            }
+        }
+
+        /**
+         * 减掉移出窗口的日桶, 之后需要 rebuild
+         */
+        void subtract(Map<Integer, Long> bucket) {
+            bucket.forEach((id, count) -> counts.computeIfPresent(id, (k, v) -> v - count > 0 ? v - count : null));
+        }
+
+        void rebuild() {
+            top.clear();
+            counts.forEach((id, count) -> {
+                Entry entry = new Entry(id, count);
+                if (top.size() < capacity) {
+                    top.add(entry);
+                } else if (RANKING.compare(entry, top.last()) < 0) {
+                    top.pollLast();
+                    top.add(entry);
+                }
+            });
+        }
+    }
+}
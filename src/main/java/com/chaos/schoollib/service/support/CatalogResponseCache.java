@@ -0,0 +1,366 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.common.result.Results;
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import com.chaos.schoollib.dto.CursorPageDTO;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.metrics.ComponentStats;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 图书接口的序列化响应缓存: 保存编码好的 Result JSON (以及预先 gzip 的版本), 命中时直接写出字节,
+ * 不再查库、不再经过 Jackson
+ *
+ * - 每个条目覆盖一段 BookID 区间 (lo, hi]: 单本图书为 (id - 1, id]; 游标分页为 (cursor, 本页最后一本],
+ *   最后一页为 (cursor, +∞); 不分页列表为全部。分页按 BookID 排序, 区间外的图书变化不会改变这一页
+ * - 图书变更提交后只移除区间包含该图书的条目, 下次请求时重新编码; 其他页面保持不变 (ETag 也不变)
+ *   单本图书按键 "b:<id>" 直接移除; 分页按查询条件 (不含游标) 分组, 组内按 lo 有序, 每组只需查找
+ *   lo 小于该图书的最后一页, 不扫描整个缓存
+ * - 读取期间发生过变更的结果照常返回但不放入缓存, 避免把提交前读到的旧数据缓存下来;
+ *   失效在 BookCache 之后执行 (监听器顺序), 失效之后开始的读取不会再读到 BookCache 中的旧数据
+ * - 按编码后的总字节数 (max-bytes) 淘汰; 不超过 gzip-min-bytes 的响应不压缩
+ * - 开启读写分离时加载固定走主库: 从库读到的旧数据会一直缓存到该图书下次变更
+ * - 已知的小误差: 有下一页的页面, 如果其后的图书全部被删除, hasMore 仍为 true, 客户端下一页得到空列表
+ */
+@Component
+public class CatalogResponseCache implements ComponentStats {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int gzipMinBytes;
+    private final Cache<String, Encoded> cache;
+    /**
+     * 区间条目的索引: 分组 (查询条件) -> lo -> 缓存键; 与缓存的增删在 lock 内同步, 淘汰时由监听器移除
+     */
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, String>> ranges = new ConcurrentHashMap<>();
+
+    /**
+     * 变更计数; 递增 + 移除条目与插入条目在 lock 内互斥, 命中路径不加锁
+     * (ReentrantLock 而不是 synchronized: 请求在虚拟线程上执行, 持有监视器等待时会占住载体线程)
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncached = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    @Autowired
+    public CatalogResponseCache(ObjectMapper objectMapper,
+                                @Value("${library.catalog-response-cache.enabled:true}") boolean enabled,
+                                @Value("${library.catalog-response-cache.max-bytes:67108864}") long maxBytes,
+                                @Value("${library.catalog-response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzipMinBytes = Math.max(gzipMinBytes, 0);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(maxBytes, 1))
+                .weigher((String key, Encoded encoded) -> encoded.weight())
+                .evictionListener((String key, Encoded encoded, RemovalCause cause) -> unindex(key, encoded))
+                .build();
+    }
+
+    /**
+     * 编码好的响应, 字节数组创建后不再修改, 只能整体写出
+     */
+    public static final class Encoded {
+
+        private final String tag;
+        /**
+         * 区间条目的分组, 单本图书为 null
+         */
+        private final String group;
+        private final long lo;
+        private final long hi;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Encoded(String tag, String group, long lo, long hi, byte[] json, byte[] gzip) {
+            this.tag = tag;
+            this.group = group;
+            this.lo = lo;
+            this.hi = hi;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        /**
+         * 编码时的目录版本 (用于 ETag)
+         */
+        public String tag() {
+            return tag;
+        }
+
+        public boolean hasGzip() {
+            return gzip != null;
+        }
+
+        public int length(boolean gzipped) {
+            return gzipped ? gzip.length : json.length;
+        }
+
+        public void writeTo(OutputStream out, boolean gzipped) throws IOException {
+            out.write(gzipped ? gzip : json);
+        }
+
+        boolean covers(long bookId) {
+            return bookId > lo && bookId <= hi;
+        }
+
+        int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    /**
+     * 单本图书
+     * @param tag    读取之前取得的图书版本
+     * @param loader 读取图书 (不存在时抛出异常, 不缓存)
+     */
+    public Encoded book(Integer bookId, String tag, Supplier<?> loader) {
+        return get(bookKey(bookId), null, tag, loader, bookId - 1L, data -> bookId);
+    }
+
+    /**
+     * 游标分页的一页
+     * @param query  规范化的查询条件 (不含游标), 同一条件的各页互不重叠
+     * @param cursor 本页的游标, 第一页为 null
+     * @param tag    读取之前取得的目录版本
+     */
+    public Encoded page(String query, Integer cursor, String tag, Supplier<? extends CursorPageDTO<?>> loader) {
+        String group = "p:" + query;
+        return get(group + "|" + cursor, group, tag, loader, cursor == null ? Long.MIN_VALUE : cursor,
+                page -> page.isHasMore() ? page.getNextCursor() : Long.MAX_VALUE);
+    }
+
+    /**
+     * 不分页的全部图书
+     */
+    public Encoded all(String tag, Supplier<?> loader) {
+        return get("all", "all", tag, loader, Long.MIN_VALUE, data -> Long.MAX_VALUE);
+    }
+
+    @Override
+    public String statsName() {
+        return "catalog-responses";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("hits", "misses", "uncached", "invalidated");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", cache.estimatedSize());
+        stats.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("uncached", uncached.sum());
+        stats.put("invalidated", invalidated.sum());
+        return stats;
+    }
+
+    /**
+     * 图书变更提交后移除区间包含该图书的条目 (排在 BookCache 失效之后)
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        invalidate(new long[]{event.bookId()});
+    }
+
+    /**
+     * 批量导入每块提交后移除一次
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        long[] bookIds = new long[event.createdBookIds().size() + event.mergedBookIds().size()];
+        int i = 0;
+        for (Integer bookId : event.createdBookIds()) {
+            bookIds[i++] = bookId;
+        }
+        for (Integer bookId : event.mergedBookIds()) {
+            bookIds[i++] = bookId;
+        }
+        invalidate(bookIds);
+    }
+
+    private <T> Encoded get(String key, String group, String tag, Supplier<? extends T> loader,
+                            long lo, ToLongFunction<T> hi) {
+        if (enabled) {
+            Encoded cached = cache.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+        }
+        long start = generation;
+        T data = enabled ? loadFromPrimary(loader) : loader.get();
+        return store(key, start, encode(tag, group, lo, hi.applyAsLong(data), data));
+    }
+
+    private static <T> T loadFromPrimary(Supplier<? extends T> loader) {
+        try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+            return loader.get();
+        }
+    }
+
+    /**
+     * 读取期间没有发生变更时才放入缓存 (与 invalidate 互斥, 不会放入已经失效的结果);
+     * 与同组已缓存区间重叠的不放入 (客户端自行指定的游标), 保持组内区间互不重叠
+     */
+    private Encoded store(String key, long start, Encoded encoded) {
+        if (!enabled) {
+            return encoded;
+        }
+        lock.lock();
+        try {
+            if (generation != start) {
+                uncached.increment();
+            } else if (encoded.group == null) {
+                cache.put(key, encoded);
+            } else {
+                ConcurrentSkipListMap<Long, String> group =
+                        ranges.computeIfAbsent(encoded.group, name -> new ConcurrentSkipListMap<>());
+                if (overlaps(group, key, encoded)) {
+                    uncached.increment();
+                } else {
+                    group.put(encoded.lo, key);
+                    cache.put(key, encoded);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return encoded;
+    }
+
+    private void invalidate(long[] bookIds) {
+        if (bookIds.length == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            generation++;
+            int removed = 0;
+            for (long bookId : bookIds) {
+                if (cache.asMap().remove(bookKey(bookId)) != null) {
+                    removed++;
+                }
+            }
+            for (ConcurrentSkipListMap<Long, String> group : ranges.values()) {
+                for (long bookId : bookIds) {
+                    removed += invalidateCovering(group, bookId);
+                }
+            }
+            invalidated.add(removed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 同一分组的区间互不重叠, 能覆盖 bookId 的只有 lo 小于它的最后一个区间 (还要满足 bookId <= hi)
+     * @return 移除的条目数 (0 或 1)
+     */
+    private int invalidateCovering(ConcurrentSkipListMap<Long, String> group, long bookId) {
+        Map.Entry<Long, String> candidate = group.lowerEntry(bookId);
+        if (candidate == null) {
+            return 0;
+        }
+        Encoded encoded = cache.policy().getIfPresentQuietly(candidate.getValue());
+        if (encoded == null) {
+            // 已被淘汰或替换
+            group.remove(candidate.getKey(), candidate.getValue());
+            return 0;
+        }
+        if (!encoded.covers(bookId)) {
+            return 0;
+        }
+        group.remove(candidate.getKey(), candidate.getValue());
+        cache.invalidate(candidate.getValue());
+        return 1;
+    }
+
+    /**
+     * 组内区间互不重叠且按 lo 排序, 只需检查 lo 小于新区间 hi 的最后一个其他区间
+     */
+    private boolean overlaps(ConcurrentSkipListMap<Long, String> group, String key, Encoded encoded) {
+        for (Map.Entry<Long, String> entry : group.headMap(encoded.hi, false).descendingMap().entrySet()) {
+            if (entry.getValue().equals(key)) {
+                continue;
+            }
+            Encoded existing = cache.policy().getIfPresentQuietly(entry.getValue());
+            if (existing == null) {
+                group.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            return existing.hi > encoded.lo;
+        }
+        return false;
+    }
+
+    private void unindex(String key, Encoded encoded) {
+        if (encoded.group != null) {
+            ConcurrentSkipListMap<Long, String> group = ranges.get(encoded.group);
+            if (group != null) {
+                group.remove(encoded.lo, key);
+            }
+        }
+    }
+
+    private static String bookKey(long bookId) {
+        return "b:" + bookId;
+    }
+
+    private Encoded encode(String tag, String group, long lo, long hi, Object data) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Results.success(data));
+            // 不缓存时每次压缩得不偿失, 只写出 JSON
+            return new Encoded(tag, group, lo, hi, json, enabled && json.length >= gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("failed to encode catalog response", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,651 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 图书全文检索 (进程内倒排索引, 替代数据库 LIKE '%...%' 全表扫描)
+ *
+ * - 索引字段: 书名 / 作者 / 出版社 / ISBN / 分类, 分词见 {@link CatalogTokenizer}
+ * - 排序: BM25F, 各字段按权重累加词频 (书名、ISBN 权重最高), 再按字段长度归一化
+ * - 倒排表按 BookID 升序存放在 int[] / short[] 中, 每个词频 3 bit, 5 个字段打包进一个 short;
+ *   写入时复制 (copy-on-write) 后整体替换, 查询线程不加锁
+ * - 应用启动完成后由后台线程 catalog-search-index 按 BookID 分页全量构建;
+ *   之后图书增删改提交后 (BookChangedEvent) 增量更新, 构建期间已被增量更新过的图书不会被旧数据覆盖
+ * - 写入 (构建 / 增量更新) 之间用 writeLock 串行化
+ */
+@Slf4j
+@Component
+public class CatalogSearchIndex implements ComponentStats {
+
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int PUBLISHER = 2;
+    private static final int ISBN = 3;
+    private static final int CATEGORY = 4;
+    private static final int FIELD_COUNT = 5;
+    private static final double[] BOOSTS = {3.0, 2.0, 1.0, 4.0, 1.5};
+
+    private static final int FREQ_BITS = 3;
+    private static final int MAX_FREQ = (1 << FREQ_BITS) - 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public enum State {
+        EMPTY, BUILDING, READY, FAILED
+    }
+
+    /**
+     * 检索结果: BookID 与相关度得分
+     */
+    public record Hit(int bookId, double score) {
+    }
+
+    /**
+     * 一个词的倒排表 (不可变), term 为词典中的规范实例, 文档的词列表引用同一个 String
+     */
+    private record Postings(String term, int[] docs, short[] freqs) {
+    }
+
+    /**
+     * 文档总数与各字段长度之和 (用于计算平均字段长度)
+     */
+    private record Corpus(int docCount, long[] totalLengths) {
+    }
+
+    private final BookMapper bookMapper;
+    private final boolean enabled;
+    private final int buildPageSize;
+    private final int maxQueryLength;
+
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    /**
+     * 字段长度, 下标 bookId * FIELD_COUNT + field; 扩容时整体替换
+     */
+    private volatile short[] fieldLengths = new short[0];
+    private volatile Corpus corpus = new Corpus(0, new long[FIELD_COUNT]);
+    private volatile State state = State.EMPTY;
+    private volatile long postingCount;
+    private volatile long buildMillis;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * 每本书当前被索引的词 (删除 / 更新时用于从倒排表中移除), 下标 bookId, 仅在 writeLock 下访问
+     */
+    private String[][] docTerms = new String[0][];
+    /**
+     * 构建期间被增量更新过的 BookID, 仅在构建期间非 null, 仅在 writeLock 下访问
+     */
+    private Set<Integer> touchedDuringBuild;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder updateFailures = new LongAdder();
+
+    @Autowired
+    public CatalogSearchIndex(BookMapper bookMapper,
+                              @Value("${library.search.enabled:true}") boolean enabled,
+                              @Value("${library.search.build-page-size:5000}") int buildPageSize,
+                              @Value("${library.search.max-query-length:100}") int maxQueryLength) {
+        this.bookMapper = bookMapper;
+        this.enabled = enabled;
+        this.buildPageSize = Math.max(buildPageSize, 1);
+        this.maxQueryLength = Math.max(maxQueryLength, 1);
+    }
+
+    /**
+     * 应用启动完成后在后台构建索引, 不阻塞启动; 构建完成前检索只能查到已构建的部分
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "catalog-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * 按 BookID 分页读取全部图书并建索引
+     */
+    public void build() {
+        long start = System.nanoTime();
+        writeLock.lock();
+        try {
+            touchedDuringBuild = new HashSet<>();
+            state = State.BUILDING;
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            BookQueryDTO query = new BookQueryDTO();
+            List<Book> page;
+            do {
+                page = bookMapper.findPage(query, buildPageSize);
+                apply(page, List.of(), true);
+                if (!page.isEmpty()) {
+                    query.setCursor(page.get(page.size() - 1).getBookID());
+                }
+            } while (page.size() == buildPageSize);
+            state = State.READY;
+            log.info("catalog search index built: {} books, {} terms in {} ms",
+                    corpus.docCount(), postings.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException ex) {
+            state = State.FAILED;
+            log.warn("failed to build catalog search index", ex);
+        } finally {
+            buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            writeLock.lock();
+            try {
+                touchedDuringBuild = null;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 图书增删改提交后增量更新 (库存变化不影响索引)
+     * 索引更新失败只记录日志, 不影响已提交的业务操作
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled || event.type() == BookChangedEvent.Type.STOCK_CHANGED) {
+            return;
+        }
+        try {
+            Book book = event.type() == BookChangedEvent.Type.DELETED ? null : bookMapper.findById(event.bookId());
+            if (book == null) {
+                remove(event.bookId());
+            } else {
+                index(book);
+            }
+            updates.increment();
+        } catch (RuntimeException ex) {
+            updateFailures.increment();
+            log.warn("failed to update catalog search index for book {}", event.bookId(), ex);
+        }
+    }
+
+    /**
+     * 批量导入提交后一次写入一块新书 (合并的图书只有库存变化, 不影响索引)
+     * 常见词的倒排表每块只复制一次
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (!enabled || event.createdBookIds().isEmpty()) {
+            return;
+        }
+        try {
+            apply(bookMapper.findByIds(event.createdBookIds()), List.of(), false);
+            updates.add(event.createdBookIds().size());
+        } catch (RuntimeException ex) {
+            updateFailures.increment();
+            log.warn("failed to index {} imported books", event.createdBookIds().size(), ex);
+        }
+    }
+
+    /**
+     * 新增或替换一本书的索引
+     */
+    public void index(Book book) {
+        apply(List.of(book), List.of(), false);
+    }
+
+    public void remove(Integer bookId) {
+        apply(List.of(), List.of(bookId), false);
+    }
+
+    /**
+     * 检索
+     * @param query 关键词 (超过 max-query-length 的部分被忽略)
+     * @param limit 最多返回的条数
+     * @return 按得分从高到低排列的结果
+     */
+    public List<Hit> search(String query, int limit) {
+        queries.increment();
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        if (query.length() > maxQueryLength) {
+            query = query.substring(0, maxQueryLength);
+        }
+        Corpus snapshot = corpus;
+        short[] lengths = fieldLengths;
+        if (snapshot.docCount() == 0) {
+            return List.of();
+        }
+
+        List<Postings> matched = new ArrayList<>();
+        int candidates = 0;
+        for (String term : new LinkedHashSet<>(CatalogTokenizer.forQuery(query))) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                matched.add(list);
+                candidates += list.docs().length;
+            }
+        }
+        if (matched.isEmpty()) {
+            return List.of();
+        }
+
+        double[] averageLengths = new double[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            averageLengths[field] = Math.max((double) snapshot.totalLengths()[field] / snapshot.docCount(), 1e-9);
+        }
+        ScoreAccumulator scores = ScoreAccumulator.create(candidates, snapshot.docCount(), lengths.length / FIELD_COUNT);
+        for (Postings list : matched) {
+            int df = list.docs().length;
+            // 下限取一个很小的正数: 出现在所有文档中的词也能让文档被检索到
+            double idf = Math.max(Math.log(1 + Math.max(snapshot.docCount() - df + 0.5, 0) / (df + 0.5)), 1e-6);
+            for (int i = 0; i < df; i++) {
+                int doc = list.docs()[i];
+                int packed = list.freqs()[i];
+                double tf = 0;
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    int freq = (packed >>> (field * FREQ_BITS)) & MAX_FREQ;
+                    if (freq == 0) {
+                        continue;
+                    }
+                    int slot = doc * FIELD_COUNT + field;
+                    // 长度数组可能比倒排表旧一点 (并发扩容), 取不到时按平均长度计算
+                    double length = slot < lengths.length ? lengths[slot] : averageLengths[field];
+                    tf += BOOSTS[field] * freq / (1 - B + B * length / averageLengths[field]);
+                }
+                scores.add(doc, idf * tf * (K1 + 1) / (tf + K1));
+            }
+        }
+        return scores.top(limit);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String statsName() {
+        return "search";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.search.index";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("queries", "updates", "updateFailures");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("documents", corpus.docCount());
+        stats.put("terms", postings.size());
+        stats.put("postings", postingCount);
+        stats.put("queries", queries.sum());
+        stats.put("updates", updates.sum());
+        stats.put("updateFailures", updateFailures.sum());
+        stats.put("buildMillis", buildMillis);
+        return stats;
+    }
+
+    /**
+     * 批量写入: 先从倒排表中移除 deletes 和 upserts 的旧索引, 再加入 upserts 的新索引;
+     * 每个受影响的词只复制一次倒排表
+     * @param fromBuild 是否来自全量构建 (构建期间已被增量更新过的图书跳过, 避免旧数据覆盖新数据)
+     */
+    private void apply(List<Book> upserts, Collection<Integer> deletes, boolean fromBuild) {
+        writeLock.lock();
+        try {
+            Map<String, Delta> deltas = new HashMap<>();
+            int docCount = corpus.docCount();
+            long[] totals = corpus.totalLengths().clone();
+
+            for (Integer bookId : deletes) {
+                if (touchedDuringBuild != null) {
+                    touchedDuringBuild.add(bookId);
+                }
+                docCount -= removeDoc(bookId, deltas, totals);
+            }
+            for (Book book : upserts) {
+                int bookId = book.getBookID();
+                if (touchedDuringBuild != null) {
+                    if (fromBuild && touchedDuringBuild.contains(bookId)) {
+                        continue;
+                    }
+                    if (!fromBuild) {
+                        touchedDuringBuild.add(bookId);
+                    }
+                }
+                docCount -= removeDoc(bookId, deltas, totals);
+                addDoc(book, deltas, totals);
+                docCount++;
+            }
+
+            long postingDelta = 0;
+            for (Delta delta : deltas.values()) {
+                postingDelta += merge(delta);
+            }
+            postingCount += postingDelta;
+            corpus = new Corpus(docCount, totals);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return 移除的文档数 (0 或 1)
+     */
+    private int removeDoc(int bookId, Map<String, Delta> deltas, long[] totals) {
+        if (bookId >= docTerms.length || docTerms[bookId] == null) {
+            return 0;
+        }
+        for (String term : docTerms[bookId]) {
+            deltas.computeIfAbsent(term, Delta::new).removed.add(bookId);
+        }
+        docTerms[bookId] = null;
+        short[] lengths = fieldLengths;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            totals[field] -= lengths[bookId * FIELD_COUNT + field];
+            lengths[bookId * FIELD_COUNT + field] = 0;
+        }
+        return 1;
+    }
+
+    private void addDoc(Book book, Map<String, Delta> deltas, long[] totals) {
+        int bookId = book.getBookID();
+        String[] texts = new String[FIELD_COUNT];
+        texts[TITLE] = book.getTitle();
+        texts[AUTHOR] = book.getAuthor();
+        texts[PUBLISHER] = book.getPublisher();
+        texts[ISBN] = book.getIsbn();
+        texts[CATEGORY] = book.getCategory();
+
+        ensureCapacity(bookId);
+        short[] lengths = fieldLengths;
+        Map<String, int[]> frequencies = new LinkedHashMap<>();
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            List<String> tokens = CatalogTokenizer.forIndex(texts[field]);
+            for (String token : tokens) {
+                frequencies.computeIfAbsent(token, key -> new int[FIELD_COUNT])[field]++;
+            }
+            int length = Math.min(tokens.size(), Short.MAX_VALUE);
+            lengths[bookId * FIELD_COUNT + field] = (short) length;
+            totals[field] += length;
+        }
+
+        String[] terms = new String[frequencies.size()];
+        int index = 0;
+        for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+            Delta delta = deltas.computeIfAbsent(canonical(entry.getKey(), deltas), Delta::new);
+            delta.added.put(bookId, pack(entry.getValue()));
+            terms[index++] = delta.term;
+        }
+        docTerms[bookId] = terms;
+    }
+
+    /**
+     * 取词典中已有的 String 实例, 避免每个文档各持有一份相同的词
+     */
+    private String canonical(String term, Map<String, Delta> deltas) {
+        Delta delta = deltas.get(term);
+        if (delta != null) {
+            return delta.term;
+        }
+        Postings existing = postings.get(term);
+        return existing == null ? term : existing.term();
+    }
+
+    private static short pack(int[] frequencies) {
+        int packed = 0;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            packed |= Math.min(frequencies[field], MAX_FREQ) << (field * FREQ_BITS);
+        }
+        return (short) packed;
+    }
+
+    private void ensureCapacity(int bookId) {
+        if (bookId >= docTerms.length) {
+            int capacity = Math.max(bookId + 1, docTerms.length + (docTerms.length >> 1));
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        if ((bookId + 1) * FIELD_COUNT > fieldLengths.length) {
+            fieldLengths = Arrays.copyOf(fieldLengths, docTerms.length * FIELD_COUNT);
+        }
+    }
+
+    /**
+     * 合并一个词的旧倒排表与变更, 生成新的倒排表并替换
+     * @return 倒排表条目数的变化
+     */
+    private long merge(Delta delta) {
+        Postings old = postings.get(delta.term);
+        int[] oldDocs = old == null ? new int[0] : old.docs();
+        short[] oldFreqs = old == null ? new short[0] : old.freqs();
+        int[] docs = new int[oldDocs.length + delta.added.size()];
+        short[] freqs = new short[docs.length];
+
+        int size = 0;
+        int i = 0;
+        var added = delta.added.entrySet().iterator();
+        Map.Entry<Integer, Short> next = added.hasNext() ? added.next() : null;
+        while (i < oldDocs.length || next != null) {
+            if (next == null || (i < oldDocs.length && oldDocs[i] < next.getKey())) {
+                if (!delta.removed.contains(oldDocs[i])) {
+                    docs[size] = oldDocs[i];
+                    freqs[size++] = oldFreqs[i];
+                }
+                i++;
+            } else {
+                if (i < oldDocs.length && oldDocs[i] == next.getKey()) {
+                    // 同一本书被更新: 旧条目已在 removed 中, 用新条目替换
+                    i++;
+                }
+                docs[size] = next.getKey();
+                freqs[size++] = next.getValue();
+                next = added.hasNext() ? added.next() : null;
+            }
+        }
+
+        if (size == 0) {
+            postings.remove(delta.term);
+        } else {
+            postings.put(delta.term, new Postings(delta.term,
+                    size == docs.length ? docs : Arrays.copyOf(docs, size),
+                    size == freqs.length ? freqs : Arrays.copyOf(freqs, size)));
+        }
+        return size - oldDocs.length;
+    }
+
+    /**
+     * 一个词在一次批量写入中的变更
+     */
+    private static final class Delta {
+        private final String term;
+        private final Set<Integer> removed = new HashSet<>();
+        private final TreeMap<Integer, Short> added = new TreeMap<>();
+
+        private Delta(String term) {
+            this.term = term;
+        }
+    }
+
+    /**
+     * 查询时的得分累加 (BookID -> 得分, 避免每个候选文档装箱)
+     * 候选文档较多时用以 BookID 为下标的数组: 倒排表按 BookID 有序, 累加时是顺序访问;
+     * 较少时用开放寻址哈希表, 不必分配与文档总数同样大的数组
+     */
+    private abstract static class ScoreAccumulator {
+
+        static ScoreAccumulator create(int candidates, int docCount, int maxBookId) {
+            return candidates > docCount / 16
+                    ? new DenseScores(maxBookId + 1)
+                    : new SparseScores(Math.min(candidates, docCount));
+        }
+
+        abstract void add(int bookId, double score);
+
+        abstract List<Hit> top(int limit);
+    }
+
+    private static final class DenseScores extends ScoreAccumulator {
+        private double[] values;
+
+        private DenseScores(int capacity) {
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void add(int bookId, double score) {
+            if (bookId >= values.length) {
+                // 查询期间新加入的图书
+                values = Arrays.copyOf(values, bookId + 1);
+            }
+            values[bookId] += score;
+        }
+
+        @Override
+        List<Hit> top(int limit) {
+            TopHits top = new TopHits(limit);
+            for (int bookId = 1; bookId < values.length; bookId++) {
+                if (values[bookId] > 0) {
+                    top.offer(bookId, values[bookId]);
+                }
+            }
+            return top.toList();
+        }
+    }
+
+    /**
+     * 开放寻址 (线性探测), BookID 从 1 开始, 0 表示空槽; 填满一半时扩容
+     */
+    private static final class SparseScores extends ScoreAccumulator {
+        private int[] keys;
+        private double[] values;
+        private int mask;
+        private int size;
+
+        private SparseScores(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.values = new double[capacity];
+            this.mask = capacity - 1;
+        }
+
+        @Override
+        void add(int bookId, double score) {
+            int slot = slot(bookId);
+            if (keys[slot] == 0) {
+                if (size * 2 >= keys.length) {
+                    grow();
+                    slot = slot(bookId);
+                }
+                keys[slot] = bookId;
+                size++;
+            }
+            values[slot] += score;
+        }
+
+        @Override
+        List<Hit> top(int limit) {
+            TopHits top = new TopHits(limit);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0) {
+                    top.offer(keys[slot], values[slot]);
+                }
+            }
+            return top.toList();
+        }
+
+        private int slot(int bookId) {
+            int slot = (bookId * 0x9E3779B9 >>> 1) & mask;
+            while (keys[slot] != 0 && keys[slot] != bookId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 小顶堆保留得分最高的 limit 个, 同分时 BookID 小的优先
+     */
+    private static final class TopHits {
+        private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Hit::bookId, Comparator.reverseOrder());
+
+        private final int limit;
+        private final PriorityQueue<Hit> heap;
+
+        private TopHits(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        }
+
+        private void offer(int bookId, double score) {
+            if (heap.size() == limit) {
+                Hit worst = heap.peek();
+                if (score < worst.score() || (score == worst.score() && bookId > worst.bookId())) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.offer(new Hit(bookId, score));
+        }
+
+        private List<Hit> toList() {
+            Hit[] result = new Hit[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap.poll();
+            }
+            return List.of(result);
+        }
+    }
+}
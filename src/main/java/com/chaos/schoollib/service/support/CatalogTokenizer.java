@@ -0,0 +1,110 @@
+package com.chaos.schoollib.service.support;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 图书检索分词
+ * - 先做 NFKC 归一化 (全角字母数字转半角) 并转小写
+ * - 中日韩文字: 连续的一段切成二元组 (bigram), "三体全集" -> 三体 / 体全 / 全集;
+ *   建索引时额外输出单字, 以支持单字查询; 查询时只有单字的片段才用单字
+ * - 字母 / 数字: 连续的一段作为一个词; 数字之间的 '-' 视为连接符 (ISBN 978-7-5366-9293-0 -> 9787536692930)
+ * - 其他字符 (空格、标点) 作为分隔符
+ */
+public final class CatalogTokenizer {
+
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private CatalogTokenizer() {
+    }
+
+    /**
+     * 建索引用: 中日韩片段输出单字 + 二元组
+     */
+    public static List<String> forIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 查询用: 中日韩片段只输出二元组 (片段只有一个字时输出单字)
+     */
+    public static List<String> forQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    private static List<String> tokenize(String text, boolean withUnigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        List<String> cjkRun = new ArrayList<>();
+
+        int length = normalized.length();
+        for (int i = 0; i < length; ) {
+            int cp = normalized.codePointAt(i);
+            int next = i + Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                cjkRun.add(new String(Character.toChars(cp)));
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushCjk(cjkRun, tokens, withUnigrams);
+                if (word.length() < MAX_TOKEN_LENGTH) {
+                    word.appendCodePoint(cp);
+                }
+            } else if (cp == '-' && isJoiner(word, normalized, next)) {
+                // ISBN 中的连接符, 跳过
+                flushCjk(cjkRun, tokens, withUnigrams);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens, withUnigrams);
+            }
+            i = next;
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens, withUnigrams);
+        return tokens;
+    }
+
+    /**
+     * '-' 前一个字符是数字且后一个字符是字母或数字时 (如 ISBN 末位的 X), 视为连接符
+     */
+    private static boolean isJoiner(StringBuilder word, String text, int next) {
+        if (word.isEmpty() || !Character.isDigit(word.charAt(word.length() - 1)) || next >= text.length()) {
+            return false;
+        }
+        int following = text.codePointAt(next);
+        return Character.isLetterOrDigit(following) && !isCjk(following);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<String> run, List<String> tokens, boolean withUnigrams) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (run.size() == 1 || withUnigrams) {
+            tokens.addAll(run);
+        }
+        for (int i = 0; i + 1 < run.size(); i++) {
+            tokens.add(run.get(i) + run.get(i + 1));
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,118 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.metrics.ComponentStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图书目录版本号, 用于图书接口的 ETag / 条件 GET (If-None-Match -> 304)
+ *
+ * - 目录版本: 任何一本图书变更 (增删改、借还书库存变化、批量导入) 提交后加 1, 用于列表接口
+ * - 单本版本: 按 BookID 分到 book-stripes 个槽, 变更时把所在槽设为新的目录版本; 内存固定,
+ *   同槽的其他图书只会多一次重新获取, 不会返回过期数据
+ * - ETag 带上进程启动时间, 重启后旧的 ETag 全部失效
+ * - 先取版本再读数据: 读取期间发生的变更会在下一次请求时被发现; 提交与版本加 1 之间的极短窗口内
+ *   可能多返回一次 304, 与 BookCache 失效的时机相同
+ */
+@Component
+public class CatalogVersion implements ComponentStats {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalog = new AtomicLong();
+    private final AtomicLongArray books;
+
+    private final LongAdder bumps = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    @Autowired
+    public CatalogVersion(@Value("${library.catalog-version.book-stripes:4096}") int bookStripes) {
+        this.books = new AtomicLongArray(Math.max(bookStripes, 1));
+    }
+
+    /**
+     * 图书列表的当前版本 (ETag 的内容, 不含引号)
+     */
+    public String catalogTag() {
+        return "c" + epoch + "." + catalog.get();
+    }
+
+    /**
+     * 单本图书的当前版本 (ETag 的内容, 不含引号)
+     */
+    public String bookTag(Integer bookId) {
+        return "b" + epoch + "." + books.get(stripe(bookId));
+    }
+
+    /**
+     * 记录一次 304 响应
+     */
+    public void notModified() {
+        notModified.increment();
+    }
+
+    /**
+     * 图书变更提交后更新版本
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        bump(List.of(event.bookId()));
+    }
+
+    /**
+     * 批量导入提交后每块更新一次目录版本
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        List<Integer> bookIds = new ArrayList<>(event.createdBookIds());
+        bookIds.addAll(event.mergedBookIds());
+        bump(bookIds);
+    }
+
+    @Override
+    public String statsName() {
+        return "catalog-version";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("bumps", "notModified");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", catalog.get());
+        stats.put("bumps", bumps.sum());
+        stats.put("notModified", notModified.sum());
+        return stats;
+    }
+
+    private void bump(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        long version = catalog.incrementAndGet();
+        for (Integer bookId : bookIds) {
+            // 只增不减: 并发更新同一个槽时保留较大的版本
+            books.accumulateAndGet(stripe(bookId), version, Math::max);
+        }
+        bumps.increment();
+    }
+
+    private int stripe(Integer bookId) {
+        return Math.floorMod(bookId, books.length());
+    }
+}
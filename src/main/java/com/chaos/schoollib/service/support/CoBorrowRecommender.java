@@ -0,0 +1,651 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.event.BorrowedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于共同借阅的图书推荐 (item-to-item)
+ *
+ * - 模型: 两本书的相似度 = 同时借过两本书的用户数 / sqrt(借过 A 的用户数 * 借过 B 的用户数) (余弦),
+ *   每本书只保存相似度最高的 neighbors 本 (稀疏近邻表)
+ * - 应用启动完成后在后台线程 recommender-refresh 中按 RecordID 分页读取借阅关系, 再用 ForkJoinPool
+ *   按图书分段并行计算全部近邻表; 每个用户只取最近借的 max-history 本书, 避免借书极多的用户让计算量平方增长
+ * - 增量更新: 借书提交后事件先入队, 由同一个后台线程每 refresh-ms 批量处理, 只重算这批借书涉及的图书
+ *   (新借的书和这些用户借过的书); 其他图书的近邻表在下次涉及时更新
+ * - 推荐: 取用户最近借的 seed-books 本书, 按近邻相似度加权 (越近的书权重越高) 合并, 排除已借过的书;
+ *   全部在内存中完成, 不查数据库
+ * - 冷启动: 近邻不够时, 从热门图书 (借阅人数最多) 中补充与最近借的书同分类或同标签的, 仍不够再补全站热门
+ * - 模型结构只由后台线程 (及其等待的 ForkJoin 任务) 修改, 查询只读取发布出来的不可变数组
+ */
+@Slf4j
+@Component
+public class CoBorrowRecommender implements ComponentStats {
+
+    public enum State {
+        EMPTY, BUILDING, READY, FAILED
+    }
+
+    /**
+     * 推荐来源
+     */
+    public enum Source {
+        CO_BORROW("co-borrow"),
+        SIMILAR("same-tag-or-category"),
+        POPULAR("popular");
+
+        private final String label;
+
+        Source(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 一条推荐
+     * @param bookId 图书ID
+     * @param score  共同借阅时为加权相似度, 热门补充时为借阅人数
+     * @param source 推荐来源
+     */
+    public record Recommendation(int bookId, double score, Source source) {
+    }
+
+    /**
+     * 一本书的近邻 (按相似度从高到低)
+     */
+    private record Neighbors(int[] bookIds, float[] scores) {
+    }
+
+    /**
+     * 热门图书 (按借阅人数从多到少)
+     */
+    private record Popular(int[] bookIds, int[] borrowers) {
+    }
+
+    private static final int FORK_THRESHOLD = 256;
+
+    private final BorrowRecordMapper borrowRecordMapper;
+    private final BookMapper bookMapper;
+    private final TagFacetIndex facetIndex;
+    private final boolean enabled;
+    private final int neighborCount;
+    private final int maxHistory;
+    private final int seedBooks;
+    private final int pageSize;
+    private final long refreshMillis;
+    private final int popularSize;
+
+    // ========== 模型 (只由后台线程修改) ==========
+    private final Map<Integer, Integer> bookIndex = new HashMap<>();
+    private final IntList indexToBook = new IntList();
+    private final List<IntList> bookUsers = new ArrayList<>();
+    private final Map<Integer, Integer> userIndex = new HashMap<>();
+    private final IntList indexToUser = new IntList();
+    private final List<IntList> userBooks = new ArrayList<>();
+    private final ThreadLocal<int[]> coCounts = ThreadLocal.withInitial(() -> new int[0]);
+    private volatile long pairs;
+
+    // ========== 发布给查询线程 ==========
+    private final Map<Integer, Neighbors> neighbors = new ConcurrentHashMap<>();
+    private final Map<Integer, int[]> historyByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, String> categories = new ConcurrentHashMap<>();
+    private volatile Popular popular = new Popular(new int[0], new int[0]);
+    private volatile int bookCount;
+
+    private final Queue<BorrowedEvent> queued = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> staleBooks = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService refresher;
+    private final ForkJoinPool pool;
+    private volatile State state = State.EMPTY;
+    private volatile int watermark;
+    private volatile long buildMillis;
+    private volatile long lastBatchMillis;
+
+    private final LongAdder recommendations = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedLoans = new LongAdder();
+    private final LongAdder recomputedBooks = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    @Autowired
+    public CoBorrowRecommender(BorrowRecordMapper borrowRecordMapper,
+                               BookMapper bookMapper,
+                               TagFacetIndex facetIndex,
+                               @Value("${library.recommendation.enabled:true}") boolean enabled,
+                               @Value("${library.recommendation.neighbors:20}") int neighborCount,
+                               @Value("${library.recommendation.max-history:100}") int maxHistory,
+                               @Value("${library.recommendation.seed-books:5}") int seedBooks,
+                               @Value("${library.recommendation.page-size:5000}") int pageSize,
+                               @Value("${library.recommendation.refresh-ms:1000}") long refreshMillis,
+                               @Value("${library.recommendation.parallelism:0}") int parallelism,
+                               @Value("${library.recommendation.popular-size:1000}") int popularSize) {
+        this.borrowRecordMapper = borrowRecordMapper;
+        this.bookMapper = bookMapper;
+        this.facetIndex = facetIndex;
+        this.enabled = enabled;
+        this.neighborCount = Math.max(neighborCount, 1);
+        this.maxHistory = Math.max(maxHistory, 1);
+        this.seedBooks = Math.max(seedBooks, 1);
+        this.pageSize = Math.max(pageSize, 1);
+        this.refreshMillis = Math.max(refreshMillis, 1);
+        this.popularSize = Math.max(popularSize, 1);
+        this.refresher = enabled
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("recommender-refresh-"))
+                : null;
+        this.pool = enabled
+                ? new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors())
+                : null;
+    }
+
+    /**
+     * 应用启动完成后构建模型, 之后定期处理新的借书; 两者在同一个线程中执行, 不会交错
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        refresher.execute(this::build);
+        refresher.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 借书提交后入队, 由后台线程批量处理
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBorrowed(BorrowedEvent event) {
+        if (enabled) {
+            queued.add(event);
+        }
+    }
+
+    /**
+     * 图书修改 / 删除后重新读取分类
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (enabled && event.type() != BookChangedEvent.Type.STOCK_CHANGED) {
+            staleBooks.add(event.bookId());
+        }
+    }
+
+    /**
+     * 批量导入的新书读取分类 (合并的图书只有库存变化)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (enabled) {
+            staleBooks.addAll(event.createdBookIds());
+        }
+    }
+
+    /**
+     * 为用户推荐图书
+     * @param userId 用户ID
+     * @param size   最多返回的条数
+     * @return 推荐结果, 共同借阅在前, 之后是同分类 / 同标签的热门图书和全站热门图书
+     */
+    public List<Recommendation> recommend(Integer userId, int size) {
+        recommendations.increment();
+        int[] history = historyByUser.getOrDefault(userId, new int[0]);
+        Set<Integer> excluded = new HashSet<>();
+        for (int bookId : history) {
+            excluded.add(bookId);
+        }
+        int seeds = Math.min(seedBooks, history.length);
+
+        // 1. 最近借的书的近邻加权合并, 第 i 近的书权重 1 / (i + 1)
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i = 0; i < seeds; i++) {
+            Neighbors near = neighbors.get(history[history.length - 1 - i]);
+            if (near == null) {
+                continue;
+            }
+            double weight = 1.0 / (i + 1);
+            for (int j = 0; j < near.bookIds().length; j++) {
+                if (!excluded.contains(near.bookIds()[j])) {
+                    scores.merge(near.bookIds()[j], weight * near.scores()[j], Double::sum);
+                }
+            }
+        }
+        List<Recommendation> result = new ArrayList<>(size);
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(size)
+                .forEach(entry -> result.add(new Recommendation(entry.getKey(), entry.getValue(), Source.CO_BORROW)));
+        if (result.size() >= size) {
+            return result;
+        }
+
+        // 2. 冷启动: 与最近借的书同分类或同标签的热门图书, 再补全站热门
+        fallbacks.increment();
+        result.forEach(recommendation -> excluded.add(recommendation.bookId()));
+        Set<String> seedCategories = new HashSet<>();
+        Set<Integer> seedTags = new HashSet<>();
+        for (int i = 0; i < seeds; i++) {
+            int seed = history[history.length - 1 - i];
+            String category = categories.get(seed);
+            if (category != null) {
+                seedCategories.add(category);
+            }
+            seedTags.addAll(facetIndex.tagsOf(seed));
+        }
+        Popular hot = popular;
+        if (!seedCategories.isEmpty() || !seedTags.isEmpty()) {
+            for (int i = 0; i < hot.bookIds().length && result.size() < size; i++) {
+                int bookId = hot.bookIds()[i];
+                if (!excluded.contains(bookId)
+                        && (seedCategories.contains(categories.get(bookId)) || facetIndex.hasAnyTag(bookId, seedTags))) {
+                    result.add(new Recommendation(bookId, hot.borrowers()[i], Source.SIMILAR));
+                    excluded.add(bookId);
+                }
+            }
+        }
+        for (int i = 0; i < hot.bookIds().length && result.size() < size; i++) {
+            int bookId = hot.bookIds()[i];
+            if (excluded.add(bookId)) {
+                result.add(new Recommendation(bookId, hot.borrowers()[i], Source.POPULAR));
+            }
+        }
+        return result;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String statsName() {
+        return "recommendations";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.recommendation";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("recommendations", "fallbacks", "batches", "batchedLoans", "recomputedBooks", "refreshFailures");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("users", historyByUser.size());
+        stats.put("books", bookCount);
+        stats.put("loans", pairs);
+        stats.put("neighborLists", neighbors.size());
+        stats.put("watermark", watermark);
+        stats.put("queued", queued.size());
+        stats.put("recommendations", recommendations.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        stats.put("batches", batches.sum());
+        stats.put("batchedLoans", batchedLoans.sum());
+        stats.put("recomputedBooks", recomputedBooks.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("buildMillis", buildMillis);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        return stats;
+    }
+
+    /**
+     * 以最大 RecordID 为水位线分页读取借阅关系, 读取分类后并行计算全部近邻表
+     */
+    public void build() {
+        long start = System.nanoTime();
+        state = State.BUILDING;
+        try {
+            Integer maxRecordId = borrowRecordMapper.findMaxRecordId();
+            int limit = maxRecordId == null ? 0 : maxRecordId;
+            int after = 0;
+            List<BorrowRecord> page;
+            do {
+                page = borrowRecordMapper.findLoanPairs(after, limit, pageSize);
+                for (BorrowRecord record : page) {
+                    addLoan(record.getUserID(), record.getBookID());
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getRecordID();
+                }
+            } while (page.size() == pageSize);
+            watermark = limit;
+
+            List<Integer> allBooks = new ArrayList<>(bookIndex.keySet());
+            for (int from = 0; from < allBooks.size(); from += pageSize) {
+                loadCategories(allBooks.subList(from, Math.min(from + pageSize, allBooks.size())));
+            }
+            int[] targets = new int[indexToBook.size()];
+            Arrays.setAll(targets, i -> i);
+            recompute(targets);
+            for (int user = 0; user < indexToUser.size(); user++) {
+                publishHistory(user);
+            }
+            publishPopular();
+            state = State.READY;
+            log.info("recommendation model built: {} users, {} books, {} loans in {} ms", indexToUser.size(),
+                    indexToBook.size(), pairs, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException ex) {
+            // 数据库不可用时只根据启动之后的借书推荐
+            state = State.FAILED;
+            log.warn("failed to build recommendation model", ex);
+        } finally {
+            buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 批量处理入队的借书: 只重算涉及的图书
+     */
+    void refresh() {
+        if (queued.isEmpty() && staleBooks.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Set<Integer> touchedUsers = new HashSet<>();
+            Set<Integer> affected = new HashSet<>();
+            Set<Integer> newBooks = new HashSet<>();
+            int loans = 0;
+            BorrowedEvent event;
+            while ((event = queued.poll()) != null) {
+                if (event.recordId() != null && event.recordId() <= watermark) {
+                    continue;
+                }
+                loans++;
+                if (!bookIndex.containsKey(event.bookId())) {
+                    newBooks.add(event.bookId());
+                }
+                int user = addLoan(event.userId(), event.bookId());
+                touchedUsers.add(user);
+                IntList books = userBooks.get(user);
+                for (int i = 0; i < books.size(); i++) {
+                    affected.add(books.get(i));
+                }
+            }
+
+            Set<Integer> reload = new HashSet<>(newBooks);
+            for (Integer bookId : staleBooks) {
+                staleBooks.remove(bookId);
+                reload.add(bookId);
+            }
+            if (!reload.isEmpty()) {
+                loadCategories(new ArrayList<>(reload));
+            }
+            if (!affected.isEmpty()) {
+                recompute(affected.stream().mapToInt(Integer::intValue).toArray());
+                touchedUsers.forEach(this::publishHistory);
+                publishPopular();
+            }
+            batches.increment();
+            batchedLoans.add(loans);
+        } catch (RuntimeException ex) {
+            refreshFailures.increment();
+            log.warn("failed to refresh recommendation model", ex);
+        } finally {
+            lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 记录一次借阅; 同一本书再借只调整顺序, 超过 max-history 时移除最早的一本
+     * @return 用户的内部编号
+     */
+    private int addLoan(Integer userId, Integer bookId) {
+        int user = userIndex.computeIfAbsent(userId, id -> {
+            indexToUser.add(id);
+            userBooks.add(new IntList());
+            return indexToUser.size() - 1;
+        });
+        int book = bookIndex.computeIfAbsent(bookId, id -> {
+            indexToBook.add(id);
+            bookUsers.add(new IntList());
+            return indexToBook.size() - 1;
+        });
+        IntList books = userBooks.get(user);
+        if (books.remove(book)) {
+            books.add(book);
+            return user;
+        }
+        books.add(book);
+        bookUsers.get(book).add(user);
+        pairs++;
+        if (books.size() > maxHistory) {
+            int oldest = books.removeAt(0);
+            bookUsers.get(oldest).remove(user);
+            pairs--;
+        }
+        return user;
+    }
+
+    /**
+     * 并行重算若干图书的近邻表
+     */
+    private void recompute(int[] targets) {
+        if (targets.length == 0) {
+            return;
+        }
+        pool.invoke(new NeighborTask(targets, 0, targets.length));
+        recomputedBooks.add(targets.length);
+    }
+
+    /**
+     * 单本书: 遍历借过它的用户借过的其他书, 累加共同借阅次数后按余弦相似度取前 neighbors 本
+     */
+    private void computeNeighbors(int book) {
+        int[] co = coCounts.get();
+        if (co.length < indexToBook.size()) {
+            co = new int[indexToBook.size() + indexToBook.size() / 4];
+            coCounts.set(co);
+        }
+        IntList users = bookUsers.get(book);
+        IntList touched = new IntList();
+        for (int i = 0; i < users.size(); i++) {
+            IntList books = userBooks.get(users.get(i));
+            for (int j = 0; j < books.size(); j++) {
+                int other = books.get(j);
+                if (other != book && co[other]++ == 0) {
+                    touched.add(other);
+                }
+            }
+        }
+
+        int bookId = indexToBook.get(book);
+        if (touched.size() == 0) {
+            neighbors.remove(bookId);
+            return;
+        }
+        // 小顶堆保留相似度最高的 neighbors 本
+        PriorityQueue<long[]> top = new PriorityQueue<>(neighborCount + 1,
+                (a, b) -> Double.compare(Double.longBitsToDouble(a[1]), Double.longBitsToDouble(b[1])));
+        double self = users.size();
+        for (int i = 0; i < touched.size(); i++) {
+            int other = touched.get(i);
+            double similarity = co[other] / Math.sqrt(self * bookUsers.get(other).size());
+            co[other] = 0;
+            if (top.size() < neighborCount) {
+                top.add(new long[]{other, Double.doubleToLongBits(similarity)});
+            } else if (similarity > Double.longBitsToDouble(top.peek()[1])) {
+                top.poll();
+                top.add(new long[]{other, Double.doubleToLongBits(similarity)});
+            }
+        }
+        int[] ids = new int[top.size()];
+        float[] scores = new float[top.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            long[] entry = top.poll();
+            ids[i] = indexToBook.get((int) entry[0]);
+            scores[i] = (float) Double.longBitsToDouble(entry[1]);
+        }
+        neighbors.put(bookId, new Neighbors(ids, scores));
+    }
+
+    private void publishHistory(int user) {
+        IntList books = userBooks.get(user);
+        int[] history = new int[books.size()];
+        for (int i = 0; i < history.length; i++) {
+            history[i] = indexToBook.get(books.get(i));
+        }
+        historyByUser.put(indexToUser.get(user), history);
+    }
+
+    /**
+     * 借阅人数最多的 popular-size 本书
+     */
+    private void publishPopular() {
+        PriorityQueue<int[]> top = new PriorityQueue<>(popularSize + 1, (a, b) -> a[1] != b[1]
+                ? Integer.compare(a[1], b[1])
+                : Integer.compare(b[0], a[0]));
+        for (int book = 0; book < indexToBook.size(); book++) {
+            int borrowers = bookUsers.get(book).size();
+            if (borrowers == 0) {
+                continue;
+            }
+            top.add(new int[]{indexToBook.get(book), borrowers});
+            if (top.size() > popularSize) {
+                top.poll();
+            }
+        }
+        int[] ids = new int[top.size()];
+        int[] counts = new int[top.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            int[] entry = top.poll();
+            ids[i] = entry[0];
+            counts[i] = entry[1];
+        }
+        popular = new Popular(ids, counts);
+        bookCount = indexToBook.size();
+    }
+
+    private void loadCategories(Collection<Integer> bookIds) {
+        List<Integer> ids = List.copyOf(bookIds);
+        List<Book> books = bookMapper.findByIds(ids);
+        Set<Integer> missing = new HashSet<>(ids);
+        for (Book book : books) {
+            missing.remove(book.getBookID());
+            if (book.getCategory() != null) {
+                categories.put(book.getBookID(), book.getCategory());
+            }
+        }
+        // 已删除的图书不再作为冷启动候选
+        missing.forEach(categories::remove);
+    }
+
+    /**
+     * 按图书分段的 ForkJoin 任务
+     */
+    private final class NeighborTask extends RecursiveAction {
+
+        private final int[] targets;
+        private final int from;
+        private final int to;
+
+        NeighborTask(int[] targets, int from, int to) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FORK_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    computeNeighbors(targets[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new NeighborTask(targets, from, middle), new NeighborTask(targets, middle, to));
+        }
+    }
+
+    /**
+     * 简单的 int 动态数组, 避免装箱
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int removeAt(int index) {
+            int removed = values[index];
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return removed;
+        }
+
+        boolean remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
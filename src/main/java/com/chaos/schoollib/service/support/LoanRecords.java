@@ -0,0 +1,32 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.BorrowRecord;
+
+import java.time.LocalDateTime;
+
+/**
+ * 借阅记录构建工具
+ */
+public final class LoanRecords {
+
+    /**
+     * 默认借期 (天)
+     */
+    public static final int LOAN_DAYS = 30;
+
+    private LoanRecords() {
+    }
+
+    /**
+     * 新建一条 "借出中" 的借阅记录
+     */
+    public static BorrowRecord newLoan(Integer userId, Integer bookId, LocalDateTime borrowDate) {
+        BorrowRecord record = new BorrowRecord();
+        record.setUserID(userId);
+        record.setBookID(bookId);
+        record.setBorrowDate(borrowDate);
+        record.setDueDate(borrowDate.plusDays(LOAN_DAYS)); // 默认 30 天
+        record.setStatus("borrowed");
+        return record;
+    }
+}
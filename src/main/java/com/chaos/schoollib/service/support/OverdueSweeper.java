@@ -0,0 +1,231 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.event.ReturnedEvent;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 逾期处理: 把超过 DueDate 仍未归还的记录标记为 overdue
+ *
+ * - 定期扫描: 每 sweep-interval-ms 在 (Status, DueDate) 索引上按 (DueDate, RecordID) keyset 分块扫描已到期的
+ *   借出中记录, 每块用一条按主键的多行 UPDATE 标记, 每条语句自动提交, 只短暂锁住一小批行
+ * - 时间轮: 扫描时顺便把下一次扫描之前到期的记录读入内存时间轮 (精度 tick-ms), 到点后批量标记,
+ *   不必等下一次扫描; 到期前归还的记录 (ReturnedEvent) 从时间轮中撤销, 漏撤销的在 UPDATE 时按 Status 过滤
+ * - 扫描和时间轮在同一个后台线程 overdue-sweeper 中执行, 时间轮不需要加锁
+ * - 新借的书到期时间远在下一次扫描之后 (借期 30 天), 由之后的扫描预加载
+ */
+@Slf4j
+@Component
+public class OverdueSweeper implements ComponentStats {
+
+    private final BorrowRecordMapper borrowRecordMapper;
+    private final boolean enabled;
+    private final long sweepIntervalMillis;
+    private final int chunkSize;
+    private final long tickMillis;
+    private final TimingWheel wheel;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * 已经预加载到时间轮的到期时间上界 (只在 sweeper 线程中访问)
+     */
+    private LocalDateTime scheduledUntil;
+    private volatile int wheelSize;
+    private volatile long lastSweepMillis;
+
+    private final LongAdder sweeps = new LongAdder();
+    private final LongAdder sweepChunks = new LongAdder();
+    private final LongAdder sweptOverdue = new LongAdder();
+    private final LongAdder wheelOverdue = new LongAdder();
+    private final LongAdder wheelScheduled = new LongAdder();
+    private final LongAdder wheelCancelled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public OverdueSweeper(BorrowRecordMapper borrowRecordMapper,
+                          @Value("${library.overdue.enabled:true}") boolean enabled,
+                          @Value("${library.overdue.sweep-interval-ms:300000}") long sweepIntervalMillis,
+                          @Value("${library.overdue.chunk-size:500}") int chunkSize,
+                          @Value("${library.overdue.tick-ms:1000}") long tickMillis,
+                          @Value("${library.overdue.wheel-size:512}") int wheelSize) {
+        this.borrowRecordMapper = borrowRecordMapper;
+        this.enabled = enabled;
+        this.sweepIntervalMillis = Math.max(sweepIntervalMillis, 1);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.tickMillis = Math.max(tickMillis, 1);
+        this.wheel = new TimingWheel(this.tickMillis, wheelSize, System.currentTimeMillis());
+        this.sweeper = enabled
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("overdue-sweeper-"))
+                : null;
+    }
+
+    /**
+     * 应用启动完成后立即扫描一次, 之后定期扫描并推进时间轮
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        sweeper.scheduleWithFixedDelay(this::sweep, 0, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        sweeper.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public String statsName() {
+        return "overdue";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("sweeps", "sweepChunks", "sweptOverdue", "wheelScheduled", "wheelOverdue", "wheelCancelled", "failures");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sweeps", sweeps.sum());
+        stats.put("sweepChunks", sweepChunks.sum());
+        stats.put("sweptOverdue", sweptOverdue.sum());
+        stats.put("wheelScheduled", wheelScheduled.sum());
+        stats.put("wheelPending", wheelSize);
+        stats.put("wheelOverdue", wheelOverdue.sum());
+        stats.put("wheelCancelled", wheelCancelled.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastSweepMillis", lastSweepMillis);
+        return stats;
+    }
+
+    /**
+     * 还书提交后从时间轮中撤销 (只有下一次扫描之前到期、还没到期的记录可能在时间轮中)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReturned(ReturnedEvent event) {
+        if (!enabled || event.dueDate() == null) {
+            return;
+        }
+        long due = toEpochMillis(event.dueDate());
+        long now = System.currentTimeMillis();
+        if (due <= now || due > now + sweepIntervalMillis + tickMillis) {
+            return;
+        }
+        try {
+            sweeper.execute(() -> {
+                if (wheel.cancel(event.recordId(), due)) {
+                    wheelCancelled.increment();
+                    wheelSize = wheel.size();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // 正在关闭
+        }
+    }
+
+    /**
+     * 1. 分块标记已到期的记录  2. 预加载下一次扫描之前到期的记录到时间轮
+     */
+    void sweep() {
+        long start = System.nanoTime();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long flipped = 0;
+            LocalDateTime afterDue = null;
+            Integer afterId = null;
+            List<BorrowRecord> page;
+            do {
+                page = borrowRecordMapper.findDueLoans(null, now, afterDue, afterId, chunkSize);
+                if (!page.isEmpty()) {
+                    flipped += borrowRecordMapper.markOverdue(page.stream().map(BorrowRecord::getRecordID).toList());
+                    sweepChunks.increment();
+                    BorrowRecord last = page.get(page.size() - 1);
+                    afterDue = last.getDueDate();
+                    afterId = last.getRecordID();
+                }
+            } while (page.size() == chunkSize);
+            sweptOverdue.add(flipped);
+
+            // 时间轮覆盖到下一次扫描之后一个 tick, 已预加载过的时间段不重复读取
+            LocalDateTime from = scheduledUntil != null && scheduledUntil.isAfter(now) ? scheduledUntil : now;
+            LocalDateTime until = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis + tickMillis));
+            afterDue = null;
+            afterId = null;
+            do {
+                page = borrowRecordMapper.findDueLoans(from, until, afterDue, afterId, chunkSize);
+                for (BorrowRecord record : page) {
+                    wheel.schedule(record.getRecordID(), toEpochMillis(record.getDueDate()));
+                }
+                wheelScheduled.add(page.size());
+                if (!page.isEmpty()) {
+                    BorrowRecord last = page.get(page.size() - 1);
+                    afterDue = last.getDueDate();
+                    afterId = last.getRecordID();
+                }
+            } while (page.size() == chunkSize);
+            scheduledUntil = until;
+            wheelSize = wheel.size();
+            sweeps.increment();
+            if (flipped > 0) {
+                log.info("marked {} loans overdue", flipped);
+            }
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.warn("overdue sweep failed", ex);
+        } finally {
+            lastSweepMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 推进时间轮, 到期的记录按 chunk-size 分批标记
+     */
+    void tick() {
+        List<Integer> expired = wheel.advance(System.currentTimeMillis());
+        wheelSize = wheel.size();
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            for (int from = 0; from < expired.size(); from += chunkSize) {
+                wheelOverdue.add(borrowRecordMapper.markOverdue(
+                        expired.subList(from, Math.min(from + chunkSize, expired.size()))));
+            }
+        } catch (RuntimeException ex) {
+            // 没标记上的记录由下一次扫描处理
+            failures.increment();
+            log.warn("failed to mark {} loans overdue from timing wheel", expired.size(), ex);
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,376 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.common.toolkit.TransactionHooks;
+import com.chaos.schoollib.entity.Reservation;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.ReservationMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预约队列: 还书时把这本书直接交给排在最前面的预约者, 而不是放回公共库存
+ *
+ * - Reservation 表是唯一权威来源; 内存中每本书一个按 ReservationID 排序的 FIFO 队列, 另有 (用户, 图书) -> 保留中的预约,
+ *   启动时分页从表中加载, 之后随取消 / 交付 / 借走在事务提交后更新 (新预约在事务内、图书行锁下入队)
+ * - 交付: 按队列顺序对预约做条件更新 waiting -> held (设置 HoldUntil), 第一条成功的即为接收者;
+ *   内存中的条目只是提示, 已取消的条目更新失败后直接丢弃, 所以加载期间的并发修改不会造成错误
+ * - 没有排队者时才原子化加库存, 并发布库存变化事件、归还闸门许可
+ * - 保留到期未借走的预约由后台线程 reservation-expiry 标记为 expired, 这本书继续交给下一位
+ * - 内存队列尚未就绪 (加载中或加载失败) 时查询直接走数据库索引
+ */
+@Slf4j
+@Component
+public class ReservationQueue implements ComponentStats {
+
+    public enum State {
+        EMPTY, BUILDING, READY, FAILED
+    }
+
+    /**
+     * 内存队列不可用时每次从数据库读取的队首条数
+     */
+    private static final int DB_CANDIDATES = 16;
+
+    private final ReservationMapper reservationMapper;
+    private final BookMapper bookMapper;
+    private final StockGate stockGate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long holdMinutes;
+    private final long expireCheckMillis;
+    private final int pageSize;
+    private final ScheduledExecutorService expirer;
+
+    /**
+     * bookId -> (reservationId -> userId), 按 ReservationID 即预约先后排序
+     */
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, Integer>> waiting = new ConcurrentHashMap<>();
+    /**
+     * (userId, bookId) -> 保留中的 reservationId
+     */
+    private final ConcurrentHashMap<Long, Integer> holds = new ConcurrentHashMap<>();
+
+    private volatile State state = State.EMPTY;
+    private volatile long buildMillis;
+
+    private final LongAdder handedOff = new LongAdder();
+    private final LongAdder restocked = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder staleSkipped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Autowired
+    public ReservationQueue(ReservationMapper reservationMapper,
+                            BookMapper bookMapper,
+                            StockGate stockGate,
+                            TransactionTemplate transactionTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${library.reservation.enabled:true}") boolean enabled,
+                            @Value("${library.reservation.hold-minutes:2880}") long holdMinutes,
+                            @Value("${library.reservation.expire-check-ms:60000}") long expireCheckMillis,
+                            @Value("${library.reservation.page-size:5000}") int pageSize) {
+        this.reservationMapper = reservationMapper;
+        this.bookMapper = bookMapper;
+        this.stockGate = stockGate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.holdMinutes = Math.max(holdMinutes, 1);
+        this.expireCheckMillis = Math.max(expireCheckMillis, 1);
+        this.pageSize = Math.max(pageSize, 1);
+        this.expirer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("reservation-expiry-"));
+    }
+
+    /**
+     * 应用启动完成后在后台加载内存队列 (关闭时一直查库), 并开始定期处理到期的保留
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            expirer.execute(this::build);
+        }
+        expirer.scheduleWithFixedDelay(this::expireHolds, expireCheckMillis, expireCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expirer.shutdownNow();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String statsName() {
+        return "reservations";
+    }
+
+    @Override
+    public String meterName() {
+        return "library.reservation";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("handedOff", "restocked", "claimed", "expired", "staleSkipped", "failures");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        stats.put("books", waiting.size());
+        stats.put("waiting", waiting.values().stream().mapToInt(Map::size).sum());
+        stats.put("held", holds.size());
+        stats.put("handedOff", handedOff.sum());
+        stats.put("restocked", restocked.sum());
+        stats.put("claimed", claimed.sum());
+        stats.put("expired", expired.sum());
+        stats.put("staleSkipped", staleSkipped.sum());
+        stats.put("failures", failures.sum());
+        stats.put("buildMillis", buildMillis);
+        return stats;
+    }
+
+    /**
+     * 新预约加入队尾 (在预约事务中、持有图书行锁时调用)
+     */
+    public void enqueue(Reservation reservation) {
+        // 与 removeWaiting 删除空队列互斥, 不能拆成 computeIfAbsent + put
+        waiting.compute(reservation.getBookID(), (id, queue) -> {
+            ConcurrentSkipListMap<Integer, Integer> target = queue == null ? new ConcurrentSkipListMap<>() : queue;
+            target.put(reservation.getReservationID(), reservation.getUserID());
+            return target;
+        });
+    }
+
+    /**
+     * 预约取消后从队列和保留中移除
+     */
+    public void remove(Reservation reservation) {
+        removeWaiting(reservation.getBookID(), reservation.getReservationID());
+        holds.remove(key(reservation.getUserID(), reservation.getBookID()), reservation.getReservationID());
+    }
+
+    /**
+     * 用户为这本书保留中的预约
+     * @return reservationId, 没有时为 null
+     */
+    public Integer heldReservation(Integer userId, Integer bookId) {
+        if (state == State.READY) {
+            return holds.get(key(userId, bookId));
+        }
+        Reservation held = reservationMapper.findHeld(userId, bookId);
+        return held == null ? null : held.getReservationID();
+    }
+
+    /**
+     * 借走保留的图书: held -> fulfilled (在借书事务中调用)
+     * @return false 表示保留已过期或已取消
+     */
+    public boolean fulfil(Integer reservationId, Integer userId, Integer bookId) {
+        Long key = key(userId, bookId);
+        if (reservationMapper.updateStatus(reservationId, List.of("held"), "fulfilled") == 0) {
+            holds.remove(key, reservationId);
+            return false;
+        }
+        TransactionHooks.afterCommit(() -> {
+            holds.remove(key, reservationId);
+            claimed.increment();
+        });
+        return true;
+    }
+
+    /**
+     * 一本书回到馆内 (还书 / 取消保留 / 保留过期): 交给队首的预约者, 没有排队者时放回公共库存
+     * 在调用方的事务中执行
+     * @return 接收这本书的预约, 放回库存时为 null
+     */
+    public Reservation handOffOrRestock(Integer bookId) {
+        Reservation receiver = handOff(bookId);
+        if (receiver == null) {
+            restock(List.of(bookId));
+        }
+        return receiver;
+    }
+
+    /**
+     * 把一本回到馆内的书交给队首的预约者 (在调用方的事务中执行)
+     * 先锁住图书行再查找排队者, 与预约时的库存检查 (同样在行锁下) 串行化:
+     * 否则并发的预约可能读到还书前的库存 0 后入队, 这本书却被放回了公共库存。
+     * 按 ReservationID 向后翻页, 本次已跳过的预约不会再被取出, 所以一定会结束
+     * @return 接收这本书的预约, 没有排队者时为 null (调用方需要自行 restock)
+     */
+    public Reservation handOff(Integer bookId) {
+        bookMapper.lockStockById(bookId);
+        LocalDateTime holdUntil = LocalDateTime.now().plusMinutes(holdMinutes);
+        int afterId = 0;
+        List<Reservation> candidates;
+        do {
+            candidates = candidates(bookId, afterId);
+            for (Reservation candidate : candidates) {
+                if (reservationMapper.hold(candidate.getReservationID(), holdUntil) == 1) {
+                    candidate.setStatus("held");
+                    candidate.setHoldUntil(holdUntil);
+                    TransactionHooks.afterCommit(() -> {
+                        removeWaiting(bookId, candidate.getReservationID());
+                        holds.put(key(candidate.getUserID(), bookId), candidate.getReservationID());
+                        handedOff.increment();
+                    });
+                    return candidate;
+                }
+                // 已被取消, 或已被并发的还书交付
+                staleSkipped.increment();
+                removeWaiting(bookId, candidate.getReservationID());
+                afterId = candidate.getReservationID();
+            }
+        } while (candidates.size() == DB_CANDIDATES);
+        return null;
+    }
+
+    /**
+     * 没有排队者的图书各放回一本到公共库存, 多本时用一条多行更新 (在调用方的事务中执行)
+     * @param bookIds 图书ID, 互不相同
+     */
+    public void restock(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        if (bookIds.size() == 1) {
+            bookMapper.increaseStock(bookIds.get(0));
+        } else {
+            bookMapper.increaseStockByIds(bookIds);
+        }
+        for (Integer bookId : bookIds) {
+            eventPublisher.publishEvent(new BookChangedEvent(bookId, BookChangedEvent.Type.STOCK_CHANGED));
+        }
+        TransactionHooks.afterCommit(() -> {
+            bookIds.forEach(stockGate::release);
+            restocked.add(bookIds.size());
+        });
+    }
+
+    /**
+     * 排在 afterId 之后的若干条预约 (内存队列就绪时不查库)
+     * 查库时是加锁读: 读到的是已提交的最新状态, 而不是事务快照中已被取消或交付的预约
+     */
+    private List<Reservation> candidates(Integer bookId, int afterId) {
+        if (state != State.READY) {
+            return reservationMapper.findWaitingByBook(bookId, afterId, DB_CANDIDATES);
+        }
+        ConcurrentSkipListMap<Integer, Integer> queue = waiting.get(bookId);
+        if (queue == null) {
+            return List.of();
+        }
+        List<Reservation> candidates = new ArrayList<>(DB_CANDIDATES);
+        for (Map.Entry<Integer, Integer> entry : queue.tailMap(afterId, false).entrySet()) {
+            Reservation reservation = new Reservation();
+            reservation.setReservationID(entry.getKey());
+            reservation.setUserID(entry.getValue());
+            reservation.setBookID(bookId);
+            candidates.add(reservation);
+            if (candidates.size() == DB_CANDIDATES) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 分页加载所有排队中和保留中的预约
+     */
+    void build() {
+        long start = System.nanoTime();
+        state = State.BUILDING;
+        try {
+            int afterId = 0;
+            int loaded = 0;
+            List<Reservation> page;
+            do {
+                page = reservationMapper.findActivePage(afterId, pageSize);
+                for (Reservation reservation : page) {
+                    if ("held".equals(reservation.getStatus())) {
+                        holds.put(key(reservation.getUserID(), reservation.getBookID()), reservation.getReservationID());
+                    } else {
+                        enqueue(reservation);
+                    }
+                }
+                loaded += page.size();
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getReservationID();
+                }
+            } while (page.size() == pageSize);
+            buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            state = State.READY;
+            log.info("reservation queue loaded: {} active reservations in {} ms", loaded, buildMillis);
+        } catch (RuntimeException ex) {
+            state = State.FAILED;
+            failures.increment();
+            log.warn("failed to load reservation queue, falling back to database lookups", ex);
+        }
+    }
+
+    /**
+     * 保留到期: held -> expired, 每条在单独的事务中交给下一位
+     */
+    void expireHolds() {
+        try {
+            List<Reservation> page;
+            do {
+                page = reservationMapper.findExpiredHolds(LocalDateTime.now(), pageSize);
+                for (Reservation reservation : page) {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (reservationMapper.updateStatus(reservation.getReservationID(), List.of("held"), "expired") == 0) {
+                            return;
+                        }
+                        handOffOrRestock(reservation.getBookID());
+                        TransactionHooks.afterCommit(() -> {
+                            holds.remove(key(reservation.getUserID(), reservation.getBookID()), reservation.getReservationID());
+                            expired.increment();
+                        });
+                    });
+                }
+            } while (page.size() == pageSize);
+        } catch (RuntimeException ex) {
+            failures.increment();
+            log.warn("failed to expire reservation holds", ex);
+        }
+    }
+
+    private void removeWaiting(Integer bookId, Integer reservationId) {
+        waiting.computeIfPresent(bookId, (id, queue) -> {
+            queue.remove(reservationId);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+
+    private static Long key(Integer userId, Integer bookId) {
+        return ((long) userId << 32) | (bookId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,217 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内库存闸门 (借书准入)
+ *
+ * 每本书一个无锁许可计数器, 首次访问时由 Book.Stock 初始化。
+ * 借书前先在这里扣减许可: 已借完的图书直接拒绝, 不进入事务, 也不去争抢 Book 行锁。
+ *
+ * 数据库仍是库存的唯一权威来源, 闸门只做准入过滤:
+ * - 借书失败 (事务回滚) 时归还许可
+ * - 数据库判定库存不足时丢弃计数器, 下次访问重新从数据库初始化
+ * - 还书提交后增加许可; 修改/删除图书提交后丢弃计数器
+ * - 初始化与还书 / 失效并发: release / invalidate 递增该书所在槽的代数, 初始化读库前后代数不同时
+ *   丢弃读到的值重新读取 (读库之后才提交的还书不会因为计数器尚不存在而丢失)
+ * - 计数器为 0 时每 recheck-ms 最多回表确认一次, 数据库仍有库存时重新初始化
+ * 在这些规则下, 计数器只可能多发许可 (由数据库兜底), 少发最多持续 recheck-ms。
+ */
+@Component
+public class StockGate implements ComponentStats {
+
+    private static final int GENERATION_STRIPES = 1024;
+    private static final int SEED_ATTEMPTS = 3;
+    private static final Permits NOT_FOUND = new Permits(0);
+
+    private final BookMapper bookMapper;
+    private final boolean enabled;
+    private final long recheckNanos;
+
+    private final ConcurrentHashMap<Integer, Permits> permits = new ConcurrentHashMap<>();
+    /**
+     * 按 BookID 分槽的代数, 只增不减; 同槽的其他图书只会多一次重新读取
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder seeded = new LongAdder();
+    private final LongAdder staleSeeds = new LongAdder();
+    private final LongAdder rechecked = new LongAdder();
+
+    @Autowired
+    public StockGate(BookMapper bookMapper,
+                     @Value("${library.stock-gate.enabled:true}") boolean enabled,
+                     @Value("${library.stock-gate.recheck-ms:1000}") long recheckMs) {
+        this.bookMapper = bookMapper;
+        this.enabled = enabled;
+        this.recheckNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(recheckMs, 0));
+    }
+
+    /**
+     * 一本书的许可计数, 以及计数为 0 时上一次回表确认的时间
+     */
+    private static final class Permits {
+
+        private final AtomicInteger available;
+        private final AtomicLong checkedAt;
+
+        Permits(int stock) {
+            this.available = new AtomicInteger(stock);
+            this.checkedAt = new AtomicLong(System.nanoTime());
+        }
+    }
+
+    /**
+     * 尝试获取一个借书许可
+     * @param bookId 图书ID
+     * @return true 表示可以继续借书流程; false 表示已借完或图书不存在
+     */
+    public boolean tryAcquire(Integer bookId) {
+        if (!enabled) {
+            return true;
+        }
+        Permits counter = permits.get(bookId);
+        if (counter == null) {
+            counter = seed(bookId);
+            if (counter == NOT_FOUND) {
+                rejected.increment();
+                return false;
+            }
+            if (counter == null) {
+                // 初始化一直与还书 / 失效冲突: 直接放行, 由数据库判定
+                admitted.increment();
+                return true;
+            }
+        }
+        while (true) {
+            int available = counter.available.get();
+            if (available <= 0) {
+                if (recheck(bookId, counter)) {
+                    return tryAcquire(bookId);
+                }
+                rejected.increment();
+                return false;
+            }
+            if (counter.available.compareAndSet(available, available - 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还一个许可 (借书失败回滚, 或还书提交后)
+     * 计数器不存在时递增代数, 让正在读库初始化的线程丢弃可能过期的库存值
+     */
+    public void release(Integer bookId) {
+        if (!enabled) {
+            return;
+        }
+        Permits counter = permits.get(bookId);
+        if (counter != null) {
+            counter.available.incrementAndGet();
+        } else {
+            generations.incrementAndGet(stripe(bookId));
+        }
+    }
+
+    /**
+     * 丢弃计数器, 下次访问时重新从数据库初始化
+     * (图书修改 / 删除, 或数据库与闸门不一致时)
+     */
+    public void invalidate(Integer bookId) {
+        generations.incrementAndGet(stripe(bookId));
+        permits.remove(bookId);
+    }
+
+    @Override
+    public String statsName() {
+        return "stock-gate";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("admitted", "rejected", "seeded", "staleSeeds", "rechecked");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("trackedBooks", permits.size());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("seeded", seeded.sum());
+        stats.put("staleSeeds", staleSeeds.sum());
+        stats.put("rechecked", rechecked.sum());
+        return stats;
+    }
+
+    /**
+     * 从数据库初始化计数器; 读库前后该书所在槽的代数变化时 (期间有还书 / 失效) 丢弃读到的值重新读取
+     * 先放入再检查代数: 放入之后的 release 直接加到计数器上, 放入之前的由代数检查发现
+     * @return 计数器; 图书不存在时为 NOT_FOUND; 多次冲突时为 null
+     */
+    private Permits seed(Integer bookId) {
+        int slot = stripe(bookId);
+        for (int attempt = 0; attempt < SEED_ATTEMPTS; attempt++) {
+            long generation = generations.get(slot);
+            Integer stock = bookMapper.findStockById(bookId);
+            if (stock == null) {
+                return NOT_FOUND;
+            }
+            Permits counter = new Permits(stock);
+            Permits existing = permits.putIfAbsent(bookId, counter);
+            if (existing != null) {
+                return existing;
+            }
+            if (generations.get(slot) == generation) {
+                seeded.increment();
+                return counter;
+            }
+            permits.remove(bookId, counter);
+            staleSeeds.increment();
+        }
+        return null;
+    }
+
+    /**
+     * 计数器为 0 时回表确认 (每本书每 recheck-ms 最多一次, 同一时刻只有一个线程去查)
+     * @return true 表示数据库仍有库存, 计数器已丢弃, 调用方应重新获取许可
+     */
+    private boolean recheck(Integer bookId, Permits counter) {
+        long checkedAt = counter.checkedAt.get();
+        long now = System.nanoTime();
+        if (now - checkedAt < recheckNanos || !counter.checkedAt.compareAndSet(checkedAt, now)) {
+            return false;
+        }
+        rechecked.increment();
+        Integer stock = bookMapper.findStockById(bookId);
+        if (stock == null || stock <= 0) {
+            return false;
+        }
+        generations.incrementAndGet(stripe(bookId));
+        permits.remove(bookId, counter);
+        return true;
+    }
+
+    private static int stripe(Integer bookId) {
+        return Math.floorMod(bookId, GENERATION_STRIPES);
+    }
+}
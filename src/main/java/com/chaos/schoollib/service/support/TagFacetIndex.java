@@ -0,0 +1,433 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.dto.TagCountDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.entity.BookTag;
+import com.chaos.schoollib.entity.Tag;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.event.BooksImportedEvent;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.TagMapper;
+import com.chaos.schoollib.metrics.ComponentStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签分面索引 (压缩位图, 替代 Book / BookTag / Tag 多表 JOIN + GROUP BY)
+ *
+ * - 每个标签一个 RoaringBitmap (带该标签的 BookID), 另有全部图书和有库存图书 (Stock > 0) 两个位图;
+ *   "标签 A AND 标签 B AND 有库存" 就是几个位图求交, 分面计数是结果与各标签位图的交集基数
+ * - 应用启动完成后在后台线程 tag-facet-refresh 中按 BookID 分页全量构建
+ * - 增量更新: 图书增删改、库存变化 (BookChangedEvent)、图书标签变化提交后只把 BookID 标记为脏,
+ *   由同一个后台线程每 refresh-ms 批量回表 (Book + BookTag 各一条 IN 查询) 后按最新数据改写位图;
+ *   抢书时同一本书的多次库存变化合并为一次查询。库存闸门的计数只是上界, 因此有无库存以数据库为准
+ * - 构建期间产生的脏数据在构建完成后才处理, 不会被构建时读到的旧数据覆盖
+ * - 位图不是线程安全的, 查询持读锁, 修改持写锁
+ */
+@Slf4j
+@Component
+public class TagFacetIndex implements ComponentStats {
+
+    public enum State {
+        EMPTY, BUILDING, READY, FAILED
+    }
+
+    /**
+     * 分面查询结果
+     * @param bookIds      本页 BookID (升序)
+     * @param hasMore      是否还有下一页
+     * @param total        符合条件的图书总数
+     * @param inStockCount 其中有库存的图书数
+     * @param tagCounts    各标签在结果中的图书数 (按数量从多到少, 不含 0)
+     */
+    public record FacetResult(List<Integer> bookIds, boolean hasMore, long total, long inStockCount,
+                              List<TagCountDTO> tagCounts) {
+    }
+
+    private final BookMapper bookMapper;
+    private final TagMapper tagMapper;
+    private final boolean enabled;
+    private final int pageSize;
+    private final long refreshMillis;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap books = new RoaringBitmap();
+    private final RoaringBitmap available = new RoaringBitmap();
+    private final Map<Integer, RoaringBitmap> booksByTag = new HashMap<>();
+    private final Map<Integer, String> tagNames = new ConcurrentHashMap<>();
+
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService refresher;
+    private volatile State state = State.EMPTY;
+    private volatile long buildMillis;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshedBooks = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    @Autowired
+    public TagFacetIndex(BookMapper bookMapper,
+                         TagMapper tagMapper,
+                         @Value("${library.tag-facets.enabled:true}") boolean enabled,
+                         @Value("${library.tag-facets.page-size:5000}") int pageSize,
+                         @Value("${library.tag-facets.refresh-ms:100}") long refreshMillis) {
+        this.bookMapper = bookMapper;
+        this.tagMapper = tagMapper;
+        this.enabled = enabled;
+        this.pageSize = Math.max(pageSize, 1);
+        this.refreshMillis = Math.max(refreshMillis, 1);
+        this.refresher = enabled
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("tag-facet-refresh-"))
+                : null;
+    }
+
+    /**
+     * 应用启动完成后构建索引, 之后定期处理脏数据; 两者在同一个线程中执行, 不会交错
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        refresher.execute(this::build);
+        refresher.scheduleWithFixedDelay(this::refreshDirty, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * 图书增删改 / 库存变化提交后标记为脏
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        markDirty(event.bookId());
+    }
+
+    /**
+     * 批量导入提交后标记新建和合并 (库存变化) 的图书
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        if (enabled) {
+            dirty.addAll(event.createdBookIds());
+            dirty.addAll(event.mergedBookIds());
+        }
+    }
+
+    /**
+     * 标记图书需要重新读取 (图书标签变化提交后由 TagService 调用)
+     */
+    public void markDirty(Integer bookId) {
+        if (enabled) {
+            dirty.add(bookId);
+        }
+    }
+
+    /**
+     * 新建标签提交后登记名称
+     */
+    public void putTag(Tag tag) {
+        tagNames.put(tag.getTagID(), tag.getName());
+    }
+
+    /**
+     * 删除标签提交后移除 (映射已由外键级联删除)
+     */
+    public void removeTag(Integer tagId) {
+        tagNames.remove(tagId);
+        lock.writeLock().lock();
+        try {
+            booksByTag.remove(tagId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 分面查询
+     * @param tagIds  标签ID, 之间为 AND 关系; 为空表示不按标签过滤
+     * @param inStock 是否只要有库存的图书
+     * @param cursor  上一页最后一本书的 BookID, 第一页为 null
+     * @param size    每页数量
+     */
+    public FacetResult browse(Collection<Integer> tagIds, boolean inStock, Integer cursor, int size) {
+        queries.increment();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matched = books;
+            if (tagIds != null && !tagIds.isEmpty()) {
+                List<RoaringBitmap> selected = new ArrayList<>(tagIds.size());
+                for (Integer tagId : new HashSet<>(tagIds)) {
+                    RoaringBitmap tagged = booksByTag.get(tagId);
+                    if (tagged == null) {
+                        return new FacetResult(List.of(), false, 0, 0, List.of());
+                    }
+                    selected.add(tagged);
+                }
+                matched = selected.size() == 1
+                        ? selected.get(0)
+                        : FastAggregation.and(selected.toArray(new RoaringBitmap[0]));
+            }
+            if (inStock) {
+                matched = RoaringBitmap.and(matched, available);
+            }
+
+            long total = matched.getLongCardinality();
+            long inStockCount = inStock ? total : RoaringBitmap.andCardinality(matched, available);
+            List<TagCountDTO> tagCounts = new ArrayList<>();
+            for (Map.Entry<Integer, RoaringBitmap> entry : booksByTag.entrySet()) {
+                long count = RoaringBitmap.andCardinality(matched, entry.getValue());
+                if (count > 0) {
+                    tagCounts.add(new TagCountDTO(entry.getKey(), tagNames.get(entry.getKey()), count));
+                }
+            }
+            tagCounts.sort(Comparator.comparingLong(TagCountDTO::getCount).reversed()
+                    .thenComparing(TagCountDTO::getTagID));
+
+            // 游标分页: 从 cursor 之后的第一个 BookID 开始, 多取一个用于判断是否还有下一页
+            List<Integer> page = new ArrayList<>(size + 1);
+            PeekableIntIterator iterator = matched.getIntIterator();
+            if (cursor != null) {
+                if (cursor == Integer.MAX_VALUE) {
+                    return new FacetResult(List.of(), false, total, inStockCount, tagCounts);
+                }
+                iterator.advanceIfNeeded(cursor + 1);
+            }
+            while (iterator.hasNext() && page.size() <= size) {
+                page.add(iterator.next());
+            }
+            boolean hasMore = page.size() > size;
+            return new FacetResult(hasMore ? page.subList(0, size) : page, hasMore, total, inStockCount, tagCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 一本书的标签ID (逐个标签位图判断, 标签数量不多)
+     */
+    public List<Integer> tagsOf(int bookId) {
+        lock.readLock().lock();
+        try {
+            List<Integer> tagIds = new ArrayList<>();
+            for (Map.Entry<Integer, RoaringBitmap> entry : booksByTag.entrySet()) {
+                if (entry.getValue().contains(bookId)) {
+                    tagIds.add(entry.getKey());
+                }
+            }
+            return tagIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 图书是否带有其中任意一个标签
+     */
+    public boolean hasAnyTag(int bookId, Collection<Integer> tagIds) {
+        if (tagIds.isEmpty()) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            for (Integer tagId : tagIds) {
+                RoaringBitmap tagged = booksByTag.get(tagId);
+                if (tagged != null && tagged.contains(bookId)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String statsName() {
+        return "tag-facets";
+    }
+
+    @Override
+    public Set<String> counters() {
+        return Set.of("queries", "refreshes", "refreshedBooks", "refreshFailures");
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.name());
+        lock.readLock().lock();
+        try {
+            long sizeInBytes = books.getLongSizeInBytes() + available.getLongSizeInBytes();
+            for (RoaringBitmap tagged : booksByTag.values()) {
+                sizeInBytes += tagged.getLongSizeInBytes();
+            }
+            stats.put("books", books.getLongCardinality());
+            stats.put("inStock", available.getLongCardinality());
+            stats.put("tags", booksByTag.size());
+            stats.put("sizeInBytes", sizeInBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("dirty", dirty.size());
+        stats.put("queries", queries.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshedBooks", refreshedBooks.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("buildMillis", buildMillis);
+        return stats;
+    }
+
+    /**
+     * 按 BookID 分页读取全部图书及其标签并建索引
+     */
+    void build() {
+        long start = System.nanoTime();
+        state = State.BUILDING;
+        try {
+            for (Tag tag : tagMapper.findAll()) {
+                putTag(tag);
+            }
+            BookQueryDTO query = new BookQueryDTO();
+            List<Book> page;
+            do {
+                page = bookMapper.findPage(query, pageSize);
+                if (!page.isEmpty()) {
+                    load(page, page.stream().map(Book::getBookID).toList(), false);
+                    query.setCursor(page.get(page.size() - 1).getBookID());
+                }
+            } while (page.size() == pageSize);
+
+            lock.writeLock().lock();
+            try {
+                // 构建期间被删除的标签
+                booksByTag.keySet().retainAll(tagNames.keySet());
+                // 有库存位图通常是大段连续的 1, 转成 run 容器更省内存
+                books.runOptimize();
+                available.runOptimize();
+                booksByTag.values().forEach(RoaringBitmap::runOptimize);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            state = State.READY;
+            log.info("tag facet index built: {} books, {} tags in {} ms", books.getLongCardinality(),
+                    booksByTag.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException ex) {
+            state = State.FAILED;
+            log.warn("failed to build tag facet index", ex);
+        } finally {
+            buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 处理脏数据: 每批最多 page-size 本书, 回表后按最新数据改写
+     */
+    void refreshDirty() {
+        while (!dirty.isEmpty()) {
+            List<Integer> bookIds = new ArrayList<>();
+            Iterator<Integer> iterator = dirty.iterator();
+            while (iterator.hasNext() && bookIds.size() < pageSize) {
+                bookIds.add(iterator.next());
+                // 先移除再读库: 读库之后再次被标记的图书会留到下一批
+                iterator.remove();
+            }
+            try {
+                load(bookMapper.findByIds(bookIds), bookIds, true);
+                refreshes.increment();
+                refreshedBooks.add(bookIds.size());
+            } catch (RuntimeException ex) {
+                dirty.addAll(bookIds);
+                refreshFailures.increment();
+                log.warn("failed to refresh tag facet index for {} books", bookIds.size(), ex);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 用数据库中的最新数据改写一批图书
+     * @param found   查到的图书 (不在其中的视为已删除)
+     * @param bookIds 本批全部 BookID
+     * @param replace 是否可能已在索引中 (全量构建时为 false, 不需要先清除旧标签)
+     */
+    private void load(List<Book> found, List<Integer> bookIds, boolean replace) {
+        Map<Integer, List<Integer>> tagsByBook = new HashMap<>();
+        for (BookTag bookTag : tagMapper.findBookTagsByBookIds(bookIds)) {
+            tagsByBook.computeIfAbsent(bookTag.getBookID(), key -> new ArrayList<>()).add(bookTag.getTagID());
+        }
+        Map<Integer, Book> booksById = new HashMap<>();
+        for (Book book : found) {
+            booksById.put(book.getBookID(), book);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Integer bookId : bookIds) {
+                Book book = booksById.get(bookId);
+                List<Integer> tagIds = tagsByBook.getOrDefault(bookId, List.of());
+                if (replace) {
+                    for (Map.Entry<Integer, RoaringBitmap> entry : booksByTag.entrySet()) {
+                        if (book == null || !tagIds.contains(entry.getKey())) {
+                            entry.getValue().remove(bookId);
+                        }
+                    }
+                }
+                if (book == null) {
+                    books.remove(bookId);
+                    available.remove(bookId);
+                    continue;
+                }
+                books.add(bookId);
+                if (book.getStock() != null && book.getStock() > 0) {
+                    available.add(bookId);
+                } else {
+                    available.remove(bookId);
+                }
+                for (Integer tagId : tagIds) {
+                    booksByTag.computeIfAbsent(tagId, key -> new RoaringBitmap()).add(bookId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
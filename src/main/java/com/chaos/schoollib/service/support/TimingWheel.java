@@ -0,0 +1,123 @@
+package com.chaos.schoollib.service.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 哈希时间轮 (单线程使用, 不加锁)
+ *
+ * - 时间按 tick 划分, wheelSize 个槽循环使用; 到期时间落在第 t 个 tick 的条目放在 t % wheelSize 号槽,
+ *   槽内记录绝对 tick, 一圈以后才到期的条目在经过时跳过
+ * - schedule / advance 都是 O(1) 均摊, 不随条目总数增长; 精度为一个 tick;
+ *   cancel 只扫描到期时间所在的一个槽
+ * - advance 跨过整圈以上 (例如线程停顿) 时每个槽只访问一次
+ */
+final class TimingWheel {
+
+    private final long tickMillis;
+    private final Slot[] slots;
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        this.tickMillis = Math.max(tickMillis, 1);
+        this.slots = new Slot[Math.max(wheelSize, 1)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        this.currentTick = nowMillis / this.tickMillis;
+    }
+
+    /**
+     * 登记一个到期时间; 已经过去的时间在下一个 tick 到期
+     */
+    void schedule(int id, long deadlineMillis) {
+        long tick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        slots[(int) (tick % slots.length)].add(id, tick);
+        size++;
+    }
+
+    /**
+     * 撤销一个到期时间 (deadlineMillis 与 schedule 时相同)
+     * @return false 表示条目不存在 (已经到期, 或登记时已经过期而被放到了下一个 tick)
+     */
+    boolean cancel(int id, long deadlineMillis) {
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (tick <= currentTick || !slots[(int) (tick % slots.length)].remove(id, tick)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * 推进到当前时间
+     * @return 这段时间内到期的 ID
+     */
+    List<Integer> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        if (target <= currentTick) {
+            return List.of();
+        }
+        List<Integer> expired = new ArrayList<>();
+        long steps = Math.min(target - currentTick, slots.length);
+        for (long step = 1; step <= steps; step++) {
+            size -= slots[(int) ((currentTick + step) % slots.length)].expire(target, expired);
+        }
+        currentTick = target;
+        return expired;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 一个槽: ID 和到期 tick 两个并行数组, 到期的条目原地压缩掉
+     */
+    private static final class Slot {
+
+        private int[] ids = new int[4];
+        private long[] ticks = new long[4];
+        private int count;
+
+        void add(int id, long tick) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                ticks = Arrays.copyOf(ticks, count * 2);
+            }
+            ids[count] = id;
+            ticks[count] = tick;
+            count++;
+        }
+
+        boolean remove(int id, long tick) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id && ticks[i] == tick) {
+                    count--;
+                    ids[i] = ids[count];
+                    ticks[i] = ticks[count];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int expire(long target, List<Integer> expired) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (ticks[i] <= target) {
+                    expired.add(ids[i]);
+                } else {
+                    ids[kept] = ids[i];
+                    ticks[kept] = ticks[i];
+                    kept++;
+                }
+            }
+            int removed = count - kept;
+            count = kept;
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.chaos.schoollib.config;
+
+import com.chaos.schoollib.common.toolkit.ReadRouting;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 读写分离路由: 两个内嵌 H2 分别作为主库和从库, 复制由测试手动拷贝心跳行模拟
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_MS = 5000;
+    private static final int USER_ID = 7;
+
+    private JdbcDataSource primary;
+    private JdbcDataSource replica;
+    private final AtomicReference<Integer> currentUser = new AtomicReference<>();
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = h2("primary");
+        replica = h2("replica");
+        routing = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica), MAX_LAG_MS, 100, currentUser::get);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+        }
+    }
+
+    @Test
+    void readsGoToReplicaOnlyWhenHintedAndCaughtUp() throws SQLException {
+        // 还没有心跳: 从库状态未知, 读也走主库
+        assertThat(readTarget()).isEqualTo("primary");
+
+        routing.heartbeat();
+        replicate();
+        routing.heartbeat();
+
+        assertThat(target()).isEqualTo("primary");
+        assertThat(readTarget()).isEqualTo("replica");
+        try (ReadRouting.Scope ignored = ReadRouting.primary()) {
+            assertThat(readTarget()).isEqualTo("primary");
+        }
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() throws SQLException {
+        routing.heartbeat();
+        setReplicaHeartbeat(System.currentTimeMillis() - MAX_LAG_MS - 1000);
+        routing.heartbeat();
+
+        assertThat(readTarget()).isEqualTo("primary");
+        assertThat(routing.getStats()).containsEntry("lagFallbacks", 1L).containsEntry("replica-0.healthy", 0);
+    }
+
+    @Test
+    void writerReadsPrimaryUntilReplicaCatchesUp() throws Exception {
+        routing.heartbeat();
+        replicate();
+        routing.heartbeat();
+        currentUser.set(USER_ID);
+
+        Thread.sleep(5);
+        routing.recordWrite(USER_ID);
+        assertThat(readTarget()).isEqualTo("primary");
+        assertThat(routing.getStats()).containsEntry("readYourWritesFallbacks", 1L);
+
+        // 其他用户不受影响
+        currentUser.set(USER_ID + 1);
+        assertThat(readTarget()).isEqualTo("replica");
+
+        // 写入之后的心跳复制到从库, 该用户重新读从库
+        currentUser.set(USER_ID);
+        Thread.sleep(5);
+        routing.heartbeat();
+        replicate();
+        routing.heartbeat();
+        assertThat(readTarget()).isEqualTo("replica");
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() throws SQLException {
+        routing.heartbeat();
+        replicate();
+        routing.heartbeat();
+        ReplicaRoutingTransactionManager transactionManager = new ReplicaRoutingTransactionManager(routing);
+
+        DefaultTransactionDefinition readOnly = new DefaultTransactionDefinition();
+        readOnly.setReadOnly(true);
+        String readOnlyTarget = new TransactionTemplate(transactionManager, readOnly).execute(status -> boundTarget());
+        String readWriteTarget = new TransactionTemplate(transactionManager).execute(status -> boundTarget());
+        assertThat(readOnlyTarget).isEqualTo("replica");
+        assertThat(readWriteTarget).isEqualTo("primary");
+
+        // 读写事务中的只读子事务沿用主库连接
+        DefaultTransactionDefinition nested = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRED);
+        nested.setReadOnly(true);
+        String nestedTarget = new TransactionTemplate(transactionManager).execute(status ->
+                new TransactionTemplate(transactionManager, nested).execute(inner -> boundTarget()));
+        assertThat(nestedTarget).isEqualTo("primary");
+    }
+
+    private static JdbcDataSource h2(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE ReplicaHeartbeat (ID INT PRIMARY KEY, Ts BIGINT NOT NULL)");
+        }
+        return dataSource;
+    }
+
+    /**
+     * 把主库的心跳行拷贝到从库 (模拟复制追上)
+     */
+    private void replicate() throws SQLException {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT Ts FROM ReplicaHeartbeat WHERE ID = 1")) {
+            assertThat(rs.next()).isTrue();
+            setReplicaHeartbeat(rs.getLong(1));
+        }
+    }
+
+    private void setReplicaHeartbeat(long ts) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             PreparedStatement statement = connection.prepareStatement("MERGE INTO ReplicaHeartbeat (ID, Ts) KEY (ID) VALUES (1, ?)")) {
+            statement.setLong(1, ts);
+            statement.executeUpdate();
+        }
+    }
+
+    private String readTarget() throws SQLException {
+        try (ReadRouting.Scope ignored = ReadRouting.replica()) {
+            return target();
+        }
+    }
+
+    private String target() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            return name(connection);
+        }
+    }
+
+    private String boundTarget() {
+        try {
+            return name(DataSourceUtils.getConnection(routing));
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String name(Connection connection) throws SQLException {
+        return connection.getMetaData().getURL().contains("mem:replica") ? "replica" : "primary";
+    }
+}
@@ -0,0 +1,243 @@
+package com.chaos.schoollib.load;
+
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.load.LoadProfile.Operation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 开学抢书并发压测
+ * 应用启动在随机端口上, 连接内嵌 H2 (MySQL 兼容模式); 每个工作线程对应一个学生账号,
+ * 按 load.mix 的权重混合执行登录 / 图书查询 / 借书 / 还书, 结束后输出吞吐量、
+ * p50/p99/p999 延迟和错误码统计, 并校验每本书 Stock + 借出中记录数 + 保留中的预约数 == Total。
+ * <p>
+ * 运行: mvn -P loadtest [-Dload.threads=200 -Dload.duration-seconds=60 ...], 参数见 {@link LoadProfile}
+ */
+@Tag("load")
+@ActiveProfiles("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BorrowContentionLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Map<String, LongAdder> resultCodes = new ConcurrentHashMap<>();
+
+    @Test
+    void borrowAndReturnUnderContention() throws Exception {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        seed(profile);
+
+        // 所有工作线程登录完成后同时开始计时
+        CyclicBarrier startLine = new CyclicBarrier(profile.threads() + 1);
+        List<Future<Map<Operation, LatencyRecorder>>> futures = new ArrayList<>();
+        ExecutorService executor = newExecutor(profile);
+        for (int i = 1; i <= profile.threads(); i++) {
+            String username = "load_user_" + i;
+            futures.add(executor.submit(() -> runWorker(profile, username, startLine)));
+        }
+        executor.shutdown();
+        startLine.await(5, TimeUnit.MINUTES);
+        long start = System.nanoTime();
+        assertThat(executor.awaitTermination(profile.duration().toSeconds() + 60, TimeUnit.SECONDS)).isTrue();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        Map<Operation, LatencyRecorder> latencies = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, LatencyRecorder>> future : futures) {
+            future.get().forEach((operation, recorder) ->
+                    latencies.computeIfAbsent(operation, key -> new LatencyRecorder()).merge(recorder));
+        }
+        report(profile, latencies, elapsedSeconds);
+
+        // 1. 库存守恒: 每本书 Stock + 借出中 (含逾期) 记录数 + 为预约者保留的本数 == Total
+        List<String> broken = jdbcTemplate.query("""
+                        SELECT * FROM (
+                            SELECT b.BookID, b.Stock, b.Total,
+                                   (SELECT COUNT(*) FROM BorrowRecord r WHERE r.BookID = b.BookID AND r.ActiveLoan = 1) AS Active,
+                                   (SELECT COUNT(*) FROM Reservation v WHERE v.BookID = b.BookID AND v.Status = 'held') AS Held
+                            FROM Book b
+                        ) c
+                        WHERE c.Stock + c.Active + c.Held <> c.Total
+                        """,
+                (rs, rowNum) -> "book " + rs.getInt("BookID") + ": stock=" + rs.getInt("Stock")
+                        + " active=" + rs.getInt("Active") + " held=" + rs.getInt("Held") + " total=" + rs.getInt("Total"));
+        assertThat(broken).as("Stock + active loans + held reservations == Total").isEmpty();
+
+        // 2. 同一用户同一本书最多一条借出中 (含逾期) 记录
+        Integer duplicates = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM (
+                    SELECT UserID, BookID FROM BorrowRecord WHERE ActiveLoan = 1
+                    GROUP BY UserID, BookID HAVING COUNT(*) > 1
+                ) d
+                """, Integer.class);
+        assertThat(duplicates).as("duplicate active loans").isZero();
+    }
+
+    private void seed(LoadProfile profile) {
+        List<Object[]> books = new ArrayList<>(profile.books());
+        for (int i = 1; i <= profile.books(); i++) {
+            int stock = i <= profile.hotBooks() ? profile.hotStock() : profile.stock();
+            books.add(new Object[]{"Load Book " + i, "Author " + (i % 50), "Load Press",
+                    String.format("LT%011d", i), "Category " + (i % 10), stock, stock});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO Book (Title, Author, Publisher, ISBN, Category, Stock, Total) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", books);
+
+        // BCrypt 只算一次, 所有压测账号共用同一个密码哈希
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> users = new ArrayList<>(profile.threads());
+        for (int i = 1; i <= profile.threads(); i++) {
+            users.add(new Object[]{"load_user_" + i, passwordHash});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO User (Username, Password, Role) VALUES (?, ?, 'student')", users);
+    }
+
+    private Map<Operation, LatencyRecorder> runWorker(LoadProfile profile, String username, CyclicBarrier startLine)
+            throws Exception {
+        Map<Operation, LatencyRecorder> latencies = new EnumMap<>(Operation.class);
+        List<Integer> heldRecords = new ArrayList<>();
+        String token = login(username).path("data").path("token").asText();
+        startLine.await();
+        long deadline = System.nanoTime() + profile.duration().toNanos();
+
+        while (System.nanoTime() < deadline) {
+            Operation operation = profile.nextOperation();
+            if (operation == Operation.RETURN && heldRecords.isEmpty()) {
+                operation = Operation.BORROW;
+            }
+
+            long begin = System.nanoTime();
+            JsonNode body;
+            try {
+                body = switch (operation) {
+                    case LOGIN -> login(username);
+                    case CATALOG -> browse(profile);
+                    case BORROW -> post("/api/borrow", Map.of("bookId", profile.nextBorrowBookId()), token);
+                    case RETURN -> post("/api/return", Map.of("recordId",
+                            heldRecords.remove(ThreadLocalRandom.current().nextInt(heldRecords.size()))), token);
+                };
+            } catch (Exception ex) {
+                count(operation, ex.getClass().getSimpleName());
+                continue;
+            }
+            latencies.computeIfAbsent(operation, key -> new LatencyRecorder()).record(System.nanoTime() - begin);
+
+            String code = body.path("code").asText("NO_CODE");
+            count(operation, code);
+            if (Result.SUCCESS_CODE.equals(code)) {
+                if (operation == Operation.LOGIN) {
+                    token = body.path("data").path("token").asText();
+                } else if (operation == Operation.BORROW) {
+                    heldRecords.add(body.path("data").path("recordID").asInt());
+                }
+            }
+        }
+        return latencies;
+    }
+
+    private JsonNode login(String username) throws Exception {
+        return post("/api/auth/login", Map.of("username", username, "password", PASSWORD), null);
+    }
+
+    private JsonNode browse(LoadProfile profile) throws Exception {
+        // 一半请求翻页浏览, 一半请求查看单本详情
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String path = random.nextBoolean()
+                ? "/api/books?size=20&cursor=" + random.nextInt(profile.books())
+                : "/api/books/" + (1 + random.nextInt(profile.books()));
+        return send(HttpRequest.newBuilder(uri(path)).GET().build());
+    }
+
+    private JsonNode post(String path, Object payload, String token) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return send(builder.build());
+    }
+
+    private JsonNode send(HttpRequest request) throws Exception {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            return objectMapper.createObjectNode().put("code", "HTTP_" + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void count(Operation operation, String code) {
+        resultCodes.computeIfAbsent(operation + " " + code, key -> new LongAdder()).increment();
+    }
+
+    private void report(LoadProfile profile, Map<Operation, LatencyRecorder> latencies, double elapsedSeconds) {
+        StringBuilder out = new StringBuilder("\n===== load test result =====\n")
+                .append(profile).append('\n')
+                .append(String.format("%-8s %10s %10s %10s %10s %10s%n", "op", "count", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)"));
+        long total = 0;
+        for (Map.Entry<Operation, LatencyRecorder> entry : latencies.entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            total += recorder.count();
+            out.append(String.format("%-8s %10d %10.1f %10.2f %10.2f %10.2f%n", entry.getKey(), recorder.count(),
+                    recorder.count() / elapsedSeconds, recorder.percentileMillis(50),
+                    recorder.percentileMillis(99), recorder.percentileMillis(99.9)));
+        }
+        out.append(String.format("total    %10d %10.1f%n", total, total / elapsedSeconds))
+                .append("----- result codes -----\n");
+        new TreeMap<>(resultCodes).forEach((key, count) -> out.append(key).append(" = ").append(count.sum()).append('\n'));
+        System.out.println(out);
+    }
+
+    /**
+     * 平台线程池或虚拟线程
+     */
+    private static ExecutorService newExecutor(LoadProfile profile) {
+        return profile.virtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(profile.threads());
+    }
+}
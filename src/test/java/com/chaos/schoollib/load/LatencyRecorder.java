@@ -0,0 +1,41 @@
+package com.chaos.schoollib.load;
+
+import java.util.Arrays;
+
+/**
+ * 单线程使用的延迟记录器 (纳秒), 压测结束后合并再计算分位数
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.size; i++) {
+            record(other.samples[i]);
+        }
+    }
+
+    int count() {
+        return size;
+    }
+
+    /**
+     * 返回分位数 (毫秒); 调用前会对样本排序
+     */
+    double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, size);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return samples[Math.max(0, Math.min(index, size - 1))] / 1_000_000.0;
+    }
+}
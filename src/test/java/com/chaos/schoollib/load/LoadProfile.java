@@ -0,0 +1,94 @@
+package com.chaos.schoollib.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测参数, 全部通过 -Dload.xxx 系统属性配置
+ * 例: mvn -P loadtest -Dload.threads=200 -Dload.virtual-threads=true -Dload.mix=login=1,catalog=49,borrow=25,return=25
+ */
+record LoadProfile(
+        int threads,
+        boolean virtualThreads,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        int books,
+        int hotBooks,
+        int hotStock,
+        int stock,
+        double hotRatio
+) {
+
+    enum Operation {
+        LOGIN, CATALOG, BORROW, RETURN
+    }
+
+    static LoadProfile fromSystemProperties() {
+        return new LoadProfile(
+                Integer.getInteger("load.threads", 64),
+                Boolean.parseBoolean(System.getProperty("load.virtual-threads", "false")),
+                Duration.ofSeconds(Integer.getInteger("load.duration-seconds", 20)),
+                parseMix(System.getProperty("load.mix", "login=2,catalog=58,borrow=20,return=20")),
+                Integer.getInteger("load.books", 500),
+                Integer.getInteger("load.hot-books", 5),
+                Integer.getInteger("load.hot-stock", 10),
+                Integer.getInteger("load.stock", 5),
+                Double.parseDouble(System.getProperty("load.hot-ratio", "0.8"))
+        );
+    }
+
+    /**
+     * 按权重随机选择下一个操作
+     */
+    Operation nextOperation() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    /**
+     * 借书目标: hotRatio 的概率落在前 hotBooks 本热门书上 (开学抢书)
+     */
+    int nextBorrowBookId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (hotBooks > 0 && random.nextDouble() < hotRatio) {
+            return 1 + random.nextInt(hotBooks);
+        }
+        return 1 + random.nextInt(books);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("load.mix 格式应为 op=weight,...: " + mix);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("load.mix 没有权重大于 0 的操作: " + mix);
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + threads + (virtualThreads ? " (virtual)" : "")
+                + ", duration=" + duration.toSeconds() + "s"
+                + ", mix=" + mix
+                + ", books=" + books + " (hot " + hotBooks + " x stock " + hotStock + ", others x " + stock + ")"
+                + ", hotRatio=" + hotRatio;
+    }
+}
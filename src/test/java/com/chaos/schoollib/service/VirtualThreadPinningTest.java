@@ -0,0 +1,165 @@
+package com.chaos.schoollib.service;
+
+import com.chaos.schoollib.common.convention.exception.ClientException;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.mapper.ReservationMapper;
+import com.chaos.schoollib.mapper.TagMapper;
+import com.chaos.schoollib.metrics.LibraryMetrics;
+import com.chaos.schoollib.service.impl.BorrowServiceImpl;
+import com.chaos.schoollib.service.support.BookCache;
+import com.chaos.schoollib.service.support.BorrowBatcher;
+import com.chaos.schoollib.service.support.BorrowLeaderboards;
+import com.chaos.schoollib.service.support.CatalogResponseCache;
+import com.chaos.schoollib.service.support.CatalogSearchIndex;
+import com.chaos.schoollib.service.support.CatalogVersion;
+import com.chaos.schoollib.service.support.CoBorrowRecommender;
+import com.chaos.schoollib.service.support.OverdueSweeper;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import com.chaos.schoollib.service.support.StockGate;
+import com.chaos.schoollib.service.support.TagFacetIndex;
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import com.chaos.schoollib.support.StubReservationMapper;
+import com.chaos.schoollib.support.StubTagMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 虚拟线程模式下借书 / 还书路径不能钉住载体线程 (synchronized 内阻塞)
+ * 用 JFR 的 jdk.VirtualThreadPinned 事件检测; Mapper 为内存实现, 库存更新时阻塞 1ms 模拟数据库往返,
+ * 提交后的事件由真实的监听方处理 (缓存失效等也在请求线程上执行)。
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int BOOK_ID = 1;
+
+    @ParameterizedTest(name = "batch={0}")
+    @ValueSource(booleans = {false, true})
+    void borrowAndReturnDoNotPinCarrierThreads(boolean batch) throws Exception {
+        StubBookMapper bookMapper = new StubBookMapper(TimeUnit.MILLISECONDS.toNanos(1));
+        bookMapper.addBook(BOOK_ID, 50);
+
+        List<RecordedEvent> pinned;
+        try (AnnotationConfigApplicationContext context = context(bookMapper, batch)) {
+            BorrowService borrowService = context.getBean(BorrowService.class);
+            BookCache bookCache = context.getBean(BookCache.class);
+            CatalogVersion catalogVersion = context.getBean(CatalogVersion.class);
+            CatalogResponseCache responseCache = context.getBean(CatalogResponseCache.class);
+            pinned = recordPinnedEvents(() -> {
+                try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int user = 1; user <= 200; user++) {
+                        int userId = user;
+                        executor.submit(() -> borrowAndReturn(borrowService, userId));
+                        // 同时读取图书详情 (GET /api/books/{id} 的缓存路径), 与借还书的缓存失效并发
+                        executor.submit(() -> responseCache.book(BOOK_ID, catalogVersion.bookTag(BOOK_ID),
+                                () -> bookCache.get(BOOK_ID)));
+                    }
+                }
+            });
+            // 监听方确实收到了借还书的库存变化事件
+            assertThat(catalogVersion.getStats().get("bumps")).isNotEqualTo(0L);
+        }
+
+        assertThat(pinned).as("pinned virtual threads:%n%s", pinned).isEmpty();
+        assertThat(bookMapper.findStockById(BOOK_ID)).isEqualTo(50);
+    }
+
+    /**
+     * 确认探针本身有效: synchronized 内 sleep 必然产生 jdk.VirtualThreadPinned
+     */
+    @Test
+    void probeDetectsPinnedCarrier() throws Exception {
+        Object monitor = new Object();
+        List<RecordedEvent> pinned = recordPinnedEvents(() -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                executor.submit(() -> {
+                    synchronized (monitor) {
+                        Thread.sleep(20);
+                    }
+                    return null;
+                });
+            }
+        });
+
+        assertThat(pinned).isNotEmpty();
+    }
+
+    /**
+     * 借还书服务与真实的事件监听方 (缓存失效、版本号、检索索引、排行榜、推荐、逾期时间轮等),
+     * 事件经 Spring 分发; 没有事务同步时 @TransactionalEventListener(fallbackExecution = true) 立即执行
+     */
+    private static AnnotationConfigApplicationContext context(StubBookMapper bookMapper, boolean batch) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "library.borrow.batch.enabled", batch,
+                "library.borrow.batch.window-ms", 2,
+                "library.borrow.batch.max-size", 16,
+                "library.borrow.batch.flush-threads", 2,
+                "library.reservation.enabled", false)));
+        context.registerBean(TransactionalEventListenerFactory.class);
+        context.registerBean(BookMapper.class, () -> bookMapper);
+        context.registerBean(BorrowRecordMapper.class, StubBorrowRecordMapper::new);
+        context.registerBean(ReservationMapper.class, StubReservationMapper::new);
+        context.registerBean(TagMapper.class, StubTagMapper::new);
+        context.registerBean(TransactionTemplate.class, () -> new TransactionTemplate(new NoOpTransactionManager()));
+        context.registerBean(ObjectMapper.class);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(LibraryMetrics.class, StockGate.class, BorrowBatcher.class, ReservationQueue.class,
+                BookCache.class, CatalogVersion.class, CatalogResponseCache.class, CatalogSearchIndex.class,
+                TagFacetIndex.class, BorrowLeaderboards.class, CoBorrowRecommender.class, OverdueSweeper.class,
+                BorrowServiceImpl.class);
+        context.refresh();
+        return context;
+    }
+
+    private static void borrowAndReturn(BorrowService borrowService, int userId) {
+        try {
+            BorrowRecord record = borrowService.borrowBook(userId, BOOK_ID);
+            borrowService.returnBook(userId, record.getRecordID());
+        } catch (ClientException ignored) {
+            // 库存不足属于预期结果
+        }
+    }
+
+    private static List<RecordedEvent> recordPinnedEvents(Runnable workload) throws Exception {
+        Path file = Files.createTempFile("pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            workload.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.chaos.schoollib.service.impl;
+
+import com.chaos.schoollib.common.convention.errorcode.BookErrorCode;
+import com.chaos.schoollib.common.convention.errorcode.BorrowErrorCode;
+import com.chaos.schoollib.common.result.Result;
+import com.chaos.schoollib.dto.MultiBorrowRequestDTO;
+import com.chaos.schoollib.dto.MultiItemResultDTO;
+import com.chaos.schoollib.dto.MultiResultDTO;
+import com.chaos.schoollib.metrics.LibraryMetrics;
+import com.chaos.schoollib.service.support.BorrowBatcher;
+import com.chaos.schoollib.service.support.ReservationQueue;
+import com.chaos.schoollib.service.support.StockGate;
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import com.chaos.schoollib.support.StubReservationMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 一次借多本: 每一项的错误码与单本接口一致
+ */
+class BorrowServiceImplTest {
+
+    private static final int USER_ID = 7;
+    private static final int MISSING_BOOK_ID = 99;
+
+    private final StubBookMapper bookMapper = new StubBookMapper(0);
+    private final StubBorrowRecordMapper borrowRecordMapper = new StubBorrowRecordMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BorrowBatcher borrowBatcher;
+    private ReservationQueue reservationQueue;
+    private BorrowServiceImpl borrowService;
+
+    @BeforeEach
+    void setUp() {
+        bookMapper.addBook(1, 1);
+        bookMapper.addBook(2, 0);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        ApplicationEventPublisher eventPublisher = event -> {
+        };
+        StockGate stockGate = new StockGate(bookMapper, false, 1000);
+        borrowBatcher = new BorrowBatcher(bookMapper, borrowRecordMapper, transactionTemplate, eventPublisher,
+                false, 5, 32, 1, 5000);
+        reservationQueue = new ReservationQueue(new StubReservationMapper(), bookMapper, stockGate,
+                transactionTemplate, eventPublisher, false, 60, 60_000, 100);
+        borrowService = new BorrowServiceImpl(bookMapper, borrowRecordMapper, stockGate, borrowBatcher,
+                reservationQueue, transactionTemplate, eventPublisher, new ObjectMapper(), new LibraryMetrics(registry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowBatcher.shutdown();
+        reservationQueue.shutdown();
+    }
+
+    @Test
+    void nonexistentBookIsReportedAsNotFound() {
+        MultiResultDTO result = borrowService.borrowBooks(USER_ID, request(1, MISSING_BOOK_ID, 2));
+
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getItems()).extracting(MultiItemResultDTO::getCode).containsExactly(
+                Result.SUCCESS_CODE, BookErrorCode.BOOK_NOT_FOUND.code(), BorrowErrorCode.STOCK_NOT_SUFFICIENT.code());
+        assertThat(bookMapper.findStockById(1)).isZero();
+        // 不计入按图书的库存不足
+        assertThat(registry.find("library.borrow.stock.rejections").tag("book", String.valueOf(MISSING_BOOK_ID))
+                .counter()).isNull();
+        assertThat(registry.get("library.rejections").tag("code", BookErrorCode.BOOK_NOT_FOUND.code())
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void nonexistentBookAbortsAllOrNothing() {
+        MultiBorrowRequestDTO request = request(1, MISSING_BOOK_ID);
+        request.setMode("all-or-nothing");
+
+        MultiResultDTO result = borrowService.borrowBooks(USER_ID, request);
+
+        assertThat(result.getItems()).extracting(MultiItemResultDTO::getCode).containsExactly(
+                BorrowErrorCode.BATCH_ABORTED.code(), BookErrorCode.BOOK_NOT_FOUND.code());
+    }
+
+    private static MultiBorrowRequestDTO request(Integer... bookIds) {
+        MultiBorrowRequestDTO request = new MultiBorrowRequestDTO();
+        request.setBookIds(List.of(bookIds));
+        return request;
+    }
+}
@@ -0,0 +1,70 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.common.convention.errorcode.BaseErrorCode;
+import com.chaos.schoollib.common.convention.exception.ServiceException;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubBorrowRecordMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 合并借书: 等待超时的请求不会在之后被批次借出, 空闲的图书队列会被移除
+ */
+class BorrowBatcherTest {
+
+    private static final int BOOK_ID = 1;
+
+    private final StubBookMapper bookMapper = new StubBookMapper(0);
+    private final StubBorrowRecordMapper borrowRecordMapper = new StubBorrowRecordMapper();
+    private BorrowBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void timedOutRequestIsNotBorrowedLater() throws Exception {
+        bookMapper.addBook(BOOK_ID, 5);
+        // 窗口远长于等待超时: 批次领取之前请求已经放弃
+        batcher = batcher(200, 10);
+
+        assertThatThrownBy(() -> batcher.borrow(7, BOOK_ID))
+                .isInstanceOfSatisfying(ServiceException.class, ex ->
+                        assertThat(ex.errorCode).isEqualTo(BaseErrorCode.SERVICE_TIMEOUT_ERROR.code()));
+
+        TimeUnit.MILLISECONDS.sleep(400);
+        assertThat(bookMapper.findStockById(BOOK_ID)).isEqualTo(5);
+        assertThat(borrowRecordMapper.findByUserId(7)).isEmpty();
+        assertThat(batcher.getStats()).containsEntry("abandoned", 1L).containsEntry("queues", 0);
+    }
+
+    @Test
+    void idleQueueIsRemovedAfterFlush() throws Exception {
+        bookMapper.addBook(BOOK_ID, 5);
+        batcher = batcher(2, 5000);
+
+        BorrowRecord record = batcher.borrow(7, BOOK_ID);
+
+        assertThat(record.getBookID()).isEqualTo(BOOK_ID);
+        assertThat(bookMapper.findStockById(BOOK_ID)).isEqualTo(4);
+        // 调用方在提交后就返回, 队列在批次收尾时移除
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(batcher.getStats()).containsEntry("queues", 0);
+        assertThat(batcher.borrow(8, BOOK_ID).getUserID()).isEqualTo(8);
+    }
+
+    private BorrowBatcher batcher(long windowMs, long waitTimeoutMs) {
+        return new BorrowBatcher(bookMapper, borrowRecordMapper, new TransactionTemplate(new NoOpTransactionManager()),
+                event -> {
+                }, true, windowMs, 16, 1, waitTimeoutMs);
+    }
+}
@@ -0,0 +1,131 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.dto.CursorPageDTO;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 图书接口响应缓存: 条目覆盖的区间 (lo, hi] 边界, 读取期间发生变更的结果不缓存
+ */
+class CatalogResponseCacheTest {
+
+    private static final String QUERY = "20|-|-|false";
+
+    private final CatalogResponseCache cache = new CatalogResponseCache(new ObjectMapper(), true, 1 << 20, 1024);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void pageCoversCursorExclusiveToLastBookInclusive() {
+        // 游标 10 的一页: (10, 20]
+        page(10, 20);
+
+        changed(10);
+        changed(21);
+        page(10, 20);
+        assertThat(loads).hasValue(1);
+
+        changed(20);
+        page(10, 20);
+        assertThat(loads).hasValue(2);
+
+        changed(11);
+        page(10, 20);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void firstAndLastPagesAreOpenEnded() {
+        // 第一页 (-∞, 20], 最后一页 (20, +∞)
+        page(null, 20);
+        page(20, null);
+
+        changed(Integer.MAX_VALUE);
+        page(null, 20);
+        page(20, null);
+        assertThat(loads).hasValue(3);
+
+        changed(Integer.MIN_VALUE + 1);
+        page(null, 20);
+        page(20, null);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void bookEntryCoversOnlyThatBook() {
+        book(5);
+        changed(4);
+        changed(6);
+        book(5);
+        assertThat(loads).hasValue(1);
+
+        changed(5);
+        book(5);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("invalidated", 1L);
+    }
+
+    @Test
+    void changeDuringLoadIsNotCached() {
+        Supplier<Object> loader = () -> {
+            loads.incrementAndGet();
+            // 读取期间另一本书的变更提交
+            changed(999);
+            return "stale?";
+        };
+        cache.book(5, "t", loader);
+        cache.book(5, "t", () -> {
+            loads.incrementAndGet();
+            return "fresh";
+        });
+        book(5);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getStats()).containsEntry("uncached", 1L).containsEntry("hits", 1L);
+    }
+
+    @Test
+    void overlappingPageOfSameQueryIsNotCached() {
+        page(10, 20);
+        // 客户端自行指定的游标 15: (15, 25] 与 (10, 20] 重叠
+        page(15, 25);
+        page(15, 25);
+        assertThat(loads).hasValue(3);
+
+        // 其他查询条件的页面单独分组, 可以与之重叠; 变更时各组分别移除覆盖它的页面
+        cache.page("50|-|-|false", 15, "t", () -> {
+            loads.incrementAndGet();
+            return new CursorPageDTO<>(List.of(), 25, true);
+        });
+        changed(16);
+        // (10, 20] 移除之后 (15, 25] 可以缓存
+        page(15, 25);
+        page(15, 25);
+        assertThat(loads).hasValue(5);
+        assertThat(cache.getStats()).containsEntry("uncached", 2L).containsEntry("invalidated", 2L);
+    }
+
+    private void page(Integer cursor, Integer last) {
+        cache.page(QUERY, cursor, "t", () -> {
+            loads.incrementAndGet();
+            return new CursorPageDTO<>(List.of(), last, last != null);
+        });
+    }
+
+    private void book(int bookId) {
+        cache.book(bookId, "t", () -> {
+            loads.incrementAndGet();
+            return bookId;
+        });
+    }
+
+    private void changed(int bookId) {
+        cache.onBookChanged(new BookChangedEvent(bookId, BookChangedEvent.Type.UPDATED));
+    }
+}
@@ -0,0 +1,86 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.event.BookChangedEvent;
+import com.chaos.schoollib.support.StubBookMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 图书全文检索: 排序 (书名权重高于出版社), ISBN 检索, BookChangedEvent 增量更新
+ */
+class CatalogSearchIndexTest {
+
+    private final StubBookMapper bookMapper = new StubBookMapper(0);
+    private CatalogSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        book(1, "Distributed Systems", "Tanenbaum", "Pearson", "978-0-13-239227-3");
+        book(2, "Cooking at Home", "Smith", "Systems Press", "978-1-4028-9462-6");
+        book(3, "三体", "刘慈欣", "重庆出版社", "978-7-5366-9293-0");
+        book(4, "Gardening", "Jones", "Green House", null);
+        index = new CatalogSearchIndex(bookMapper, true, 2, 100);
+        index.build();
+    }
+
+    @Test
+    void titleMatchRanksAboveOtherFields() {
+        assertThat(bookIds(index.search("systems", 10))).containsExactly(1, 2);
+        assertThat(bookIds(index.search("三体", 10))).containsExactly(3);
+        assertThat(index.getState()).isEqualTo(CatalogSearchIndex.State.READY);
+    }
+
+    @Test
+    void sameScoreIsOrderedByBookId() {
+        book(5, "Gardening", "Jones", "Green House", null);
+        index.onBookChanged(new BookChangedEvent(5, BookChangedEvent.Type.CREATED));
+
+        List<CatalogSearchIndex.Hit> hits = index.search("gardening", 10);
+        assertThat(bookIds(hits)).containsExactly(4, 5);
+        assertThat(hits.get(0).score()).isEqualTo(hits.get(1).score());
+        assertThat(bookIds(index.search("gardening", 1))).containsExactly(4);
+    }
+
+    @Test
+    void isbnMatchesWithOrWithoutHyphens() {
+        assertThat(bookIds(index.search("978-7-5366-9293-0", 10))).containsExactly(3);
+        assertThat(bookIds(index.search("9787536692930", 10))).containsExactly(3);
+    }
+
+    @Test
+    void bookChangedEventUpdatesIndex() {
+        bookMapper.findById(1).setTitle("Operating Systems Concepts");
+        index.onBookChanged(new BookChangedEvent(1, BookChangedEvent.Type.UPDATED));
+        assertThat(bookIds(index.search("distributed", 10))).isEmpty();
+        assertThat(bookIds(index.search("concepts", 10))).containsExactly(1);
+
+        bookMapper.deleteById(2);
+        index.onBookChanged(new BookChangedEvent(2, BookChangedEvent.Type.DELETED));
+        assertThat(bookIds(index.search("systems", 10))).containsExactly(1);
+
+        // 库存变化不触发重新索引
+        bookMapper.findById(4).setTitle("Birdwatching");
+        index.onBookChanged(new BookChangedEvent(4, BookChangedEvent.Type.STOCK_CHANGED));
+        assertThat(bookIds(index.search("gardening", 10))).containsExactly(4);
+
+        assertThat(index.getStats()).containsEntry("documents", 3).containsEntry("updates", 2L);
+    }
+
+    private void book(int bookId, String title, String author, String publisher, String isbn) {
+        Book book = bookMapper.addBook(bookId, 1);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPublisher(publisher);
+        book.setIsbn(isbn);
+        book.setCategory(null);
+    }
+
+    private static List<Integer> bookIds(List<CatalogSearchIndex.Hit> hits) {
+        return hits.stream().map(CatalogSearchIndex.Hit::bookId).toList();
+    }
+}
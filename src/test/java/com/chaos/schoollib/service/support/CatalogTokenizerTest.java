@@ -0,0 +1,42 @@
+package com.chaos.schoollib.service.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 图书检索分词: 中日韩二元组、ISBN 连接符、全角归一化
+ */
+class CatalogTokenizerTest {
+
+    @Test
+    void cjkRunIsSplitIntoBigrams() {
+        assertThat(CatalogTokenizer.forQuery("三体全集")).containsExactly("三体", "体全", "全集");
+        // 建索引时额外输出单字
+        assertThat(CatalogTokenizer.forIndex("三体全集"))
+                .containsExactly("三", "体", "全", "集", "三体", "体全", "全集");
+        // 只有一个字的片段查询时用单字
+        assertThat(CatalogTokenizer.forQuery("三")).containsExactly("三");
+    }
+
+    @Test
+    void mixedTextSplitsAtScriptBoundaries() {
+        assertThat(CatalogTokenizer.forQuery("Java编程思想 (第4版)"))
+                .containsExactly("java", "编程", "程思", "思想", "第", "4", "版");
+    }
+
+    @Test
+    void isbnHyphensAreJoined() {
+        assertThat(CatalogTokenizer.forQuery("ISBN 978-7-5366-9293-0")).containsExactly("isbn", "9787536692930");
+        // 全角数字与末位校验码 X
+        assertThat(CatalogTokenizer.forQuery("０-306-40615-X")).containsExactly("030640615x");
+        // 不在数字之间的 '-' 仍是分隔符
+        assertThat(CatalogTokenizer.forQuery("sci-fi 2024-")).containsExactly("sci", "fi", "2024");
+    }
+
+    @Test
+    void emptyInputHasNoTokens() {
+        assertThat(CatalogTokenizer.forQuery(null)).isEmpty();
+        assertThat(CatalogTokenizer.forQuery(" , ")).isEmpty();
+    }
+}
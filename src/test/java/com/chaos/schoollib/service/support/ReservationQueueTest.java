@@ -0,0 +1,194 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.entity.Reservation;
+import com.chaos.schoollib.mapper.BookMapper;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import com.chaos.schoollib.mapper.ReservationMapper;
+import com.chaos.schoollib.service.impl.ReservationServiceImpl;
+import com.chaos.schoollib.support.NoOpTransactionManager;
+import com.chaos.schoollib.support.StubBookMapper;
+import com.chaos.schoollib.support.StubReservationMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 预约队列的数据库回退模式 (内存队列未启用): 交付与并发取消排队中的预约
+ * 使用内嵌 H2 (MySQL 模式) 和真实的 Mapper XML; 可重复读的快照读到已取消预约的情况
+ * (H2 的可重复读在加锁读时直接回滚, 与 MySQL 不同) 用返回过期结果的 Mapper 模拟
+ */
+class ReservationQueueTest {
+
+    private static final int BOOK_ID = 1;
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ReservationMapper reservationMapper;
+    private ReservationQueue queue;
+    private ReservationServiceImpl reservationService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:reservation;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;"
+                + "LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("load/schema-h2.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO User (UserID, Username, Password, Role) VALUES "
+                + "(1, 'first', 'x', 'student'), (2, 'second', 'x', 'student')");
+        jdbcTemplate.update("INSERT INTO Book (BookID, Title, Stock, Total) VALUES (?, 'Reserved Book', 0, 1)", BOOK_ID);
+
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setTypeAliasesPackage("com.chaos.schoollib.entity");
+        factory.setMapperLocations(new ClassPathResource("mapper/BookMapper.xml"),
+                new ClassPathResource("mapper/BorrowRecordMapper.xml"),
+                new ClassPathResource("mapper/ReservationMapper.xml"));
+        SqlSessionTemplate sqlSession = new SqlSessionTemplate(factory.getObject());
+        BookMapper bookMapper = sqlSession.getMapper(BookMapper.class);
+        reservationMapper = sqlSession.getMapper(ReservationMapper.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // enabled = false 且不调用 start(): 一直走数据库
+        queue = new ReservationQueue(reservationMapper, bookMapper, new StockGate(bookMapper, false, 1000),
+                transactionTemplate, event -> {
+        }, false, 60, 60_000, 100);
+        reservationService = new ReservationServiceImpl(reservationMapper, bookMapper,
+                sqlSession.getMapper(BorrowRecordMapper.class), queue);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void cancelCommittedDuringReturnIsSkipped() throws Exception {
+        Reservation first = reserve(1);
+        Reservation second = reserve(2);
+        CountDownLatch snapshotTaken = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        CompletableFuture<Reservation> receiver = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            // 还书事务已经开始 (读到第一条预约仍在排队), 取消在交付之前提交
+            assertThat(reservationMapper.findById(first.getReservationID()).getStatus()).isEqualTo("waiting");
+            snapshotTaken.countDown();
+            await(cancelled);
+            return queue.handOffOrRestock(BOOK_ID);
+        }));
+        assertThat(snapshotTaken.await(5, TimeUnit.SECONDS)).isTrue();
+        transactionTemplate.executeWithoutResult(status -> reservationService.cancel(1, first.getReservationID()));
+        cancelled.countDown();
+
+        assertThat(receiver.get(5, TimeUnit.SECONDS).getReservationID()).isEqualTo(second.getReservationID());
+        assertThat(status(first)).isEqualTo("cancelled");
+        assertThat(status(second)).isEqualTo("held");
+        assertThat(stock()).isZero();
+    }
+
+    @Test
+    void cancelInProgressDoesNotBlockHandOff() throws Exception {
+        Reservation first = reserve(1);
+        Reservation second = reserve(2);
+        CountDownLatch cancelUpdated = new CountDownLatch(1);
+        CountDownLatch handedOff = new CountDownLatch(1);
+
+        // 取消已经更新了第一条预约、还没有提交
+        CompletableFuture<Void> cancel = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            reservationService.cancel(1, first.getReservationID());
+            cancelUpdated.countDown();
+            await(handedOff);
+        }));
+        assertThat(cancelUpdated.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Reservation receiver = transactionTemplate.execute(status -> queue.handOffOrRestock(BOOK_ID));
+        handedOff.countDown();
+        cancel.get(5, TimeUnit.SECONDS);
+
+        assertThat(receiver.getReservationID()).isEqualTo(second.getReservationID());
+        assertThat(status(first)).isEqualTo("cancelled");
+        assertThat(status(second)).isEqualTo("held");
+        assertThat(stock()).isZero();
+    }
+
+    @Test
+    void allCancelledRestocks() {
+        Reservation first = reserve(1);
+        transactionTemplate.executeWithoutResult(status -> reservationService.cancel(1, first.getReservationID()));
+        Reservation receiver = transactionTemplate.execute(status -> queue.handOffOrRestock(BOOK_ID));
+
+        assertThat(receiver).isNull();
+        assertThat(stock()).isEqualTo(1);
+    }
+
+    @Test
+    void staleSnapshotCandidatesDoNotLoopForever() throws Exception {
+        // 快照读: 已取消的预约仍然显示为排队中, 条件更新 hold 却总是返回 0
+        List<Reservation> snapshot = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            Reservation reservation = new Reservation();
+            reservation.setReservationID(id);
+            reservation.setUserID(id);
+            reservation.setBookID(BOOK_ID);
+            snapshot.add(reservation);
+        }
+        StubReservationMapper staleMapper = new StubReservationMapper() {
+            @Override
+            public List<Reservation> findWaitingByBook(Integer bookId, int afterReservationId, int limit) {
+                return snapshot.stream().filter(r -> r.getReservationID() > afterReservationId).limit(limit).toList();
+            }
+        };
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        bookMapper.addBook(BOOK_ID, 0);
+        ReservationQueue staleQueue = new ReservationQueue(staleMapper, bookMapper, new StockGate(bookMapper, false, 1000),
+                new TransactionTemplate(new NoOpTransactionManager()), event -> {
+        }, false, 60, 60_000, 100);
+        try {
+            Reservation receiver = CompletableFuture.supplyAsync(() -> staleQueue.handOff(BOOK_ID)).get(5, TimeUnit.SECONDS);
+
+            assertThat(receiver).isNull();
+            assertThat(staleQueue.getStats()).containsEntry("staleSkipped", 20L);
+        } finally {
+            staleQueue.shutdown();
+        }
+    }
+
+    private Reservation reserve(int userId) {
+        return transactionTemplate.execute(status -> reservationService.reserve(userId, BOOK_ID));
+    }
+
+    private String status(Reservation reservation) {
+        return jdbcTemplate.queryForObject("SELECT Status FROM Reservation WHERE ReservationID = ?",
+                String.class, reservation.getReservationID());
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT Stock FROM Book WHERE BookID = ?", Integer.class, BOOK_ID);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
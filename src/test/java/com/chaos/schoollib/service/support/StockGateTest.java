@@ -0,0 +1,84 @@
+package com.chaos.schoollib.service.support;
+
+import com.chaos.schoollib.support.StubBookMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 库存闸门: 初始化读库与还书并发时不能丢失许可, 计数为 0 时定期回表确认
+ */
+class StockGateTest {
+
+    private static final int BOOK_ID = 1;
+
+    @Test
+    void returnCommittedWhileSeedingIsNotLost() throws Exception {
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch returned = new CountDownLatch(1);
+        StubBookMapper bookMapper = new StubBookMapper(0) {
+            private boolean first = true;
+
+            @Override
+            public synchronized Integer findStockById(Integer bookId) {
+                Integer stock = super.findStockById(bookId);
+                if (first) {
+                    // 第一次读到还书提交前的库存 0, 等还书提交并 release 之后才返回
+                    first = false;
+                    read.countDown();
+                    await(returned);
+                }
+                return stock;
+            }
+        };
+        bookMapper.addBook(BOOK_ID, 0);
+        StockGate gate = new StockGate(bookMapper, true, 60_000);
+
+        CompletableFuture<Boolean> borrow = CompletableFuture.supplyAsync(() -> gate.tryAcquire(BOOK_ID));
+        assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+        bookMapper.increaseStock(BOOK_ID);
+        gate.release(BOOK_ID);
+        returned.countDown();
+
+        assertThat(borrow.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(gate.getStats()).containsEntry("staleSeeds", 1L);
+        assertThat(gate.tryAcquire(BOOK_ID)).isFalse();
+    }
+
+    @Test
+    void exhaustedCounterRechecksDatabase() {
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        bookMapper.addBook(BOOK_ID, 0);
+        StockGate gate = new StockGate(bookMapper, true, 0);
+
+        assertThat(gate.tryAcquire(BOOK_ID)).isFalse();
+        // 库存在闸门之外增加 (例如其他实例的还书)
+        bookMapper.increaseStock(BOOK_ID);
+        assertThat(gate.tryAcquire(BOOK_ID)).isTrue();
+        assertThat(gate.getStats()).containsEntry("rechecked", 2L);
+    }
+
+    @Test
+    void exhaustedCounterRejectsWithinRecheckInterval() {
+        StubBookMapper bookMapper = new StubBookMapper(0);
+        bookMapper.addBook(BOOK_ID, 0);
+        StockGate gate = new StockGate(bookMapper, true, 60_000);
+
+        assertThat(gate.tryAcquire(BOOK_ID)).isFalse();
+        bookMapper.increaseStock(BOOK_ID);
+        assertThat(gate.tryAcquire(BOOK_ID)).isFalse();
+        assertThat(gate.getStats()).containsEntry("rechecked", 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
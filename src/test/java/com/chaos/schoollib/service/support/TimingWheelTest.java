@@ -0,0 +1,85 @@
+package com.chaos.schoollib.service.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 时间轮: 槽位回绕、超过一圈的到期时间、撤销、当前 tick 内的到期时间
+ */
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int SLOTS = 8;
+
+    @Test
+    void deadlineInsideCurrentTickExpiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(TICK, SLOTS, 1003);
+        wheel.schedule(1, 1005);
+        // 已经过去的时间同样放到下一个 tick
+        wheel.schedule(2, 500);
+
+        assertThat(wheel.advance(1009)).isEmpty();
+        assertThat(wheel.advance(1010)).containsExactly(1, 2);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void slotsWrapAround() {
+        TimingWheel wheel = new TimingWheel(TICK, SLOTS, 0);
+        // tick 7 与 tick 9 分别在最后一个槽和回绕后的 1 号槽
+        wheel.schedule(1, 70);
+        wheel.schedule(2, 85);
+
+        assertThat(wheel.advance(79)).containsExactly(1);
+        assertThat(wheel.advance(89)).isEmpty();
+        assertThat(wheel.advance(90)).containsExactly(2);
+    }
+
+    @Test
+    void deadlineBeyondOneRotationIsSkippedUntilDue() {
+        TimingWheel wheel = new TimingWheel(TICK, SLOTS, 0);
+        // tick 17 与 tick 1 同在 1 号槽
+        wheel.schedule(1, 170);
+        wheel.schedule(2, 10);
+
+        assertThat(wheel.advance(10)).containsExactly(2);
+        assertThat(wheel.advance(100)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(169)).isEmpty();
+        assertThat(wheel.advance(170)).containsExactly(1);
+    }
+
+    @Test
+    void advancingMoreThanOneRotationVisitsEachSlotOnce() {
+        TimingWheel wheel = new TimingWheel(TICK, SLOTS, 0);
+        for (int id = 1; id <= 20; id++) {
+            wheel.schedule(id, id * TICK);
+        }
+
+        // 一次跨过 2.5 圈
+        assertThat(wheel.advance(200)).hasSize(20).doesNotHaveDuplicates();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelRemovesOnlyThatEntry() {
+        TimingWheel wheel = new TimingWheel(TICK, SLOTS, 0);
+        wheel.schedule(1, 50);
+        wheel.schedule(2, 50);
+        wheel.schedule(3, 50 + SLOTS * TICK);
+
+        assertThat(wheel.cancel(1, 50)).isTrue();
+        assertThat(wheel.cancel(1, 50)).isFalse();
+        // 同一个槽中另一圈的条目按到期时间区分
+        assertThat(wheel.cancel(3, 50)).isFalse();
+        assertThat(wheel.size()).isEqualTo(2);
+
+        assertThat(wheel.advance(50)).containsExactly(2);
+        // 已经到期的条目不能再撤销
+        assertThat(wheel.cancel(2, 50)).isFalse();
+        assertThat(wheel.cancel(3, 50 + SLOTS * TICK)).isTrue();
+        assertThat(wheel.advance(1000)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+}
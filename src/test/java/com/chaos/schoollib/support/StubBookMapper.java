@@ -0,0 +1,160 @@
+package com.chaos.schoollib.support;
+
+import com.chaos.schoollib.dto.BookQueryDTO;
+import com.chaos.schoollib.entity.Book;
+import com.chaos.schoollib.mapper.BookMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 内存版 BookMapper
+ * 库存更新会持有每本书的 "行锁" rowLockNanos 纳秒, 模拟 InnoDB 行锁 + 提交的串行化开销
+ */
+public class StubBookMapper implements BookMapper {
+
+    private final ConcurrentSkipListMap<Integer, Book> books = new ConcurrentSkipListMap<>();
+    private final Map<Integer, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+    private final long rowLockNanos;
+
+    public StubBookMapper(long rowLockNanos) {
+        this.rowLockNanos = rowLockNanos;
+    }
+
+    public Book addBook(int bookId, int stock) {
+        Book book = new Book();
+        book.setBookID(bookId);
+        book.setTitle("Book " + bookId);
+        book.setAuthor("Author " + (bookId % 100));
+        book.setCategory("Category " + (bookId % 10));
+        book.setTotal(stock);
+        book.setStock(stock);
+        books.put(bookId, book);
+        rowLocks.put(bookId, new ReentrantLock());
+        return book;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return new ArrayList<>(books.values());
+    }
+
+    @Override
+    public List<Book> findPage(BookQueryDTO query, int limit) {
+        Map<Integer, Book> page = query.getCursor() == null ? books : books.tailMap(query.getCursor(), false);
+        return page.values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Book findById(Integer bookId) {
+        return books.get(bookId);
+    }
+
+    @Override
+    public List<Book> findByIds(Collection<Integer> bookIds) {
+        return bookIds.stream().map(books::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public Integer findStockById(Integer bookId) {
+        Book book = books.get(bookId);
+        return book == null ? null : book.getStock();
+    }
+
+    @Override
+    public int insert(Book book) {
+        books.put(book.getBookID(), book);
+        rowLocks.put(book.getBookID(), new ReentrantLock());
+        return 1;
+    }
+
+    @Override
+    public int update(Book book) {
+        return books.replace(book.getBookID(), book) == null ? 0 : 1;
+    }
+
+    @Override
+    public int deleteById(Integer bookId) {
+        return books.remove(bookId) == null ? 0 : 1;
+    }
+
+    @Override
+    public int decreaseStock(Integer bookId) {
+        return changeStock(bookId, -1);
+    }
+
+    @Override
+    public int increaseStock(Integer bookId) {
+        return changeStock(bookId, 1);
+    }
+
+    @Override
+    public int decreaseStockBy(Integer bookId, int count) {
+        return changeStock(bookId, -count);
+    }
+
+    @Override
+    public Integer lockStockById(Integer bookId) {
+        return findStockById(bookId);
+    }
+
+    @Override
+    public List<Book> findIdsByIsbns(Collection<String> isbns) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int upsertByIsbn(List<Book> books) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int insertAll(List<Book> books) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Book> lockStocksByIds(Collection<Integer> bookIds) {
+        return findByIds(bookIds);
+    }
+
+    @Override
+    public int decreaseStockByIds(Collection<Integer> bookIds) {
+        return bookIds.stream().mapToInt(this::decreaseStock).sum();
+    }
+
+    @Override
+    public int increaseStockByIds(Collection<Integer> bookIds) {
+        throw new UnsupportedOperationException();
+    }
+
+    private int changeStock(Integer bookId, int delta) {
+        ReentrantLock lock = rowLocks.get(bookId);
+        if (lock == null) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            if (rowLockNanos > 0) {
+                LockSupport.parkNanos(rowLockNanos);
+            }
+            Book book = books.get(bookId);
+            if (book.getStock() + delta < 0) {
+                return 0;
+            }
+            book.setStock(book.getStock() + delta);
+            return 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
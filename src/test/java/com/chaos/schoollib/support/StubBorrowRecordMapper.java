@@ -0,0 +1,140 @@
+package com.chaos.schoollib.support;
+
+import com.chaos.schoollib.dto.BorrowCountDTO;
+import com.chaos.schoollib.entity.BorrowRecord;
+import com.chaos.schoollib.mapper.BorrowRecordMapper;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内存版 BorrowRecordMapper
+ */
+public class StubBorrowRecordMapper implements BorrowRecordMapper {
+
+    private final NavigableMap<Integer, BorrowRecord> records = new ConcurrentSkipListMap<>();
+    private final AtomicInteger idSequence = new AtomicInteger();
+
+    public void remove(Integer recordId) {
+        records.remove(recordId);
+    }
+
+    @Override
+    public int insert(BorrowRecord record) {
+        record.setRecordID(idSequence.incrementAndGet());
+        records.put(record.getRecordID(), record);
+        return 1;
+    }
+
+    @Override
+    public int insertBatch(List<BorrowRecord> records) {
+        records.forEach(this::insert);
+        return records.size();
+    }
+
+    @Override
+    public BorrowRecord findById(Integer recordId) {
+        return records.get(recordId);
+    }
+
+    @Override
+    public int update(BorrowRecord record) {
+        records.put(record.getRecordID(), record);
+        return 1;
+    }
+
+    @Override
+    public List<BorrowRecord> findByUserId(Integer userId) {
+        return records.values().stream()
+                .filter(record -> record.getUserID().equals(userId))
+                .toList();
+    }
+
+    @Override
+    public List<Integer> findActiveUserIdsByBook(Integer bookId, Collection<Integer> userIds) {
+        return List.of();
+    }
+
+    @Override
+    public List<BorrowRecord> findAll() {
+        return new ArrayList<>(records.values());
+    }
+
+    @Override
+    public Cursor<BorrowRecord> streamByFilter(LocalDateTime from, LocalDateTime to, String status) {
+        throw new UnsupportedOperationException("streamByFilter");
+    }
+
+    @Override
+    public Integer findMaxRecordId() {
+        return records.isEmpty() ? null : idSequence.get();
+    }
+
+    @Override
+    public List<BorrowCountDTO> countBorrows(boolean byUser, LocalDateTime since, int maxRecordId) {
+        throw new UnsupportedOperationException("countBorrows");
+    }
+
+    @Override
+    public List<BorrowRecord> findLoanPairs(int afterRecordId, int maxRecordId, int limit) {
+        return records.subMap(afterRecordId, false, maxRecordId, true).values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<BorrowRecord> findDueLoans(LocalDateTime dueFrom, LocalDateTime dueBefore, LocalDateTime afterDueDate,
+                                           Integer afterRecordId, int limit) {
+        throw new UnsupportedOperationException("findDueLoans");
+    }
+
+    @Override
+    public int markOverdue(List<Integer> recordIds) {
+        throw new UnsupportedOperationException("markOverdue");
+    }
+
+    @Override
+    public List<BorrowRecord> lockByIds(Collection<Integer> recordIds) {
+        throw new UnsupportedOperationException("lockByIds");
+    }
+
+    @Override
+    public int markReturned(Collection<Integer> recordIds, LocalDateTime returnDate) {
+        int updated = 0;
+        for (Integer recordId : recordIds) {
+            // 与 UPDATE ... WHERE Status IN (...) 一样只有一个并发调用能更新成功: 替换为新对象后 CAS
+            BorrowRecord current;
+            while ((current = records.get(recordId)) != null
+                    && ("borrowed".equals(current.getStatus()) || "overdue".equals(current.getStatus()))) {
+                BorrowRecord returned = new BorrowRecord();
+                returned.setRecordID(current.getRecordID());
+                returned.setUserID(current.getUserID());
+                returned.setBookID(current.getBookID());
+                returned.setBorrowDate(current.getBorrowDate());
+                returned.setDueDate(current.getDueDate());
+                returned.setReturnDate(returnDate);
+                returned.setStatus("returned");
+                if (records.replace(recordId, current, returned)) {
+                    updated++;
+                    break;
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Integer> findActiveBookIdsByUser(Integer userId, Collection<Integer> bookIds) {
+        return records.values().stream()
+                .filter(record -> record.getUserID().equals(userId) && bookIds.contains(record.getBookID()))
+                .filter(record -> "borrowed".equals(record.getStatus()) || "overdue".equals(record.getStatus()))
+                .map(BorrowRecord::getBookID)
+                .toList();
+    }
+}
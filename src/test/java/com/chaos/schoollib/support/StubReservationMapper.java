@@ -0,0 +1,58 @@
+package com.chaos.schoollib.support;
+
+import com.chaos.schoollib.entity.Reservation;
+import com.chaos.schoollib.mapper.ReservationMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 内存版 ReservationMapper: 没有任何预约 (还书总是放回库存)
+ */
+public class StubReservationMapper implements ReservationMapper {
+
+    @Override
+    public int insert(Reservation reservation) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Reservation findById(Integer reservationId) {
+        return null;
+    }
+
+    @Override
+    public List<Reservation> findByUserId(Integer userId) {
+        return List.of();
+    }
+
+    @Override
+    public List<Reservation> findActivePage(int afterReservationId, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<Reservation> findWaitingByBook(Integer bookId, int afterReservationId, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public int hold(Integer reservationId, LocalDateTime holdUntil) {
+        return 0;
+    }
+
+    @Override
+    public int updateStatus(Integer reservationId, List<String> from, String to) {
+        return 0;
+    }
+
+    @Override
+    public List<Reservation> findExpiredHolds(LocalDateTime now, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public Reservation findHeld(Integer userId, Integer bookId) {
+        return null;
+    }
+}
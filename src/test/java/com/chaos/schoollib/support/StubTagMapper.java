@@ -0,0 +1,59 @@
+package com.chaos.schoollib.support;
+
+import com.chaos.schoollib.entity.BookTag;
+import com.chaos.schoollib.entity.Tag;
+import com.chaos.schoollib.mapper.TagMapper;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 内存版 TagMapper: 没有任何标签
+ */
+public class StubTagMapper implements TagMapper {
+
+    @Override
+    public List<Tag> findAll() {
+        return List.of();
+    }
+
+    @Override
+    public Tag findById(Integer tagId) {
+        return null;
+    }
+
+    @Override
+    public int countByIds(Collection<Integer> tagIds) {
+        return 0;
+    }
+
+    @Override
+    public int insert(Tag tag) {
+        throw new UnsupportedOperationException("insert");
+    }
+
+    @Override
+    public int deleteById(Integer tagId) {
+        return 0;
+    }
+
+    @Override
+    public List<Tag> findByBookId(Integer bookId) {
+        return List.of();
+    }
+
+    @Override
+    public List<BookTag> findBookTagsByBookIds(Collection<Integer> bookIds) {
+        return List.of();
+    }
+
+    @Override
+    public int deleteBookTags(Integer bookId) {
+        return 0;
+    }
+
+    @Override
+    public int insertBookTags(Integer bookId, Collection<Integer> tagIds) {
+        throw new UnsupportedOperationException("insertBookTags");
+    }
+}
@@ -0,0 +1,82 @@
+-- 压测使用的 H2 表结构 (MySQL 兼容模式), 与 schema.sql 保持一致
+DROP TABLE IF EXISTS Reservation;
+DROP TABLE IF EXISTS BookTag;
+DROP TABLE IF EXISTS Tag;
+DROP TABLE IF EXISTS BorrowRecord;
+DROP TABLE IF EXISTS Book;
+DROP TABLE IF EXISTS User;
+
+CREATE TABLE User (
+                      UserID INT AUTO_INCREMENT PRIMARY KEY,
+                      Username VARCHAR(50) NOT NULL UNIQUE,
+                      Password VARCHAR(255) NOT NULL,
+                      Role ENUM('student', 'teacher', 'admin') NOT NULL,
+                      Contact VARCHAR(100),
+                      RegistrationDate DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE Book (
+                      BookID INT AUTO_INCREMENT PRIMARY KEY,
+                      Title VARCHAR(100) NOT NULL,
+                      Author VARCHAR(50),
+                      Publisher VARCHAR(50),
+                      ISBN VARCHAR(20) UNIQUE,
+                      Category VARCHAR(50),
+                      Stock INT DEFAULT 0,
+                      Total INT DEFAULT 0,
+                      CHECK (Stock >= 0)
+);
+CREATE INDEX idx_book_category ON Book (Category);
+CREATE INDEX idx_book_author ON Book (Author);
+
+CREATE TABLE BorrowRecord (
+                              RecordID INT AUTO_INCREMENT PRIMARY KEY,
+                              UserID INT NOT NULL,
+                              BookID INT NOT NULL,
+                              BorrowDate DATETIME DEFAULT CURRENT_TIMESTAMP,
+                              DueDate DATETIME,
+                              ReturnDate DATETIME,
+                              Status ENUM('borrowed', 'returned', 'overdue') DEFAULT 'borrowed',
+                              ActiveLoan TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('borrowed', 'overdue') THEN 1 END),
+                              FOREIGN KEY (UserID) REFERENCES User(UserID),
+                              FOREIGN KEY (BookID) REFERENCES Book(BookID)
+);
+CREATE UNIQUE INDEX uk_record_active_loan ON BorrowRecord (UserID, BookID, ActiveLoan);
+CREATE INDEX idx_record_user ON BorrowRecord (UserID, BorrowDate);
+CREATE INDEX idx_record_status_due ON BorrowRecord (Status, DueDate);
+
+CREATE TABLE Tag (
+                     TagID INT AUTO_INCREMENT PRIMARY KEY,
+                     Name VARCHAR(50) NOT NULL UNIQUE,
+                     CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE BookTag (
+                         BookID INT NOT NULL,
+                         TagID INT NOT NULL,
+                         PRIMARY KEY (BookID, TagID),
+                         FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE,
+                         FOREIGN KEY (TagID) REFERENCES Tag(TagID) ON DELETE CASCADE
+);
+CREATE INDEX idx_book_tag_tag ON BookTag (TagID);
+
+CREATE TABLE Reservation (
+                             ReservationID INT AUTO_INCREMENT PRIMARY KEY,
+                             UserID INT NOT NULL,
+                             BookID INT NOT NULL,
+                             Status ENUM('waiting', 'held', 'fulfilled', 'cancelled', 'expired') DEFAULT 'waiting',
+                             CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP,
+                             HoldUntil DATETIME,
+                             ActiveReservation TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('waiting', 'held') THEN 1 END),
+                             FOREIGN KEY (UserID) REFERENCES User(UserID) ON DELETE CASCADE,
+                             FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE
+);
+CREATE UNIQUE INDEX uk_reservation_active ON Reservation (UserID, BookID, ActiveReservation);
+CREATE INDEX idx_reservation_book ON Reservation (BookID, Status);
+CREATE INDEX idx_reservation_hold ON Reservation (Status, HoldUntil);
+CREATE INDEX idx_reservation_user ON Reservation (UserID, CreatedAt);
+
+CREATE TABLE ReplicaHeartbeat (
+                                  ID INT PRIMARY KEY,
+                                  Ts BIGINT NOT NULL
+);
@@ -0,0 +1,65 @@
+-- 已有数据库的增量升级脚本
+-- 新建库直接执行 schema.sql 即可, 已有库按顺序执行以下语句
+
+use library_db;
+
+-- 1. 图书分页查询: 分类 / 作者过滤索引
+ALTER TABLE Book
+    ADD INDEX idx_book_category (Category),
+    ADD INDEX idx_book_author (Author);
+
+-- 2. 借阅记录: 由唯一索引保证 "同一用户对同一本书只有一条未还记录"
+-- (执行前请先确认没有重复的未还记录:
+--  SELECT UserID, BookID, COUNT(*) FROM BorrowRecord WHERE Status = 'borrowed' GROUP BY UserID, BookID HAVING COUNT(*) > 1)
+ALTER TABLE BorrowRecord
+    ADD COLUMN ActiveLoan TINYINT GENERATED ALWAYS AS (CASE WHEN Status = 'borrowed' THEN 1 END) VIRTUAL,
+    ADD UNIQUE KEY uk_record_active_loan (UserID, BookID, ActiveLoan),
+    ADD INDEX idx_record_user (UserID, BorrowDate);
+
+-- 3. 分类标签 / 图书-标签映射 (标签分面检索)
+CREATE TABLE Tag (
+                     TagID INT AUTO_INCREMENT PRIMARY KEY,
+                     Name VARCHAR(50) NOT NULL UNIQUE,
+                     CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+CREATE TABLE BookTag (
+                         BookID INT NOT NULL,
+                         TagID INT NOT NULL,
+                         PRIMARY KEY (BookID, TagID),
+                         INDEX idx_book_tag_tag (TagID),
+                         FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE,
+                         FOREIGN KEY (TagID) REFERENCES Tag(TagID) ON DELETE CASCADE
+);
+
+-- 4. 逾期: 逾期记录也算未还 (不能重复借同一本书), 并为逾期扫描加 (Status, DueDate) 索引
+-- (生成列的表达式不能直接修改, 先删除再重建)
+ALTER TABLE BorrowRecord
+    DROP INDEX uk_record_active_loan,
+    DROP COLUMN ActiveLoan;
+ALTER TABLE BorrowRecord
+    ADD COLUMN ActiveLoan TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('borrowed', 'overdue') THEN 1 END) VIRTUAL,
+    ADD UNIQUE KEY uk_record_active_loan (UserID, BookID, ActiveLoan),
+    ADD INDEX idx_record_status_due (Status, DueDate);
+
+-- 5. 预约队列
+CREATE TABLE Reservation (
+                             ReservationID INT AUTO_INCREMENT PRIMARY KEY,
+                             UserID INT NOT NULL,
+                             BookID INT NOT NULL,
+                             Status ENUM('waiting', 'held', 'fulfilled', 'cancelled', 'expired') DEFAULT 'waiting',
+                             CreatedAt DATETIME DEFAULT CURRENT_TIMESTAMP,
+                             HoldUntil DATETIME,
+                             ActiveReservation TINYINT GENERATED ALWAYS AS (CASE WHEN Status IN ('waiting', 'held') THEN 1 END) VIRTUAL,
+                             UNIQUE KEY uk_reservation_active (UserID, BookID, ActiveReservation),
+                             INDEX idx_reservation_book (BookID, Status),
+                             INDEX idx_reservation_hold (Status, HoldUntil),
+                             INDEX idx_reservation_user (UserID, CreatedAt),
+                             FOREIGN KEY (UserID) REFERENCES User(UserID) ON DELETE CASCADE,
+                             FOREIGN KEY (BookID) REFERENCES Book(BookID) ON DELETE CASCADE
+);
+
+-- 6. 读写分离: 从库心跳表
+CREATE TABLE ReplicaHeartbeat (
+                                  ID INT PRIMARY KEY,
+                                  Ts BIGINT NOT NULL
+);